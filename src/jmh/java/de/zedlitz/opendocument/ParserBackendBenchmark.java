@@ -0,0 +1,82 @@
+package de.zedlitz.opendocument;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads every cell of the test documents with each of the StAX implementations. The
+ * <code>lookupPerDocument</code> benchmark creates a new factory of the backend for each document like the reader
+ * did before the factory was cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBackendBenchmark {
+
+    @Param({"DEFAULT", "JDK", "WOODSTOX", "AALTO", "BUILT_IN"})
+    public DocumentReaderConfig.Backend backend;
+
+    @Param({"test01.ods", "formats.ods"})
+    public String file;
+
+    private byte[] document;
+    private DocumentReaderConfig config;
+
+    @Setup
+    public void setUp() throws IOException {
+        config = DocumentReaderConfig.getDefault().withBackend(backend);
+        try (InputStream in = getClass().getResourceAsStream("/" + file)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            document = out.toByteArray();
+        }
+    }
+
+    private static int readAll(final Document doc) {
+        int length = 0;
+        for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+            for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                for (CellRun run = row.nextCellRun(); run != null; run = row.nextCellRun()) {
+                    length += run.getCell().getContent().length();
+                }
+            }
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int cachedFactory() throws Exception {
+        try (Document doc = new Document(new ByteArrayInputStream(document), config)) {
+            return readAll(doc);
+        }
+    }
+
+    @Benchmark
+    public int lookupPerDocument() throws Exception {
+        final DocumentReaderConfig perDocument = DocumentReaderConfig.getDefault().withBackend(backend);
+        try (Document doc = new Document(new ByteArrayInputStream(document), perDocument)) {
+            return readAll(doc);
+        }
+    }
+}
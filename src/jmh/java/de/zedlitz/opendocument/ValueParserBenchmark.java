@@ -0,0 +1,69 @@
+package de.zedlitz.opendocument;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the primitive accessors of {@link Cell} with the <code>String</code> based JDK parsers.
+ * Run with <code>-prof gc</code> to see the allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueParserBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Numbers {
+        @Param({"7392", "54.143662", "0.0563"})
+        public String number;
+    }
+
+    public String date = "1999-12-31";
+
+    public String time = "PT13H37M46S";
+
+    @Benchmark
+    public double doubleJdk(Numbers numbers) {
+        return Double.parseDouble(numbers.number);
+    }
+
+    @Benchmark
+    public double doubleValueParser(Numbers numbers) {
+        return ValueParser.parseDouble(numbers.number);
+    }
+
+    @Benchmark
+    public long epochDayJdk() {
+        return LocalDate.parse(date).toEpochDay();
+    }
+
+    @Benchmark
+    public long epochDayValueParser() {
+        return ValueParser.parseEpochDay(date);
+    }
+
+    @Benchmark
+    public long secondOfDayJdk() {
+        return Duration.parse(time).getSeconds();
+    }
+
+    @Benchmark
+    public long secondOfDayValueParser() {
+        return ValueParser.parseSecondOfDay(time);
+    }
+}
@@ -0,0 +1,178 @@
+package de.zedlitz.opendocument;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the workbooks of {@link WorkbookGenerator} step by step: opening the document, moving from table to
+ * table, from row to row and from cell to cell, reading the content and converting the values. Each benchmark
+ * does one more step than the one before, so the cost of a step is the difference to the previous one.
+ * <p>
+ * The <code>cells</code> counter is the number of cells per second. Run with <code>-prof gc</code> and divide
+ * <code>gc.alloc.rate.norm</code> by the cells of one operation, which are printed by the setup, to get the
+ * allocation per cell.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkbookBenchmark {
+
+    @Param({"WIDE_SPARSE", "TALL_NUMERIC", "TEXT_HEAVY", "REPEATED", "MANY_SHEETS"})
+    public WorkbookGenerator.Shape shape;
+
+    @Param({"1"})
+    public int scale;
+
+    private byte[] document;
+    private long cellsPerDocument;
+
+    /**
+     * Counts the cells that have been read.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long cells;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            cells = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        document = WorkbookGenerator.generate(shape, scale, 42);
+        try (Document doc = open()) {
+            cellsPerDocument = nextCell(doc, null);
+        }
+        System.out.println();
+        System.out.println(shape + ": " + document.length + " bytes, " + cellsPerDocument + " cells");
+    }
+
+    private Document open() throws IOException {
+        try {
+            return new Document(new ByteArrayInputStream(document));
+        } catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static long nextCell(final Document doc, final Blackhole blackhole) {
+        long cells = 0;
+        for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+            for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                for (Cell cell = row.nextCell(); cell != null; cell = row.nextCell()) {
+                    if (blackhole != null) {
+                        blackhole.consume(cell);
+                    }
+                    cells++;
+                }
+            }
+        }
+        return cells;
+    }
+
+    @Benchmark
+    public void open(final Blackhole blackhole) throws Exception {
+        try (Document doc = open()) {
+            blackhole.consume(doc);
+        }
+    }
+
+    @Benchmark
+    public int nextTable() throws Exception {
+        int tables = 0;
+        try (Document doc = open()) {
+            for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+                tables++;
+            }
+        }
+        return tables;
+    }
+
+    @Benchmark
+    public int nextRow() throws Exception {
+        int rows = 0;
+        try (Document doc = open()) {
+            for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+                for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public void nextCell(final Blackhole blackhole, final Counters counters) throws Exception {
+        try (Document doc = open()) {
+            counters.cells += nextCell(doc, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void getContent(final Blackhole blackhole, final Counters counters) throws Exception {
+        try (Document doc = open()) {
+            for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+                for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                    for (Cell cell = row.nextCell(); cell != null; cell = row.nextCell()) {
+                        blackhole.consume(cell.getContent());
+                        counters.cells++;
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void convert(final Blackhole blackhole, final Counters counters) throws Exception {
+        try (Document doc = open()) {
+            for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+                for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                    for (Cell cell = row.nextCell(); cell != null; cell = row.nextCell()) {
+                        switch (cell.getValueType()) {
+                            case "float":
+                            case "percentage":
+                            case "currency":
+                                blackhole.consume(cell.getDouble());
+                                break;
+                            case "date":
+                                blackhole.consume(cell.isDateTime() ? cell.asDateTime() : cell.asDate());
+                                break;
+                            case "time":
+                                blackhole.consume(cell.asTime());
+                                break;
+                            case "boolean":
+                                blackhole.consume(cell.asBoolean());
+                                break;
+                            default:
+                                blackhole.consume(cell.getContent());
+                        }
+                        counters.cells++;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package de.zedlitz.opendocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * A content that has been read into memory. Opening it again is free, so parts of it can be read concurrently
+ * without inflating the content in front of them again.
+ *
+ * @author jzedlitz
+ */
+class ByteArrayContentSource implements ContentSource {
+    /**
+     * The largest content that fits into an array.
+     */
+    static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private final byte[] content;
+    private final long crc;
+
+    ByteArrayContentSource(final byte[] content, final long crc) {
+        this.content = content;
+        this.crc = crc;
+    }
+
+    /**
+     * Read another source into memory.
+     *
+     * @return the new source or <code>null</code> if the size of the source is unknown or too large
+     */
+    static ByteArrayContentSource read(final ContentSource source) throws IOException {
+        if (source.getSize() < 0 || source.getSize() > MAX_SIZE) {
+            return null;
+        }
+
+        final byte[] content = new byte[(int) source.getSize()];
+        try (DataInputStream in = new DataInputStream(source.open())) {
+            in.readFully(content);
+        }
+        return new ByteArrayContentSource(content, source.getCrc());
+    }
+
+    @Override
+    public InputStream open() {
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public long getSize() {
+        return content.length;
+    }
+
+    @Override
+    public long getCrc() {
+        return crc;
+    }
+}
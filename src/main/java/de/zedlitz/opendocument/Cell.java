@@ -23,7 +23,7 @@ import java.time.format.DateTimeFormatter;
 public class Cell {
     protected final static String TYPE_UNDEFINED = "undefined";
     final static QName ELEMENT_CELL = new QName(Document.NS_TABLE, "table-cell");
-    private final static QName ELEMENT_ANNOTATION = new QName(Document.NS_OFFICE, "annotation");
+    final static QName ELEMENT_ANNOTATION = new QName(Document.NS_OFFICE, "annotation");
     private final static String ATTRIBUTE_VALUE_TYPE = "value-type";
     private final static String ATTRIBUTE_NUMBER_COLUMNS_REPEATED = "number-columns-repeated";
     private static final String ATTRIBUTE_VALUE = "value";
@@ -32,7 +32,7 @@ public class Cell {
     private static final String ATTRIBUTE_TIME_VALUE = "time-value";
     private static final String ATTRIBUTE_CURRENCY = "currency";
 
-    private final StringBuffer content = new StringBuffer();
+    private final String content;
     private final int columnIndex;
     private final Row row;
     private String currency;
@@ -47,8 +47,10 @@ public class Cell {
         this.row = row;
         this.columnIndex = columnIndex;
         if (parser == null) {
+            this.content = "";
             return;
         }
+        final StringDictionary.Columns dictionary = row != null ? row.getDictionary() : null;
 
         this.valueType = StringUtils.defaultIfEmpty(parser.getAttributeValue(
                         Document.NS_OFFICE, Cell.ATTRIBUTE_VALUE_TYPE),
@@ -58,6 +60,11 @@ public class Cell {
         this.booleanValue = parser.getAttributeValue(Document.NS_OFFICE, Cell.ATTRIBUTE_BOOLEAN_VALUE);
         this.timeValue = parser.getAttributeValue(Document.NS_OFFICE, Cell.ATTRIBUTE_TIME_VALUE);
         this.currency = parser.getAttributeValue(Document.NS_OFFICE, Cell.ATTRIBUTE_CURRENCY);
+        if (dictionary != null) {
+            this.valueType = dictionary.intern(this.valueType);
+            this.booleanValue = dictionary.intern(this.booleanValue);
+            this.currency = dictionary.intern(this.currency);
+        }
 
         this.numberColumnsRepeated = NumberUtils.toInt(parser.getAttributeValue(
                 Document.NS_TABLE, Cell.ATTRIBUTE_NUMBER_COLUMNS_REPEATED));
@@ -65,6 +72,7 @@ public class Cell {
         /*
          * extract content
          */
+        final StringBuilder text = new StringBuilder();
         try {
             int eventType = parser.getEventType();
 
@@ -75,7 +83,7 @@ public class Cell {
                     // skip note
                     skipNote(parser);
                 } else if (eventType == XMLStreamConstants.CHARACTERS) {
-                    this.content.append(parser.getText());
+                    text.append(parser.getTextCharacters(), parser.getTextStart(), parser.getTextLength());
                 }
 
                 eventType = parser.next();
@@ -83,6 +91,65 @@ public class Cell {
         } catch (final XMLStreamException e) {
             throw new RuntimeException(e);
         }
+        this.content = dictionary != null ? dictionary.intern(columnIndex, text) : text.toString();
+    }
+
+    /**
+     * Read the <code>table:number-columns-repeated</code> attribute of the cell element the parser is positioned
+     * at.
+     *
+     * @return the number of columns covered by the cell, at least 1
+     */
+    static int numberColumnsRepeated(final XMLStreamReader parser) {
+        return Math.max(1, NumberUtils.toInt(parser.getAttributeValue(
+                Document.NS_TABLE, Cell.ATTRIBUTE_NUMBER_COLUMNS_REPEATED)));
+    }
+
+    /**
+     * Get the 0-based index of a column from its name, e.g. 0 for "A" and 26 for "AA".
+     *
+     * @throws IllegalArgumentException if the name does not consist of letters only
+     */
+    static int getColumnIndex(final String columnName) {
+        if (columnName == null || columnName.isEmpty()) {
+            throw new IllegalArgumentException("Invalid column name: " + columnName);
+        }
+        int result = 0;
+        for (int i = 0; i < columnName.length(); i++) {
+            final char c = Character.toUpperCase(columnName.charAt(i));
+            if (c < 'A' || c > 'Z' || result > (Integer.MAX_VALUE - 26) / 26) {
+                throw new IllegalArgumentException("Invalid column name: " + columnName);
+            }
+            result = result * 26 + (c - 'A' + 1);
+        }
+        return result - 1;
+    }
+
+    /**
+     * Create a copy of a cell that belongs to another row. The values of the template are shared.
+     */
+    private Cell(final Cell template, final Row row) {
+        this.row = row;
+        this.columnIndex = template.columnIndex;
+        this.content = template.content;
+        this.currency = template.currency;
+        this.timeValue = template.timeValue;
+        this.booleanValue = template.booleanValue;
+        this.value = template.value;
+        this.valueType = template.valueType;
+        this.numberColumnsRepeated = template.numberColumnsRepeated;
+        this.dateValue = template.dateValue;
+    }
+
+    /**
+     * Get the same cell in a repetition of its row.
+     */
+    Cell copyFor(final Row row) {
+        return new Cell(this, row);
+    }
+
+    Row getRow() {
+        return row;
     }
 
     private static String getColumnName(int columnIndex) {
@@ -154,13 +221,31 @@ public class Cell {
      * If you are looking for a language independent value you can use the getValue method.
      */
     public String getContent() {
-        return this.content.toString();
+        return this.content;
+    }
+
+    int getContentLength() {
+        return this.content.length();
+    }
+
+    /**
+     * Copy the content into the given array without creating a string.
+     */
+    void getContentChars(final char[] dest, final int offset) {
+        this.content.getChars(0, this.content.length(), dest, offset);
     }
 
     public int getNumberColumnsRepeated() {
         return this.numberColumnsRepeated;
     }
 
+    /**
+     * A cell is blank if it has neither a value type nor any content.
+     */
+    boolean isBlank() {
+        return Cell.TYPE_UNDEFINED.equals(getValueType()) && getContent().isEmpty();
+    }
+
     /**
      * @see java.lang.Object#toString()
      */
@@ -245,6 +330,77 @@ public class Cell {
         throw new OdsReaderException("Wrong cell type " + valueType + " for time value");
     }
 
+    /**
+     * Return the value of the cell as a <code>double</code>. The value is parsed directly from the
+     * <code>value</code> attribute, which is present for cells with the type float, currency and percentage.
+     *
+     * @throws OdsReaderException if the cell has no value
+     * @throws NumberFormatException if the value is not a number
+     */
+    public double getDouble() {
+        if (StringUtils.isNotEmpty(value)) {
+            return ValueParser.parseDouble(value);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for numeric value");
+    }
+
+    /**
+     * Return the value of the cell as a <code>long</code>. The value is parsed directly from the
+     * <code>value</code> attribute, which is present for cells with the type float, currency and percentage.
+     *
+     * @throws OdsReaderException if the cell has no value
+     * @throws NumberFormatException if the value is not an integral number
+     */
+    public long getLong() {
+        if (StringUtils.isNotEmpty(value)) {
+            return ValueParser.parseLong(value);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for numeric value");
+    }
+
+    /**
+     * Return the date of the cell as the number of days since 1970-01-01 without creating a {@link LocalDate}.
+     * This works only for cells with the type "date". A time component is ignored.
+     *
+     * @throws OdsReaderException is the cell is not a date cell
+     */
+    public long getEpochDay() {
+        if ("date".equals(valueType) && StringUtils.isNotEmpty(dateValue)) {
+            return ValueParser.parseEpochDay(dateValue);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for date value");
+    }
+
+    /**
+     * Return the time of the cell as the number of seconds since midnight without creating a {@link LocalTime}.
+     * This works only for cells with the type "time".
+     *
+     * @throws OdsReaderException is the cell is not a time cell
+     */
+    public int getSecondOfDay() {
+        if ("time".equals(valueType) && StringUtils.isNotEmpty(timeValue)) {
+            return ValueParser.parseSecondOfDay(timeValue);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for time value");
+    }
+
+    /**
+     * Return the boolean value of the cell. This works only for cells with the type "boolean".
+     *
+     * @throws OdsReaderException is the cell is not a boolean cell
+     */
+    public boolean getBooleanPrimitive() {
+        if ("boolean".equals(valueType) && StringUtils.isNotEmpty(booleanValue)) {
+            return ValueParser.parseBoolean(booleanValue);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for boolean value");
+    }
+
     public int getColumnIndex() {
         return columnIndex;
     }
@@ -3,6 +3,13 @@ package de.zedlitz.opendocument;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+/**
+ * Iterates over the cells of a row like {@link Row#nextCell()}, so a projected row only returns the projected
+ * columns. The repetitions of a repeated cell are returned as one new empty cell per column; iterate over
+ * {@link Row#nextCellRun()} to read a row without allocating anything per column.
+ *
+ * @author jzedlitz
+ */
 public class CellIterator implements Iterator<Cell> {
     private final Row row;
     private Cell next;
@@ -22,7 +29,7 @@ public class CellIterator implements Iterator<Cell> {
         if (next == null) {
             throw new NoSuchElementException("No more cells available.");
         }
-        Cell current = next;
+        final Cell current = next;
         next = row.nextCell();
         return current;
     }
@@ -0,0 +1,65 @@
+package de.zedlitz.opendocument;
+
+
+/**
+ * A run of neighbouring cells in a row. ODS files store such a run as a single <code>table:table-cell</code>
+ * element with a <code>table:number-columns-repeated</code> attribute. Only the cell in the first column of the
+ * run is materialized, the other columns are represented by the start column and the length of the run.
+ *
+ * @author jzedlitz
+ */
+public class CellRun {
+    private final Cell cell;
+    private final int startColumn;
+    private final int length;
+
+    CellRun(final Cell cell, final int startColumn, final int length) {
+        this.cell = cell;
+        this.startColumn = startColumn;
+        this.length = length;
+    }
+
+    /**
+     * @return the cell in the first column of the run
+     */
+    public Cell getCell() {
+        return cell;
+    }
+
+    /**
+     * @return the 0-based index of the first column of the run
+     */
+    public int getStartColumn() {
+        return startColumn;
+    }
+
+    /**
+     * @return the number of columns covered by the run, at least 1
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the 0-based index of the first column after the run
+     */
+    public int getEndColumn() {
+        return startColumn + length;
+    }
+
+    public boolean contains(final int column) {
+        return column >= startColumn && column < getEndColumn();
+    }
+
+    /**
+     * Does the run consist of cells without a value type and without content?
+     */
+    public boolean isEmpty() {
+        return cell.isBlank();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%d+%d %s]", startColumn, length, cell);
+    }
+}
@@ -0,0 +1,379 @@
+package de.zedlitz.opendocument;
+
+import org.apache.commons.lang.math.NumberUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Scans the raw bytes of <code>content.xml</code> for the boundaries of tables and rows. It only looks at tag
+ * names and a few attributes and does not create any XML events, so it is much faster than a full parse.
+ * <p>
+ * The scanner relies on the namespace prefixes declared at the root element, which is how every office
+ * application writes ODS files.
+ *
+ * @author jzedlitz
+ */
+class ContentScanner {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long bufferOffset;
+
+    private byte[] name = new byte[64];
+    private int nameLength;
+    private byte[] tag = new byte[256];
+    private int tagLength;
+
+    ContentScanner(final InputStream in) {
+        this.in = in;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            bufferOffset += limit;
+            pos = 0;
+            limit = Math.max(0, in.read(buffer));
+            if (limit == 0) {
+                return -1;
+            }
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    private int readRequired() throws IOException {
+        final int c = read();
+        if (c < 0) {
+            throw new EOFException("Unexpected end of content");
+        }
+        return c;
+    }
+
+    /**
+     * @return the offset of the next byte
+     */
+    private long position() {
+        return bufferOffset + pos;
+    }
+
+    private static boolean isWhitespace(final int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private void readName(final int first) throws IOException {
+        nameLength = 0;
+        int c = first;
+        while (!isWhitespace(c) && c != '/' && c != '>') {
+            if (nameLength == name.length) {
+                name = Arrays.copyOf(name, nameLength * 2);
+            }
+            name[nameLength++] = (byte) c;
+            c = readRequired();
+        }
+        // let the caller see the delimiter again
+        pos--;
+    }
+
+    private boolean nameEquals(final byte[] qualifiedName) {
+        if (qualifiedName == null || qualifiedName.length != nameLength) {
+            return false;
+        }
+        for (int i = 0; i < nameLength; i++) {
+            if (name[i] != qualifiedName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the rest of a start tag up to the closing <code>&gt;</code>.
+     *
+     * @param capture keep the bytes in front of the <code>&gt;</code>
+     * @return <code>true</code> if the element is empty, i.e. the tag ends with <code>/&gt;</code>
+     */
+    private boolean readAttributes(final boolean capture) throws IOException {
+        tagLength = 0;
+        int quote = 0;
+        int last = 0;
+        while (true) {
+            final int c = readRequired();
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return last == '/';
+            }
+            last = c;
+            if (capture) {
+                if (tagLength == tag.length) {
+                    tag = Arrays.copyOf(tag, tagLength * 2);
+                }
+                tag[tagLength++] = (byte) c;
+            }
+        }
+    }
+
+    private void skipUntil(final int a, final int b, final int c) throws IOException {
+        int previous2 = -1;
+        int previous1 = -1;
+        while (true) {
+            final int current = readRequired();
+            if ((a < 0 || previous2 == a) && previous1 == b && current == c) {
+                return;
+            }
+            previous2 = previous1;
+            previous1 = current;
+        }
+    }
+
+    /**
+     * @return the complete start tag that has just been read
+     */
+    private byte[] startTag() {
+        final byte[] result = new byte[nameLength + tagLength + 2];
+        result[0] = '<';
+        System.arraycopy(name, 0, result, 1, nameLength);
+        System.arraycopy(tag, 0, result, 1 + nameLength, tagLength);
+        result[result.length - 1] = '>';
+        return result;
+    }
+
+    /**
+     * Get the value of an attribute of the start tag that has just been read.
+     */
+    private String attribute(final byte[] attributeName) {
+        int i = 0;
+        while (i < tagLength) {
+            while (i < tagLength && (isWhitespace(tag[i]) || tag[i] == '/')) {
+                i++;
+            }
+            final int nameStart = i;
+            while (i < tagLength && tag[i] != '=' && !isWhitespace(tag[i])) {
+                i++;
+            }
+            final int nameEnd = i;
+            while (i < tagLength && tag[i] != '"' && tag[i] != '\'') {
+                i++;
+            }
+            if (i >= tagLength) {
+                return null;
+            }
+            final byte quote = tag[i++];
+            final int valueStart = i;
+            while (i < tagLength && tag[i] != quote) {
+                i++;
+            }
+            if (regionEquals(nameStart, nameEnd, attributeName)) {
+                return unescape(new String(tag, valueStart, i - valueStart, StandardCharsets.UTF_8));
+            }
+            i++;
+        }
+        return null;
+    }
+
+    private boolean regionEquals(final int start, final int end, final byte[] bytes) {
+        if (end - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (tag[start + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replace the predefined entities and character references of XML.
+     */
+    static String unescape(final String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        final StringBuilder result = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            final char c = value.charAt(i);
+            final int end = c == '&' ? value.indexOf(';', i) : -1;
+            if (end < 0) {
+                result.append(c);
+                i++;
+                continue;
+            }
+            final String entity = value.substring(i + 1, end);
+            if ("amp".equals(entity)) {
+                result.append('&');
+            } else if ("lt".equals(entity)) {
+                result.append('<');
+            } else if ("gt".equals(entity)) {
+                result.append('>');
+            } else if ("quot".equals(entity)) {
+                result.append('"');
+            } else if ("apos".equals(entity)) {
+                result.append('\'');
+            } else if (entity.startsWith("#x")) {
+                result.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+            } else if (entity.startsWith("#")) {
+                result.appendCodePoint(Integer.parseInt(entity.substring(1)));
+            } else {
+                result.append(value, i, end + 1);
+            }
+            i = end + 1;
+        }
+        return result.toString();
+    }
+
+    /**
+     * Find the namespace prefix of the table namespace among the attributes of the root element.
+     */
+    private String tablePrefix() {
+        final String root = new String(tag, 0, tagLength, StandardCharsets.UTF_8);
+        int i = root.indexOf("xmlns");
+        while (i >= 0) {
+            final int equals = root.indexOf('=', i);
+            if (equals < 0) {
+                break;
+            }
+            final String attribute = root.substring(i, equals).trim();
+            int valueStart = equals + 1;
+            while (valueStart < root.length() && isWhitespace(root.charAt(valueStart))) {
+                valueStart++;
+            }
+            if (valueStart >= root.length()) {
+                break;
+            }
+            final int valueEnd = root.indexOf(root.charAt(valueStart), valueStart + 1);
+            if (valueEnd < 0) {
+                break;
+            }
+            if (Document.NS_TABLE.equals(root.substring(valueStart + 1, valueEnd))) {
+                return attribute.equals("xmlns") ? "" : attribute.substring("xmlns:".length()) + ":";
+            }
+            i = root.indexOf("xmlns", valueEnd);
+        }
+        throw new OdsReaderException("The table namespace is not declared at the root element");
+    }
+
+    /**
+     * Scan the whole content.
+     *
+     * @param rowInterval record the offset of every n-th row
+     */
+    DocumentIndex scan(final long crc, final long size, final int rowInterval) throws IOException {
+        byte[] header = null;
+        byte[] trailer = new byte[0];
+        byte[] tableName = null;
+        byte[] rowName = null;
+        byte[] nameAttribute = null;
+        byte[] repeatedAttribute = null;
+        final List<DocumentIndex.Entry> entries = new ArrayList<>();
+
+        int depth = 0;
+        int tableDepth = -1;
+        String currentName = null;
+        long currentStart = 0;
+        byte[] currentStartTag = null;
+        long[] rowOffsets = new long[16];
+        int[] rowNumbers = new int[16];
+        int checkpoints = 0;
+        int rowNumber = 1;
+        int nextCheckpoint = 1;
+
+        int c;
+        while ((c = read()) >= 0) {
+            if (c != '<') {
+                continue;
+            }
+            final long tagStart = position() - 1;
+            c = readRequired();
+
+            if (c == '/') {
+                readName(readRequired());
+                while (readRequired() != '>') {
+                    // skip to end of tag
+                }
+                depth--;
+                if (tableDepth >= 0 && depth == tableDepth && nameEquals(tableName)) {
+                    entries.add(new DocumentIndex.Entry(currentName, currentStart, position(), currentStartTag,
+                            Arrays.copyOf(rowOffsets, checkpoints), Arrays.copyOf(rowNumbers, checkpoints)));
+                    tableDepth = -1;
+                }
+            } else if (c == '?') {
+                skipUntil(-1, '?', '>');
+            } else if (c == '!') {
+                c = readRequired();
+                if (c == '-') {
+                    skipUntil('-', '-', '>');
+                } else if (c == '[') {
+                    skipUntil(']', ']', '>');
+                } else {
+                    throw new OdsReaderException("Document type declarations are not supported");
+                }
+            } else {
+                readName(c);
+                final boolean isTable = nameEquals(tableName);
+                final boolean isRow = tableDepth >= 0 && nameEquals(rowName);
+                final boolean empty = readAttributes(header == null || isTable || isRow);
+
+                if (header == null) {
+                    header = startTag();
+                    trailer = ("</" + new String(name, 0, nameLength, StandardCharsets.UTF_8) + ">")
+                            .getBytes(StandardCharsets.UTF_8);
+                    final String prefix = tablePrefix();
+                    tableName = (prefix + "table").getBytes(StandardCharsets.UTF_8);
+                    rowName = (prefix + "table-row").getBytes(StandardCharsets.UTF_8);
+                    nameAttribute = (prefix + "name").getBytes(StandardCharsets.UTF_8);
+                    repeatedAttribute = (prefix + "number-rows-repeated").getBytes(StandardCharsets.UTF_8);
+                } else if (isTable && tableDepth < 0) {
+                    currentName = attribute(nameAttribute);
+                    currentStart = tagStart;
+                    currentStartTag = startTag();
+                    checkpoints = 0;
+                    rowNumber = 1;
+                    nextCheckpoint = 1;
+                    if (empty) {
+                        entries.add(new DocumentIndex.Entry(currentName, currentStart, position(), currentStartTag,
+                                new long[0], new int[0]));
+                    } else {
+                        tableDepth = depth;
+                    }
+                } else if (isRow) {
+                    // only rows that are direct children of the table can be used as a starting point
+                    if (depth == tableDepth + 1 && rowNumber >= nextCheckpoint) {
+                        if (checkpoints == rowOffsets.length) {
+                            rowOffsets = Arrays.copyOf(rowOffsets, checkpoints * 2);
+                            rowNumbers = Arrays.copyOf(rowNumbers, checkpoints * 2);
+                        }
+                        rowOffsets[checkpoints] = tagStart;
+                        rowNumbers[checkpoints] = rowNumber;
+                        checkpoints++;
+                        nextCheckpoint = rowNumber + rowInterval;
+                    }
+                    rowNumber += Math.max(1, NumberUtils.toInt(attribute(repeatedAttribute)));
+                }
+
+                if (!empty) {
+                    depth++;
+                }
+            }
+        }
+
+        if (header == null) {
+            throw new OdsReaderException("The content is empty");
+        }
+        return new DocumentIndex(crc, size, rowInterval, header, trailer, entries);
+    }
+}
@@ -0,0 +1,43 @@
+package de.zedlitz.opendocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * The <code>content.xml</code> entry of a document that can be read more than once.
+ *
+ * @author jzedlitz
+ */
+interface ContentSource extends Closeable {
+
+    /**
+     * Open a new stream over the uncompressed content.
+     */
+    InputStream open() throws IOException;
+
+    /**
+     * @return the uncompressed size of the content or -1 if not known
+     */
+    long getSize();
+
+    /**
+     * @return the compressed size of the content or -1 if not known
+     */
+    default long getCompressedSize() {
+        return -1;
+    }
+
+    /**
+     * @return the CRC-32 checksum of the uncompressed content or -1 if not known
+     */
+    long getCrc();
+
+    /**
+     * Release the file the content is read from.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
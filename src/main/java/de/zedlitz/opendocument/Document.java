@@ -1,26 +1,41 @@
 package de.zedlitz.opendocument;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 
 /**
- * An OpenDocument spreadsheet document.
+ * An OpenDocument spreadsheet document. A document that has been opened from a file keeps the file open until
+ * it is closed.
  *
  * @author jzedlitz
  */
-public class Document {
+public class Document implements AutoCloseable {
     /**
      * Namespace urn:oasis:names:tc:opendocument:xmlns:table:1.0
      */
@@ -32,30 +47,152 @@ public class Document {
     static String NS_OFFICE = "urn:oasis:names:tc:opendocument:xmlns:office:1.0";
 
     private final XMLStreamReader xpp;
+    private final DocumentReaderConfig config;
+    private final InputStream content;
+    private final Closeable resource;
+    private final StringDictionary dictionary;
+    private final ReaderMetrics metrics;
+    private ContentSource source;
+    private DocumentIndex index;
+    private final Set<Closeable> resources = new LinkedHashSet<>();
+    private boolean closed;
 
     public Document(final String filename)
             throws XMLStreamException, IOException {
-        this(new ZipFile(filename));
+        this(Paths.get(filename));
     }
 
     public Document(final File file) throws XMLStreamException, IOException {
-        this(new ZipFile(file));
+        this(file.toPath());
     }
 
+    /**
+     * Open a document from a file. The file is mapped into memory if possible.
+     */
     public Document(final Path path) throws XMLStreamException, IOException {
-        this(new ZipFile(path.toFile()));
+        this(path, DocumentReaderConfig.getDefault());
     }
 
+    /**
+     * Open a document from a file with the given settings.
+     */
+    public Document(final Path path, final DocumentReaderConfig config) throws XMLStreamException, IOException {
+        this(openContent(path), config, String.valueOf(path.getFileName()));
+    }
+
+    /**
+     * Open a document from a zip file. The zip file is closed together with the document.
+     */
     public Document(final ZipFile file) throws XMLStreamException, IOException {
-        final XMLInputFactory factory = XMLInputFactory.newInstance();
-        final ZipEntry content = file.getEntry("content.xml");
-        this.xpp = factory.createXMLStreamReader(file.getInputStream(content));
+        this(openContent(file), DocumentReaderConfig.getDefault(), file.getName());
+    }
+
+    private Document(final ContentSource source, final DocumentReaderConfig config, final String name)
+            throws XMLStreamException, IOException {
+        this.config = config;
+        this.dictionary = config.createDictionary();
+        this.source = source;
+        this.resource = source;
+        try {
+            this.metrics = activeMetrics(config, name);
+            this.content = metrics != null
+                    ? MeteredInputStream.inflating(source.open(), metrics, source) : source.open();
+            this.xpp = config.createReader(content, metrics);
+        } catch (final Exception e) {
+            // the caller never gets the document to close it
+            close(source, e);
+            throw e;
+        }
+        if (metrics != null) {
+            metrics.documentOpened();
+        }
+    }
+
+    /**
+     * @return the metrics of the document or <code>null</code> if nothing is measured
+     */
+    private static ReaderMetrics activeMetrics(final DocumentReaderConfig config, final String name) {
+        return config.getMetrics() == ReaderMetrics.NOOP ? null : active(config.getMetrics().forDocument(name));
+    }
+
+    /**
+     * @return the metrics or <code>null</code> if they do not measure anything, e.g. because a scope is not
+     * recorded
+     */
+    static ReaderMetrics active(final ReaderMetrics metrics) {
+        return metrics == ReaderMetrics.NOOP ? null : metrics;
+    }
+
+    private static ContentSource openContent(final Path path) throws IOException {
+        final MappedZipFile mapped = MappedZipFile.open(path);
+        if (mapped != null) {
+            final ContentSource entry = mapped.getEntry("content.xml");
+            if (entry != null) {
+                return entry;
+            }
+            mapped.close();
+        }
+
+        return openContent(new ZipFile(path.toFile()));
+    }
+
+    /**
+     * @return the content of the zip file, the file is closed if it has none
+     */
+    private static ContentSource openContent(final ZipFile file) throws IOException {
+        final ZipEntry entry = file.getEntry("content.xml");
+        if (entry == null) {
+            file.close();
+            throw new OdsReaderException("No content.xml in " + file.getName());
+        }
+        return new ZipContentSource(file, entry);
     }
 
     public Document(final InputStream inputStream)
             throws XMLStreamException, IOException {
-        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        this(inputStream, DocumentReaderConfig.getDefault());
+    }
+
+    /**
+     * Read a document with two threads: the content is inflated on a thread of its own while it is parsed on
+     * the calling thread. This pays off when the stream is slow, e.g. when it is downloaded.
+     *
+     * @param chunkSize the number of bytes that are handed over to the parser at once
+     * @param capacity  the number of chunks that may be inflated ahead of the parser before inflating pauses
+     * @see DocumentReaderConfig#withPipeline(int, int)
+     */
+    public Document(final InputStream inputStream, final int chunkSize, final int capacity)
+            throws XMLStreamException, IOException {
+        this(inputStream, DocumentReaderConfig.getDefault().withPipeline(chunkSize, capacity));
+    }
 
+    /**
+     * Read a document from a stream with the given settings.
+     */
+    public Document(final InputStream inputStream, final DocumentReaderConfig config)
+            throws XMLStreamException, IOException {
+        this.config = config;
+        this.dictionary = config.createDictionary();
+        this.metrics = activeMetrics(config, null);
+        final InputStream inflated = metrics != null
+                ? MeteredInputStream.inflating(openContent(MeteredInputStream.compressed(inputStream, metrics)),
+                metrics, null)
+                : openContent(inputStream);
+        this.content = config.isPipelined()
+                ? new PipelinedInputStream(inflated, config.getPipelineChunkSize(), config.getPipelineCapacity())
+                : inflated;
+        this.xpp = config.createReader(content, metrics);
+        this.resource = null;
+        this.source = null;
+        if (metrics != null) {
+            metrics.documentOpened();
+        }
+    }
+
+    /**
+     * Move a zip stream to the <code>content.xml</code> entry.
+     */
+    private static ZipInputStream openContent(final InputStream inputStream) throws IOException {
         final ZipInputStream zipInputStream = new ZipInputStream(inputStream);
 
         ZipEntry content = null;
@@ -69,14 +206,117 @@ public class Document {
             }
         }
 
-        this.xpp = factory.createXMLStreamReader(zipInputStream);
+        return zipInputStream;
     }
 
     public Document(final XMLStreamReader parser) {
         this.xpp = parser;
+        this.config = DocumentReaderConfig.getDefault();
+        this.dictionary = null;
+        this.metrics = null;
+        this.content = null;
+        this.resource = null;
+        this.source = null;
+    }
+
+    /**
+     * Close the resource together with the document unless it has been unregistered before, e.g. the store of a
+     * table or the parser of a part of an indexed document.
+     *
+     * @see Table#store(long, Path)
+     */
+    synchronized void register(final Closeable resource) {
+        resources.add(resource);
+    }
+
+    /**
+     * The resource has been closed by its owner.
+     */
+    synchronized void unregister(final Closeable resource) {
+        resources.remove(resource);
+    }
+
+    /**
+     * @return the number of stores and parsers that are closed together with the document
+     */
+    synchronized int getResourceCount() {
+        return resources.size();
+    }
+
+    /**
+     * Close the parser and the file of the document. Tables that are still being read can no longer be used
+     * afterwards. The temporary files of the stores that have been created from its tables are deleted and the
+     * parsers of its indexed tables are closed. All of them are closed even if some fail, the first failure is
+     * thrown with the others as suppressed exceptions.
+     */
+    @Override
+    public void close() throws IOException {
+        Exception failure = null;
+        synchronized (this) {
+            for (Closeable it : resources) {
+                failure = close(it, failure);
+            }
+            resources.clear();
+            if (metrics != null && !closed) {
+                metrics.documentClosed();
+            }
+            closed = true;
+        }
+        try {
+            xpp.close();
+        } catch (final XMLStreamException e) {
+            e.printStackTrace();
+        }
+        failure = close(content, failure);
+        failure = close(resource, failure);
+
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    /**
+     * @param failure the first failure so far or <code>null</code>
+     * @return the first failure
+     */
+    private static Exception close(final Closeable closeable, final Exception failure) {
+        if (closeable == null) {
+            return failure;
+        }
+        try {
+            closeable.close();
+        } catch (final IOException | RuntimeException e) {
+            if (failure == null) {
+                return e;
+            }
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    /**
+     * @return the dictionary that shares the texts of the cells of the document or <code>null</code> if it has
+     * been read without one
+     * @see DocumentReaderConfig#withStringDictionary(int)
+     */
+    public StringDictionary getStringDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return the metrics the tables and rows of the document report to or <code>null</code> if nothing is
+     * measured
+     * @see DocumentReaderConfig#withMetrics(ReaderMetrics)
+     */
+    ReaderMetrics getMetrics() {
+        return metrics;
     }
 
     public final Table nextTable() {
+        final long start = metrics != null ? System.nanoTime() : 0;
         Table result = null;
 
         try {
@@ -89,7 +329,7 @@ public class Document {
             while ((eventType != XMLStreamConstants.END_DOCUMENT)) {
                 if ((eventType == XMLStreamConstants.START_ELEMENT) &&
                         Table.ELEMENT_TABLE.equals(xpp.getName())) {
-                    result = new Table(xpp);
+                    result = new Table(xpp, this, null);
                     xpp.next();
 
                     break;
@@ -101,9 +341,58 @@ public class Document {
             e.printStackTrace();
         }
 
+        if (metrics != null) {
+            metrics.timeSpent(ReaderMetrics.Phase.PARSE, System.nanoTime() - start);
+            if (result != null) {
+                metrics.tableRead();
+            }
+        }
         return result;
     }
 
+    /**
+     * Move the parser to the start tag of the next table.
+     *
+     * @return <code>false</code> if there is no more table
+     */
+    private boolean moveToTable() throws XMLStreamException {
+        int eventType = xpp.getEventType();
+        while (eventType != XMLStreamConstants.END_DOCUMENT) {
+            if (eventType == XMLStreamConstants.START_ELEMENT && Table.ELEMENT_TABLE.equals(xpp.getName())) {
+                return true;
+            }
+            eventType = xpp.next();
+        }
+        return false;
+    }
+
+    /**
+     * Skip the next table. Its elements are only counted, no rows or cells are created and no attributes are
+     * read, so skipping a table is much cheaper than reading it.
+     *
+     * @return <code>false</code> if there is no more table
+     */
+    public boolean skipTable() {
+        try {
+            if (moveToTable()) {
+                Table.skipElement(xpp);
+                return true;
+            }
+        } catch (final XMLStreamException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Returns a cursor that moves through the remaining tables of the document without creating an object
+     * per table, row or cell. The cursor and the {@link #nextTable()} methods share the same parser, so they
+     * must not be mixed.
+     */
+    public SheetCursor cursor() {
+        return new SheetCursor(xpp);
+    }
+
     public void eachTable(final Consumer<Table> c) {
         Table nextTable = this.nextTable();
 
@@ -113,19 +402,262 @@ public class Document {
         }
     }
 
+    /**
+     * Read the tables in parallel. Each table is read by its own parser on a worker thread, so the consumer
+     * must be thread-safe. A small content is copied onto the heap as described at {@link #parallelStream()}.
+     *
+     * @param parallelism the maximum number of tables that are read at the same time
+     * @see #parallelStream()
+     */
+    public void eachTable(final Consumer<Table> c, final int parallelism) {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> parallelStream().forEach(c)).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OdsReaderException("Interrupted while reading the tables", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new OdsReaderException("Cannot read the tables", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the remaining tables of the document. If the document has been indexed the stream contains all
+     * tables and each of them is read by a parser of its own.
+     */
+    public Stream<Table> openStream() {
+        if (index != null) {
+            return IntStream.range(0, index.getTableCount()).mapToObj(i -> openTable(index.getEntry(i)));
+        }
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new TableIterator(this), 0), false);
+    }
+
+    /**
+     * Returns a parallel stream of all tables of the document. The document is indexed if necessary and each table
+     * is read by a parser of its own. Documents that have not been opened from a file are read sequentially.
+     * <p>
+     * If the inflated content is not larger than {@link DocumentReaderConfig#getInMemoryLimit()} it is copied onto
+     * the heap, so that the tables do not inflate the content in front of them again. This takes as many bytes as
+     * the inflated <code>content.xml</code> has, until the document is closed. A larger content is read from the
+     * file again for each table.
+     *
+     * @see #eachTable(Consumer, int)
+     * @see #keepInMemory()
+     */
+    public Stream<Table> parallelStream() {
+        if (source == null) {
+            return openStream();
+        }
+
+        try {
+            final long size = source.getSize();
+            if (size >= 0 && size <= config.getInMemoryLimit()) {
+                keepInMemory();
+            }
+            if (index == null) {
+                index();
+            }
+        } catch (final IOException e) {
+            throw new OdsReaderException("Cannot index the document", e);
+        }
+        return openStream().parallel();
+    }
+
+    /**
+     * Read the content of the document into memory, unless it is too large for an array. Afterwards the tables of
+     * an indexed document and the parts of its tables can be read concurrently, because opening them no longer
+     * inflates the content in front of them again. The content takes as many bytes on the heap as the inflated
+     * <code>content.xml</code> has, up to 2 GB, until the document is closed.
+     *
+     * @return whether the content is kept in memory
+     * @see Table#openStream()
+     */
+    public boolean keepInMemory() throws IOException {
+        requireSource();
+        if (!(source instanceof ByteArrayContentSource)) {
+            final ByteArrayContentSource content = ByteArrayContentSource.read(source);
+            if (content != null) {
+                this.source = content;
+            }
+        }
+        return isInMemory();
+    }
+
+    /**
+     * Get the table at the given position. If the document has been indexed the table is read directly,
+     * otherwise all tables in front of it are skipped.
+     */
     public Optional<Table> getTable(int i) {
-        int count = 0;
-        Table nextTable = this.nextTable();
-        while (nextTable != null) {
-            if (count == i) {
-                return Optional.of(nextTable);
+        if (index != null) {
+            return i >= 0 && i < index.getTableCount()
+                    ? Optional.of(openTable(index.getEntry(i))) : Optional.empty();
+        }
+
+        if (i < 0) {
+            return Optional.empty();
+        }
+        for (int count = 0; count < i; count++) {
+            if (!skipTable()) {
+                return Optional.empty();
             }
-            count++;
-            nextTable = this.nextTable();
+        }
+        return Optional.ofNullable(nextTable());
+    }
+
+    /**
+     * Get the table with the given name. If the document has been indexed the table is read directly,
+     * otherwise all tables in front of it are skipped.
+     */
+    public Optional<Table> getTable(final String name) {
+        if (index != null) {
+            final int i = index.indexOf(name);
+            return i >= 0 ? Optional.of(openTable(index.getEntry(i))) : Optional.empty();
+        }
+
+        try {
+            while (moveToTable()) {
+                if (name.equals(xpp.getAttributeValue(NS_TABLE, Table.ATTRIBUTE_NAME))) {
+                    return Optional.ofNullable(nextTable());
+                }
+                // only the name of the other tables is read
+                Table.skipElement(xpp);
+            }
+        } catch (final XMLStreamException e) {
+            e.printStackTrace();
         }
         return Optional.empty();
     }
 
+    /**
+     * Build an index of the tables and rows of the document with a single fast scan of the content.
+     * Afterwards {@link #getTable(int)}, {@link #getTable(String)} and {@link Table#seekRow(int)} jump directly
+     * to the requested position. This only works for documents that have been opened from a file.
+     */
+    public DocumentIndex index() throws IOException {
+        return index(DocumentIndex.DEFAULT_ROW_INTERVAL);
+    }
+
+    /**
+     * Build an index that records the offset of every n-th row.
+     *
+     * @see #index()
+     */
+    public DocumentIndex index(final int rowInterval) throws IOException {
+        requireSource();
+        try (InputStream in = source.open()) {
+            this.index = new ContentScanner(in).scan(source.getCrc(), source.getSize(), rowInterval);
+        }
+        return index;
+    }
+
+    /**
+     * Use the index stored in the given file. If the file does not exist or belongs to another content a new
+     * index is built and stored in the file.
+     *
+     * @see #index()
+     */
+    public DocumentIndex index(final Path indexFile) throws IOException {
+        requireSource();
+        if (Files.exists(indexFile)) {
+            try {
+                final DocumentIndex stored = DocumentIndex.read(indexFile);
+                if (stored.matches(source)) {
+                    this.index = stored;
+                    return stored;
+                }
+            } catch (final IOException e) {
+                // a damaged index file is replaced
+            }
+        }
+        index().write(indexFile);
+        return index;
+    }
+
+    /**
+     * @return whether the content has been read into memory, so that parts of it can be opened without inflating
+     * the content in front of them
+     */
+    boolean isInMemory() {
+        return source instanceof ByteArrayContentSource;
+    }
+
+    private void requireSource() {
+        if (source == null) {
+            throw new OdsReaderException("Only documents opened from a file can be indexed");
+        }
+    }
+
+    private Table openTable(final DocumentIndex.Entry entry) {
+        final Table result = new Table(openParser(entry, -1), this, entry);
+        if (metrics != null) {
+            metrics.tableRead();
+        }
+        return result;
+    }
+
+    /**
+     * Create a parser for a part of the content. The part starts at a table or one of the rows recorded in the
+     * index and ends with the table. The start tags of the root element and of the table are put in front of
+     * it, so that the namespaces are declared.
+     *
+     * @param checkpoint the recorded row to start with or -1 to start with the table
+     * @return a parser positioned at the start tag of the table
+     */
+    XMLStreamReader openParser(final DocumentIndex.Entry entry, final int checkpoint) {
+        try {
+            final long offset;
+            final byte[] header;
+            if (checkpoint < 0) {
+                offset = entry.getStartOffset();
+                header = index.getHeader();
+            } else {
+                offset = entry.getRowOffset(checkpoint);
+                header = Arrays.copyOf(index.getHeader(), index.getHeader().length + entry.getStartTag().length);
+                System.arraycopy(entry.getStartTag(), 0, header, index.getHeader().length,
+                        entry.getStartTag().length);
+            }
+
+            final InputStream in = metrics != null
+                    ? MeteredInputStream.inflating(source.open(), metrics, source) : source.open();
+            final XMLStreamReader parser;
+            try {
+                BoundedInputStream.skipFully(in, offset);
+                final InputStream content = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                        new ByteArrayInputStream(header),
+                        new BoundedInputStream(in, entry.getEndOffset() - offset),
+                        new ByteArrayInputStream(index.getTrailer()))));
+                parser = new PartParser(config.createReader(content, metrics), in);
+            } catch (final IOException | XMLStreamException | RuntimeException e) {
+                in.close();
+                throw e;
+            }
+            try {
+                int eventType = parser.getEventType();
+                while (eventType != XMLStreamConstants.END_DOCUMENT) {
+                    if (eventType == XMLStreamConstants.START_ELEMENT
+                            && Table.ELEMENT_TABLE.equals(parser.getName())) {
+                        return parser;
+                    }
+                    eventType = parser.next();
+                }
+            } catch (final XMLStreamException | RuntimeException e) {
+                parser.close();
+                throw e;
+            }
+            parser.close();
+        } catch (final IOException | XMLStreamException e) {
+            throw new OdsReaderException("Cannot read table " + entry.getName(), e);
+        }
+
+        throw new OdsReaderException("The index does not match the document");
+    }
+
     public Optional<Sheet> getSheet(int i) {
         return getTable(i).map(it -> it);
     }
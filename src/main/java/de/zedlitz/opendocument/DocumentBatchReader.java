@@ -0,0 +1,244 @@
+package de.zedlitz.opendocument;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Reads many documents concurrently, e.g. all files of a directory. Each document is opened, handed to the handler
+ * and closed again, so its file is released as soon as the handler returns. At most the given number of documents
+ * are open at the same time.
+ * <p>
+ * On Java 21 and later each document is read on a virtual thread of its own, otherwise on a fixed pool of threads.
+ * All documents share the configuration and with it the XML parser factory. A document that cannot be read or
+ * whose handler fails does not stop the others, the failures are returned with the result.
+ *
+ * <pre>
+ * DocumentBatchReader.Result result = new DocumentBatchReader(config, 16).read(directory, (path, doc) -&gt; {
+ *     ...
+ * });
+ * </pre>
+ *
+ * @author jzedlitz
+ */
+public final class DocumentBatchReader {
+    /**
+     * How long an interrupted batch waits for the documents that are being read to be closed.
+     */
+    private static final long SHUTDOWN_SECONDS = 10;
+
+    /**
+     * Processes one document. It is called concurrently for different documents, so it must be thread-safe.
+     */
+    public interface Handler {
+        /**
+         * @param path     the file of the document
+         * @param document the open document, it is closed when the method returns
+         */
+        void handle(Path path, Document document) throws Exception;
+    }
+
+    /**
+     * The outcome of reading a batch of documents.
+     */
+    public static final class Result {
+        private final long documentCount;
+        private final long bytes;
+        private final long elapsedNanos;
+        private final Map<Path, Throwable> failures;
+
+        private Result(final long documentCount, final long bytes, final long elapsedNanos,
+                       final Map<Path, Throwable> failures) {
+            this.documentCount = documentCount;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = failures;
+        }
+
+        /**
+         * @return the number of documents that have been read without a failure
+         */
+        public long getDocumentCount() {
+            return documentCount;
+        }
+
+        /**
+         * @return the size of the files of the documents that have been read without a failure
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the time it took to read all documents
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return the number of documents that have been read per second
+         */
+        public double getDocumentsPerSecond() {
+            return elapsedNanos > 0 ? documentCount * 1e9 / elapsedNanos : 0;
+        }
+
+        /**
+         * @return the documents that could not be read or whose handler failed, in the order they have been given
+         */
+        public Map<Path, Throwable> getFailures() {
+            return failures;
+        }
+    }
+
+    private final DocumentReaderConfig config;
+    private final int concurrency;
+
+    /**
+     * Read as many documents at the same time as there are processors.
+     */
+    public DocumentBatchReader() {
+        this(DocumentReaderConfig.getDefault(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param config      the settings that are used to read all documents
+     * @param concurrency the maximum number of documents that are read at the same time
+     */
+    public DocumentBatchReader(final DocumentReaderConfig config, final int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        }
+        this.config = config;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Read all files of the directory whose name ends with <code>.ods</code>. Subdirectories are not read.
+     */
+    public Result read(final Path directory, final Handler handler) throws IOException {
+        final List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(Files::isRegularFile)
+                    .filter(it -> it.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".ods"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        return read(paths, handler);
+    }
+
+    /**
+     * Read the given files. The method returns when all documents have been read and closed.
+     *
+     * @throws OdsReaderException if the calling thread is interrupted, the documents that are being read are
+     *                            interrupted as well and the method waits up to 10 seconds until they have been
+     *                            closed
+     */
+    public Result read(final List<Path> paths, final Handler handler) {
+        final long start = System.nanoTime();
+        final Semaphore permits = new Semaphore(concurrency);
+        final LongAdder documents = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final Map<Path, Throwable> failed = new ConcurrentHashMap<>();
+        final ExecutorService executor = newExecutor(concurrency);
+        try {
+            for (Path path : paths) {
+                permits.acquire();
+                executor.execute(() -> {
+                    try {
+                        // the handler may move or delete the file
+                        final long size = Files.size(path);
+                        try (Document document = new Document(path, config)) {
+                            handler.handle(path, document);
+                        }
+                        documents.increment();
+                        bytes.add(size);
+                    } catch (final Throwable e) {
+                        failed.put(path, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            // all documents have been closed when all permits are back
+            permits.acquire(concurrency);
+        } catch (final InterruptedException e) {
+            executor.shutdownNow();
+            try {
+                // the documents are closed when their threads have been interrupted
+                executor.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+            } catch (final InterruptedException again) {
+                e.addSuppressed(again);
+            }
+            Thread.currentThread().interrupt();
+            throw new OdsReaderException("Interrupted while reading the documents", e);
+        } finally {
+            executor.shutdown();
+        }
+
+        final Map<Path, Throwable> failures = new LinkedHashMap<>();
+        for (Path path : paths) {
+            final Throwable failure = failed.get(path);
+            if (failure != null) {
+                failures.put(path, failure);
+            }
+        }
+        return new Result(documents.sum(), bytes.sum(), System.nanoTime() - start,
+                Collections.unmodifiableMap(failures));
+    }
+
+    /**
+     * @return whether the documents are read on virtual threads
+     */
+    public static boolean usesVirtualThreads() {
+        return VirtualThreads.FACTORY != null;
+    }
+
+    private static ExecutorService newExecutor(final int concurrency) {
+        if (VirtualThreads.FACTORY != null) {
+            // the number of threads is limited by the permits
+            return Executors.newCachedThreadPool(VirtualThreads.FACTORY);
+        }
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(concurrency, task -> {
+            final Thread thread = new Thread(task, "ods-reader-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Looks up the factory of virtual threads, which are available since Java 21.
+     */
+    private static final class VirtualThreads {
+        static final ThreadFactory FACTORY = lookup();
+
+        private static ThreadFactory lookup() {
+            try {
+                final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                builderClass.getMethod("name", String.class, long.class).invoke(builder, "ods-reader-batch-", 1L);
+                return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            } catch (final ReflectiveOperationException e) {
+                // Java 20 and earlier
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package de.zedlitz.opendocument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The byte offsets of the tables of a document and of every n-th row of each table. With an index a table or a
+ * row can be read without parsing the content in front of it.
+ * <p>
+ * The index is bound to the content it was built for by the CRC-32 checksum and the size of the
+ * <code>content.xml</code> entry. It can be stored next to the document and reused as long as the content does
+ * not change.
+ *
+ * @author jzedlitz
+ * @see Document#index()
+ */
+public class DocumentIndex {
+    /**
+     * A row offset is recorded for every 1000th row.
+     */
+    public static final int DEFAULT_ROW_INTERVAL = 1000;
+
+    private static final int MAGIC = 0x4F445349;
+    private static final int VERSION = 1;
+
+    private final long crc;
+    private final long size;
+    private final int rowInterval;
+    private final byte[] header;
+    private final byte[] trailer;
+    private final List<Entry> entries;
+
+    DocumentIndex(final long crc, final long size, final int rowInterval, final byte[] header,
+                  final byte[] trailer, final List<Entry> entries) {
+        this.crc = crc;
+        this.size = size;
+        this.rowInterval = rowInterval;
+        this.header = header;
+        this.trailer = trailer;
+        this.entries = entries;
+    }
+
+    /**
+     * Read an index that has been stored with {@link #write(Path)}.
+     *
+     * @throws IOException if the file cannot be read or is not an index file
+     */
+    public static DocumentIndex read(final Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an index file: " + path);
+            }
+            final long crc = in.readLong();
+            final long size = in.readLong();
+            final int rowInterval = in.readInt();
+            final byte[] header = readBytes(in);
+            final byte[] trailer = readBytes(in);
+            final int count = in.readInt();
+            final List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final String name = in.readBoolean() ? in.readUTF() : null;
+                final long startOffset = in.readLong();
+                final long endOffset = in.readLong();
+                final byte[] startTag = readBytes(in);
+                final int checkpoints = in.readInt();
+                final long[] rowOffsets = new long[checkpoints];
+                final int[] rowNumbers = new int[checkpoints];
+                for (int j = 0; j < checkpoints; j++) {
+                    rowOffsets[j] = in.readLong();
+                    rowNumbers[j] = in.readInt();
+                }
+                entries.add(new Entry(name, startOffset, endOffset, startTag, rowOffsets, rowNumbers));
+            }
+            return new DocumentIndex(crc, size, rowInterval, header, trailer, entries);
+        }
+    }
+
+    private static byte[] readBytes(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(final DataOutputStream out, final byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Store the index in a file.
+     */
+    public void write(final Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(crc);
+            out.writeLong(size);
+            out.writeInt(rowInterval);
+            writeBytes(out, header);
+            writeBytes(out, trailer);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeBoolean(entry.name != null);
+                if (entry.name != null) {
+                    out.writeUTF(entry.name);
+                }
+                out.writeLong(entry.startOffset);
+                out.writeLong(entry.endOffset);
+                writeBytes(out, entry.startTag);
+                out.writeInt(entry.rowOffsets.length);
+                for (int j = 0; j < entry.rowOffsets.length; j++) {
+                    out.writeLong(entry.rowOffsets[j]);
+                    out.writeInt(entry.rowNumbers[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Was this index built for the given content?
+     */
+    boolean matches(final ContentSource source) {
+        return source.getCrc() == crc && source.getSize() == size;
+    }
+
+    public int getTableCount() {
+        return entries.size();
+    }
+
+    public List<String> getTableNames() {
+        final List<String> names = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            names.add(entry.name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @return the position of the table with the given name or -1 if there is no such table
+     */
+    public int indexOf(final String tableName) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).name != null && entries.get(i).name.equals(tableName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getRowInterval() {
+        return rowInterval;
+    }
+
+    Entry getEntry(final int i) {
+        return entries.get(i);
+    }
+
+    /**
+     * The start tag of the root element. It declares the namespaces that are needed to parse a part of the
+     * content.
+     */
+    byte[] getHeader() {
+        return header;
+    }
+
+    /**
+     * The end tag of the root element.
+     */
+    byte[] getTrailer() {
+        return trailer;
+    }
+
+    /**
+     * The position of a <code>table:table</code> element and of some of its rows.
+     */
+    static final class Entry {
+        private final String name;
+        private final long startOffset;
+        private final long endOffset;
+        private final byte[] startTag;
+        private final long[] rowOffsets;
+        private final int[] rowNumbers;
+
+        Entry(final String name, final long startOffset, final long endOffset, final byte[] startTag,
+              final long[] rowOffsets, final int[] rowNumbers) {
+            this.name = name;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.startTag = startTag;
+            this.rowOffsets = rowOffsets;
+            this.rowNumbers = rowNumbers;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return the offset of the <code>&lt;</code> of the start tag
+         */
+        long getStartOffset() {
+            return startOffset;
+        }
+
+        /**
+         * @return the offset behind the <code>&gt;</code> of the end tag
+         */
+        long getEndOffset() {
+            return endOffset;
+        }
+
+        /**
+         * @return the start tag of the table as it appears in the content
+         */
+        byte[] getStartTag() {
+            return startTag;
+        }
+
+        int getCheckpointCount() {
+            return rowOffsets.length;
+        }
+
+        long getRowOffset(final int checkpoint) {
+            return rowOffsets[checkpoint];
+        }
+
+        int getRowNumber(final int checkpoint) {
+            return rowNumbers[checkpoint];
+        }
+
+        /**
+         * @return the last checkpoint at or before the given row or -1 if there is none
+         */
+        int findCheckpoint(final int rowNumber) {
+            int low = 0;
+            int high = rowNumbers.length - 1;
+            int result = -1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (rowNumbers[mid] <= rowNumber) {
+                    result = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package de.zedlitz.opendocument;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+
+/**
+ * The settings that are used to read a document. A configuration holds a configured
+ * {@link XMLInputFactory} that is shared by all documents that are read with it, so the factory is looked up and
+ * set up only once. Configurations are immutable and can be used by several threads.
+ * <p>
+ * The factory does not support DTDs and external entities and does not coalesce text, because none of this is
+ * needed to read the content of an ODS file.
+ *
+ * @author jzedlitz
+ * @see Document#Document(java.nio.file.Path, DocumentReaderConfig)
+ */
+public final class DocumentReaderConfig {
+
+    /**
+     * The StAX implementation that is used to parse the content.
+     */
+    public enum Backend {
+        /**
+         * The implementation found by {@link XMLInputFactory#newInstance()}.
+         */
+        DEFAULT(null),
+        /**
+         * The implementation that is part of the JDK.
+         */
+        JDK("com.sun.xml.internal.stream.XMLInputFactoryImpl"),
+        /**
+         * Woodstox, <code>com.fasterxml.woodstox:woodstox-core</code> has to be on the classpath.
+         */
+        WOODSTOX("com.ctc.wstx.stax.WstxInputFactory"),
+        /**
+         * Aalto, <code>com.fasterxml:aalto-xml</code> has to be on the classpath.
+         */
+        AALTO("com.fasterxml.aalto.stax.InputFactoryImpl"),
+        /**
+         * The reader of this library that works directly on the bytes of the content. Documents that it cannot
+         * read, e.g. because they are not encoded in UTF-8, are read with the implementation of {@link #DEFAULT}.
+         */
+        BUILT_IN(null);
+
+        private final String factoryClassName;
+
+        Backend(final String factoryClassName) {
+            this.factoryClassName = factoryClassName;
+        }
+
+        /**
+         * Is the implementation on the classpath?
+         */
+        public boolean isAvailable() {
+            if (factoryClassName == null || this == JDK) {
+                return true;
+            }
+            try {
+                Class.forName(factoryClassName, false, DocumentReaderConfig.class.getClassLoader());
+                return true;
+            } catch (final ClassNotFoundException e) {
+                return false;
+            }
+        }
+
+        /**
+         * @return the factory that is used, for {@link #BUILT_IN} the factory of the documents it cannot read
+         */
+        private XMLInputFactory createFactory() {
+            if (factoryClassName == null) {
+                return XMLInputFactory.newInstance();
+            }
+            try {
+                if (this == JDK) {
+                    try {
+                        // since Java 9 the class of the JDK is hidden in a module
+                        return (XMLInputFactory) XMLInputFactory.class.getMethod("newDefaultFactory").invoke(null);
+                    } catch (final NoSuchMethodException e) {
+                        // Java 8
+                    }
+                }
+                return (XMLInputFactory) Class.forName(factoryClassName, true,
+                        DocumentReaderConfig.class.getClassLoader()).getDeclaredConstructor().newInstance();
+            } catch (final ReflectiveOperationException | LinkageError e) {
+                throw new OdsReaderException("The XML parser " + name() + " is not available", e);
+            }
+        }
+    }
+
+    /**
+     * The largest content that is copied into memory for reading the tables in parallel: 64 MB.
+     */
+    public static final long DEFAULT_IN_MEMORY_LIMIT = 64L * 1024 * 1024;
+
+    private static final DocumentReaderConfig DEFAULT = new DocumentReaderConfig(Backend.DEFAULT);
+
+    private final Backend backend;
+    private final XMLInputFactory factory;
+    private final int pipelineChunkSize;
+    private final int pipelineCapacity;
+    private final int dictionarySize;
+    private final ReaderMetrics metrics;
+    private final long inMemoryLimit;
+
+    private DocumentReaderConfig(final Backend backend) {
+        this(backend, configure(backend.createFactory()), 0, 0, 0, ReaderMetrics.NOOP, DEFAULT_IN_MEMORY_LIMIT);
+    }
+
+    private DocumentReaderConfig(final Backend backend, final XMLInputFactory factory, final int pipelineChunkSize,
+                                 final int pipelineCapacity, final int dictionarySize, final ReaderMetrics metrics,
+                                 final long inMemoryLimit) {
+        this.backend = backend;
+        this.factory = factory;
+        this.pipelineChunkSize = pipelineChunkSize;
+        this.pipelineCapacity = pipelineCapacity;
+        this.dictionarySize = dictionarySize;
+        this.metrics = metrics;
+        this.inMemoryLimit = inMemoryLimit;
+    }
+
+    /**
+     * @return the configuration that is used if no configuration is given
+     */
+    public static DocumentReaderConfig getDefault() {
+        return DEFAULT;
+    }
+
+    private static XMLInputFactory configure(final XMLInputFactory factory) {
+        setIfSupported(factory, XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        setIfSupported(factory, XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        setIfSupported(factory, XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        setIfSupported(factory, XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+        return factory;
+    }
+
+    private static void setIfSupported(final XMLInputFactory factory, final String name, final Object value) {
+        if (factory.isPropertySupported(name)) {
+            factory.setProperty(name, value);
+        }
+    }
+
+    /**
+     * Use another StAX implementation.
+     *
+     * @throws OdsReaderException if the implementation is not on the classpath
+     */
+    public DocumentReaderConfig withBackend(final Backend newBackend) {
+        return new DocumentReaderConfig(newBackend, configure(newBackend.createFactory()), pipelineChunkSize,
+                pipelineCapacity, dictionarySize, metrics, inMemoryLimit);
+    }
+
+    /**
+     * Use a factory that has been set up by the caller. The factory is used as it is.
+     */
+    public DocumentReaderConfig withFactory(final XMLInputFactory newFactory) {
+        return new DocumentReaderConfig(null, newFactory, pipelineChunkSize, pipelineCapacity, dictionarySize,
+                metrics, inMemoryLimit);
+    }
+
+    /**
+     * Inflate documents that are read from a stream on a thread of their own.
+     *
+     * @param chunkSize the number of bytes that are handed over to the parser at once
+     * @param capacity  the number of chunks that may be inflated ahead of the parser before inflating pauses
+     * @see Document#Document(java.io.InputStream, int, int)
+     */
+    public DocumentReaderConfig withPipeline(final int chunkSize, final int capacity) {
+        if (chunkSize < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Chunk size and capacity must be positive");
+        }
+        return new DocumentReaderConfig(backend, factory, chunkSize, capacity, dictionarySize, metrics,
+                inMemoryLimit);
+    }
+
+    /**
+     * Share the texts of the cells of a document: cells with the same text get the same string. Each document
+     * gets a dictionary of its own that takes at most the given number of texts.
+     *
+     * @param maxSize the maximum number of texts in the dictionary, 0 to use no dictionary
+     * @see StringDictionary
+     * @see Document#getStringDictionary()
+     */
+    public DocumentReaderConfig withStringDictionary(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Negative dictionary size: " + maxSize);
+        }
+        return new DocumentReaderConfig(backend, factory, pipelineChunkSize, pipelineCapacity, maxSize, metrics,
+                inMemoryLimit);
+    }
+
+    /**
+     * Report the measurements of the documents to the given metrics. Without metrics nothing is counted or
+     * measured.
+     *
+     * @param newMetrics the metrics, {@link ReaderMetrics#NOOP} to measure nothing
+     * @see JmxReaderMetrics
+     */
+    public DocumentReaderConfig withMetrics(final ReaderMetrics newMetrics) {
+        if (newMetrics == null) {
+            throw new IllegalArgumentException("The metrics must not be null, use ReaderMetrics.NOOP instead");
+        }
+        return new DocumentReaderConfig(backend, factory, pipelineChunkSize, pipelineCapacity, dictionarySize,
+                newMetrics, inMemoryLimit);
+    }
+
+    /**
+     * Limit the content that {@link Document#parallelStream()} copies into memory. The content of a document takes
+     * as many bytes on the heap as it has when it is inflated. A larger content stays in the file and is inflated
+     * again in front of each table instead.
+     *
+     * @param maxSize the largest inflated content in bytes that is kept in memory, 0 to never keep it in memory
+     * @see #DEFAULT_IN_MEMORY_LIMIT
+     */
+    public DocumentReaderConfig withInMemoryLimit(final long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Negative in-memory limit: " + maxSize);
+        }
+        return new DocumentReaderConfig(backend, factory, pipelineChunkSize, pipelineCapacity, dictionarySize,
+                metrics, maxSize);
+    }
+
+    /**
+     * @return the largest content in bytes that is copied into memory for reading the tables in parallel
+     */
+    public long getInMemoryLimit() {
+        return inMemoryLimit;
+    }
+
+    /**
+     * @return the metrics the documents report to
+     */
+    public ReaderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the StAX implementation or <code>null</code> if a factory has been set
+     */
+    public Backend getBackend() {
+        return backend;
+    }
+
+    XMLInputFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * Create a parser for the given content.
+     *
+     * @param documentMetrics the metrics of the document or <code>null</code> if nothing is measured
+     */
+    XMLStreamReader createReader(final InputStream content, final ReaderMetrics documentMetrics)
+            throws XMLStreamException {
+        final XMLStreamReader result = backend == Backend.BUILT_IN
+                ? OdsContentReader.create(content, factory) : factory.createXMLStreamReader(content);
+        return documentMetrics == null ? result : new MeteredStreamReader(result, documentMetrics);
+    }
+
+    /**
+     * @return a new dictionary for a document or <code>null</code> if no dictionary is used
+     */
+    StringDictionary createDictionary() {
+        return dictionarySize > 0 ? new StringDictionary(dictionarySize) : null;
+    }
+
+    boolean isPipelined() {
+        return pipelineCapacity > 0;
+    }
+
+    int getPipelineChunkSize() {
+        return pipelineChunkSize;
+    }
+
+    int getPipelineCapacity() {
+        return pipelineCapacity;
+    }
+}
@@ -12,6 +12,11 @@ public class EmptyCell extends Cell {
         super(null, row, columnIndex);
     }
 
+    @Override
+    Cell copyFor(final Row row) {
+        return new EmptyCell(row, getColumnIndex());
+    }
+
     public String getContent() {
         return StringUtils.EMPTY;
     }
@@ -0,0 +1,233 @@
+package de.zedlitz.opendocument;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Metrics that add up the measurements of all documents that are read with them and show the totals as an MBean,
+ * so that they can be read by the usual JMX tools and dashboards. Several imports can be told apart by giving each
+ * of them metrics with a name of their own.
+ *
+ * <pre>
+ * try (JmxReaderMetrics metrics = JmxReaderMetrics.register("import")) {
+ *     DocumentReaderConfig config = DocumentReaderConfig.getDefault().withMetrics(metrics);
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author jzedlitz
+ */
+public final class JmxReaderMetrics implements ReaderMetrics, JmxReaderMetricsMBean, AutoCloseable {
+    /**
+     * The domain of the names of the MBeans.
+     */
+    public static final String DOMAIN = "de.zedlitz.opendocument";
+
+    private final ObjectName objectName;
+    private final LongAdder documentsOpened = new LongAdder();
+    private final LongAdder openDocuments = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder xmlEvents = new LongAdder();
+    private final LongAdder tables = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder cells = new LongAdder();
+    private final LongAdder repeatedCells = new LongAdder();
+    private final Map<Phase, LongAdder> nanos = new EnumMap<>(Phase.class);
+
+    private JmxReaderMetrics(final ObjectName objectName) {
+        this.objectName = objectName;
+        for (Phase phase : Phase.values()) {
+            nanos.put(phase, new LongAdder());
+        }
+    }
+
+    /**
+     * Create metrics and register them with the platform MBean server as
+     * <code>de.zedlitz.opendocument:type=ReaderMetrics,name=<i>name</i></code>.
+     *
+     * @throws OdsReaderException if the name is invalid or already in use
+     */
+    public static JmxReaderMetrics register(final String name) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final JmxReaderMetrics result = new JmxReaderMetrics(
+                    new ObjectName(DOMAIN + ":type=ReaderMetrics,name=" + ObjectName.quote(name)));
+            server.registerMBean(result, result.objectName);
+            return result;
+        } catch (final JMException e) {
+            throw new OdsReaderException("Cannot register the metrics " + name, e);
+        }
+    }
+
+    /**
+     * @return the name under which the metrics are registered
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Remove the MBean from the MBean server. The metrics keep counting.
+     */
+    @Override
+    public void close() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (final JMException e) {
+            throw new OdsReaderException("Cannot unregister the metrics " + objectName, e);
+        }
+    }
+
+    @Override
+    public void documentOpened() {
+        documentsOpened.increment();
+        openDocuments.increment();
+    }
+
+    @Override
+    public void documentClosed() {
+        openDocuments.decrement();
+    }
+
+    @Override
+    public void compressedBytesRead(final long bytes) {
+        compressedBytes.add(bytes);
+    }
+
+    @Override
+    public void uncompressedBytesRead(final long bytes) {
+        uncompressedBytes.add(bytes);
+    }
+
+    @Override
+    public void xmlEventsRead(final long events) {
+        xmlEvents.add(events);
+    }
+
+    @Override
+    public void tableRead() {
+        tables.increment();
+    }
+
+    @Override
+    public void rowRead() {
+        rows.increment();
+    }
+
+    @Override
+    public void cellRead(final boolean repeated) {
+        cells.increment();
+        if (repeated) {
+            repeatedCells.increment();
+        }
+    }
+
+    @Override
+    public void timeSpent(final Phase phase, final long nanos) {
+        this.nanos.get(phase).add(nanos);
+    }
+
+    /**
+     * @return the time spent in the phase in nanoseconds
+     */
+    public long getNanos(final Phase phase) {
+        return nanos.get(phase).sum();
+    }
+
+    private long millis(final Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(getNanos(phase));
+    }
+
+    @Override
+    public long getDocumentsOpened() {
+        return documentsOpened.sum();
+    }
+
+    @Override
+    public long getOpenDocuments() {
+        return openDocuments.sum();
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    @Override
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    @Override
+    public long getXmlEvents() {
+        return xmlEvents.sum();
+    }
+
+    @Override
+    public long getTables() {
+        return tables.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public long getCells() {
+        return cells.sum();
+    }
+
+    @Override
+    public long getRepeatedCells() {
+        return repeatedCells.sum();
+    }
+
+    @Override
+    public long getInflateMillis() {
+        return millis(Phase.INFLATE);
+    }
+
+    @Override
+    public long getParseMillis() {
+        return millis(Phase.PARSE);
+    }
+
+    @Override
+    public long getCellsMillis() {
+        return millis(Phase.CELLS);
+    }
+
+    @Override
+    public long getCallbackMillis() {
+        return millis(Phase.CALLBACK);
+    }
+
+    @Override
+    public long getBlockedMillis() {
+        return millis(Phase.BLOCKED);
+    }
+
+    @Override
+    public void reset() {
+        documentsOpened.reset();
+        compressedBytes.reset();
+        uncompressedBytes.reset();
+        xmlEvents.reset();
+        tables.reset();
+        rows.reset();
+        cells.reset();
+        repeatedCells.reset();
+        for (LongAdder adder : nanos.values()) {
+            adder.reset();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package de.zedlitz.opendocument;
+
+/**
+ * The attributes of {@link JmxReaderMetrics} as they are shown by JMX. The times are given in milliseconds.
+ *
+ * @author jzedlitz
+ */
+public interface JmxReaderMetricsMBean {
+
+    long getDocumentsOpened();
+
+    long getOpenDocuments();
+
+    long getCompressedBytes();
+
+    long getUncompressedBytes();
+
+    long getXmlEvents();
+
+    long getTables();
+
+    long getRows();
+
+    long getCells();
+
+    long getRepeatedCells();
+
+    long getInflateMillis();
+
+    long getParseMillis();
+
+    long getCellsMillis();
+
+    long getCallbackMillis();
+
+    long getBlockedMillis();
+
+    /**
+     * Set all counters to 0 except the number of open documents.
+     */
+    void reset();
+}
@@ -0,0 +1,336 @@
+package de.zedlitz.opendocument;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+
+/**
+ * A zip archive that is mapped into memory. The entries are located with the central directory and inflated
+ * straight from the mapping instead of being read through the file. The file channel stays open until
+ * {@link #close()} is called, the mapping itself is released by the garbage collector.
+ * <p>
+ * Only archives up to 2 GB without zip64 extensions are supported, other archives have to be read with
+ * {@link java.util.zip.ZipFile}.
+ *
+ * @author jzedlitz
+ */
+class MappedZipFile implements Closeable {
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The input buffers of the inflaters that have been closed.
+     */
+    private static final BlockingQueue<byte[]> BUFFERS = new ArrayBlockingQueue<>(16);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapping;
+    private volatile boolean closed;
+
+    private MappedZipFile(final FileChannel channel, final MappedByteBuffer mapping) {
+        this.channel = channel;
+        this.mapping = mapping;
+    }
+
+    /**
+     * Map a zip archive into memory.
+     *
+     * @return the archive or <code>null</code> if the file is too large or not a zip archive that can be mapped
+     */
+    static MappedZipFile open(final Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < END_OF_CENTRAL_DIRECTORY_SIZE || channel.size() > Integer.MAX_VALUE) {
+                channel.close();
+                return null;
+            }
+            final MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapping.order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedZipFile(channel, mapping);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Find an entry in the central directory.
+     *
+     * @return the entry or <code>null</code> if there is no such entry or it cannot be read from the mapping
+     */
+    ContentSource getEntry(final String name) {
+        final ByteBuffer buffer = mapping.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int end = findEndOfCentralDirectory(buffer);
+        if (end < 0) {
+            return null;
+        }
+
+        final int count = buffer.getShort(end + 10) & 0xFFFF;
+        final long directoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+        if (count == 0xFFFF || directoryOffset >= buffer.limit()) {
+            // zip64
+            return null;
+        }
+
+        final byte[] expected = name.getBytes(StandardCharsets.UTF_8);
+        int position = (int) directoryOffset;
+        for (int i = 0; i < count && position + 46 <= end; i++) {
+            if (buffer.getInt(position) != CENTRAL_DIRECTORY_HEADER) {
+                return null;
+            }
+            final int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+            final int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+            final int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+
+            if (regionEquals(buffer, position + 46, nameLength, expected)) {
+                final int method = buffer.getShort(position + 10) & 0xFFFF;
+                final long crc = buffer.getInt(position + 16) & 0xFFFFFFFFL;
+                final long compressedSize = buffer.getInt(position + 20) & 0xFFFFFFFFL;
+                final long size = buffer.getInt(position + 24) & 0xFFFFFFFFL;
+                final long localHeader = buffer.getInt(position + 42) & 0xFFFFFFFFL;
+                if ((method != STORED && method != DEFLATED) || compressedSize == 0xFFFFFFFFL
+                        || size == 0xFFFFFFFFL || localHeader + 30 > buffer.limit()) {
+                    return null;
+                }
+                return entry(buffer, (int) localHeader, method, crc, (int) compressedSize, size);
+            }
+
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return null;
+    }
+
+    private ContentSource entry(final ByteBuffer buffer, final int localHeader, final int method, final long crc,
+                                final int compressedSize, final long size) {
+        if (buffer.getInt(localHeader) != LOCAL_FILE_HEADER) {
+            return null;
+        }
+        final int dataStart = localHeader + 30 + (buffer.getShort(localHeader + 26) & 0xFFFF)
+                + (buffer.getShort(localHeader + 28) & 0xFFFF);
+        if ((long) dataStart + compressedSize > buffer.limit()) {
+            return null;
+        }
+
+        return new ContentSource() {
+            @Override
+            public InputStream open() throws IOException {
+                if (closed) {
+                    throw new IOException("Zip file closed");
+                }
+                final ByteBuffer data = mapping.duplicate();
+                data.position(dataStart);
+                data.limit(dataStart + compressedSize);
+                return method == STORED ? new MappedInputStream(data.slice()) : new InflatingInputStream(data.slice());
+            }
+
+            @Override
+            public long getSize() {
+                return size;
+            }
+
+            @Override
+            public long getCompressedSize() {
+                return compressedSize & 0xFFFFFFFFL;
+            }
+
+            @Override
+            public long getCrc() {
+                return crc;
+            }
+
+            @Override
+            public void close() throws IOException {
+                MappedZipFile.this.close();
+            }
+        };
+    }
+
+    private static int findEndOfCentralDirectory(final ByteBuffer buffer) {
+        final int last = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        final int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int i = last; i >= first; i--) {
+            if (buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(final ByteBuffer buffer, final int start, final int length,
+                                        final byte[] bytes) {
+        if (length != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Close the file channel. The mapping itself is released by the garbage collector, so streams that are
+     * still open can be read to their end.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    /**
+     * Reads an entry that has been stored without compression.
+     */
+    private static class MappedInputStream extends InputStream {
+        private final ByteBuffer data;
+
+        MappedInputStream(final ByteBuffer data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            return data.hasRemaining() ? data.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (!data.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(len, data.remaining());
+            data.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int count = (int) Math.max(0, Math.min(n, data.remaining()));
+            data.position(data.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return data.remaining();
+        }
+    }
+
+    /**
+     * Inflates a deflated entry. The inflater of Java 8 only accepts arrays, so the compressed data is copied
+     * from the mapping into a pooled input buffer and inflated directly into the buffer of the caller.
+     */
+    private static class InflatingInputStream extends InputStream {
+        private final ByteBuffer data;
+        private final Inflater inflater = new Inflater(true);
+        private final byte[] single = new byte[1];
+        private byte[] input;
+        private byte[] skipped;
+        private boolean dummyByteSupplied;
+
+        InflatingInputStream(final ByteBuffer data) {
+            this.data = data;
+            final byte[] pooled = BUFFERS.poll();
+            this.input = pooled != null ? pooled : new byte[BUFFER_SIZE];
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        /**
+         * Skips by inflating into a buffer that is reused for all calls.
+         */
+        @Override
+        public long skip(final long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            if (skipped == null) {
+                skipped = new byte[512];
+            }
+            long remaining = n;
+            while (remaining > 0) {
+                final int count = read(skipped, 0, (int) Math.min(remaining, skipped.length));
+                if (count < 0) {
+                    break;
+                }
+                remaining -= count;
+            }
+            return n - remaining;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (input == null) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                while (true) {
+                    final int count = inflater.inflate(b, off, len);
+                    if (count > 0) {
+                        return count;
+                    }
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        return -1;
+                    }
+                    if (inflater.needsInput()) {
+                        fill();
+                    }
+                }
+            } catch (final DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+
+        private void fill() throws EOFException {
+            if (data.hasRemaining()) {
+                final int count = Math.min(input.length, data.remaining());
+                data.get(input, 0, count);
+                inflater.setInput(input, 0, count);
+            } else if (!dummyByteSupplied) {
+                // an inflater without zlib header needs an extra byte at the end
+                dummyByteSupplied = true;
+                input[0] = 0;
+                inflater.setInput(input, 0, 1);
+            } else {
+                throw new EOFException("Unexpected end of zip entry");
+            }
+        }
+
+        @Override
+        public void close() {
+            if (input != null) {
+                inflater.end();
+                BUFFERS.offer(input);
+                input = null;
+            }
+        }
+    }
+}
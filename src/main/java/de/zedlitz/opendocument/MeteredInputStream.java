@@ -0,0 +1,99 @@
+package de.zedlitz.opendocument;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Reports the bytes that are read from another stream to the metrics of a document.
+ *
+ * @author jzedlitz
+ */
+final class MeteredInputStream extends FilterInputStream {
+    private final ReaderMetrics metrics;
+    private final boolean inflating;
+    private final double ratio;
+    private long total;
+    private long reportedCompressed;
+
+    /**
+     * @param inflating <code>true</code> if the stream returns the uncompressed content, then the time of each
+     *                  read is reported as {@link ReaderMetrics.Phase#INFLATE}
+     * @param ratio     the ratio of the compressed and the uncompressed size of the content, the compressed bytes
+     *                  of an inflating stream are estimated with it. 0 if it is not known.
+     */
+    private MeteredInputStream(final InputStream in, final ReaderMetrics metrics, final boolean inflating,
+                               final double ratio) {
+        super(in);
+        this.metrics = metrics;
+        this.inflating = inflating;
+        this.ratio = ratio;
+    }
+
+    /**
+     * Count the bytes of a compressed document.
+     */
+    static InputStream compressed(final InputStream in, final ReaderMetrics metrics) {
+        return new MeteredInputStream(in, metrics, false, 0);
+    }
+
+    /**
+     * Count the bytes of the content and measure the time it takes to inflate them.
+     *
+     * @param source the content or <code>null</code> if the compressed bytes are counted elsewhere
+     */
+    static InputStream inflating(final InputStream in, final ReaderMetrics metrics, final ContentSource source) {
+        final double ratio = source != null && source.getCompressedSize() >= 0 && source.getSize() > 0
+                ? (double) source.getCompressedSize() / source.getSize() : 0;
+        return new MeteredInputStream(in, metrics, true, ratio);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final long start = inflating ? System.nanoTime() : 0;
+        final int result = super.read();
+        report(result < 0 ? -1 : 1, start);
+        return result;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final long start = inflating ? System.nanoTime() : 0;
+        final int result = super.read(b, off, len);
+        report(result, start);
+        return result;
+    }
+
+    /**
+     * The skipped bytes have to be inflated as well, so they are counted like the bytes that are read.
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        final long start = inflating ? System.nanoTime() : 0;
+        final long result = super.skip(n);
+        report(result, start);
+        return result;
+    }
+
+    private void report(final long bytes, final long start) {
+        if (inflating) {
+            metrics.timeSpent(ReaderMetrics.Phase.INFLATE, System.nanoTime() - start);
+        }
+        if (bytes <= 0) {
+            return;
+        }
+        total += bytes;
+        if (!inflating) {
+            metrics.compressedBytesRead(bytes);
+            return;
+        }
+        metrics.uncompressedBytesRead(bytes);
+        if (ratio > 0) {
+            // the estimate of the total is rounded, so that the reported bytes add up to the compressed size
+            final long compressed = Math.round(total * ratio);
+            metrics.compressedBytesRead(compressed - reportedCompressed);
+            reportedCompressed = compressed;
+        }
+    }
+}
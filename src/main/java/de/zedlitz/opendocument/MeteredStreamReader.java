@@ -0,0 +1,54 @@
+package de.zedlitz.opendocument;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+
+/**
+ * Counts the events of a parser and reports them to the metrics of a document in batches.
+ *
+ * @author jzedlitz
+ */
+final class MeteredStreamReader extends StreamReaderDelegate {
+    private static final int BATCH_SIZE = 4096;
+
+    private final ReaderMetrics metrics;
+    private int events;
+
+    MeteredStreamReader(final XMLStreamReader reader, final ReaderMetrics metrics) {
+        super(reader);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        count();
+        return super.next();
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+        count();
+        return super.nextTag();
+    }
+
+    private void count() {
+        if (++events == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (events > 0) {
+            metrics.xmlEventsRead(events);
+            events = 0;
+        }
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        flush();
+        super.close();
+    }
+}
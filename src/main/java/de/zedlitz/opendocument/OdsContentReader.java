@@ -0,0 +1,1297 @@
+package de.zedlitz.opendocument;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * A non-validating XML reader that works directly on the UTF-8 bytes of <code>content.xml</code>.
+ * <p>
+ * Compared to a generic StAX implementation it avoids most of the work that is not needed to read a
+ * spreadsheet: element names are resolved once per distinct qualified name and the same {@link QName} instance
+ * is returned for every occurrence, the names of the elements that are looked for by {@link Table}, {@link Row}
+ * and {@link Cell} are the constants of these classes, and attribute values are only decoded when they are
+ * requested.
+ * <p>
+ * Documents with a document type declaration or in another encoding than UTF-8 are handed over to a StAX
+ * implementation by {@link #create(InputStream, XMLInputFactory)}.
+ *
+ * @author jzedlitz
+ */
+final class OdsContentReader implements XMLStreamReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The names that are compared by the object model. Returning these instances lets {@link QName#equals(Object)}
+     * succeed on the identity check. They are returned without the prefix of the document.
+     */
+    private static final QName[] KNOWN_NAMES = {
+            Table.ELEMENT_TABLE, Row.ELEMENT_ROW, Cell.ELEMENT_CELL, Cell.ELEMENT_ANNOTATION
+    };
+
+    private static final String XMLNS = "xmlns";
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int pos;
+    private int limit;
+    private long consumed;
+    private boolean eof;
+
+    private int eventType = START_DOCUMENT;
+    private String version;
+    private String encoding;
+    private boolean rootClosed;
+    private boolean pendingEnd;
+
+    private QName name;
+    private QName[] elements = new QName[32];
+    private int depth;
+
+    private int attributeCount;
+    private int[] attributeNameStart = new int[16];
+    private int[] attributeNameEnd = new int[16];
+    private int[] attributeValueStart = new int[16];
+    private int[] attributeValueEnd = new int[16];
+    private QName[] attributeNames = new QName[16];
+    private String[] attributeValues = new String[16];
+
+    private String[] prefixes = new String[32];
+    private String[] namespaces = new String[32];
+    private int bindingCount;
+    private int[] scopes = new int[32];
+    private int declarationStart;
+
+    private final NameCache elementNames = new NameCache();
+    private final NameCache attributeNameCache = new NameCache();
+
+    private char[] text = new char[256];
+    private int textLength;
+    /**
+     * The start of the tag that is being read, the positions of its attributes are moved with it when the buffer
+     * is compacted.
+     */
+    private int tokenStart;
+
+    private OdsContentReader(final InputStream in, final byte[] buffer, final int limit, final boolean eof) {
+        this.in = in;
+        this.buffer = buffer;
+        this.limit = limit;
+        this.eof = eof;
+    }
+
+    /**
+     * Create a reader for the given stream. The beginning of the stream is inspected and if the document cannot
+     * be read with this reader a StAX reader of the given factory is returned.
+     */
+    static XMLStreamReader create(final InputStream in, final XMLInputFactory fallback)
+            throws XMLStreamException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int limit = 0;
+        boolean eof = false;
+        try {
+            while (limit < 4096 && !eof) {
+                final int n = in.read(buffer, limit, buffer.length - limit);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    limit += n;
+                }
+            }
+        } catch (final IOException e) {
+            throw new XMLStreamException(e);
+        }
+
+        if (!isSupported(buffer, limit)) {
+            return fallback.createXMLStreamReader(new SequenceInputStream(
+                    new ByteArrayInputStream(buffer, 0, limit), in));
+        }
+
+        final OdsContentReader reader = new OdsContentReader(in, buffer, limit, eof);
+        reader.readProlog();
+        return reader;
+    }
+
+    /**
+     * Can the document with the given beginning be read? It must be encoded in UTF-8 and must not have a
+     * document type declaration in front of its root element.
+     */
+    static boolean isSupported(final byte[] bytes, final int length) {
+        int i = 0;
+        if (length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF) {
+            i = 3;
+        }
+        if (startsWith(bytes, i, length, "<?xml")) {
+            final int end = indexOf(bytes, i, length, "?>");
+            if (end < 0) {
+                return false;
+            }
+            final String declaration = new String(bytes, i, end - i, StandardCharsets.US_ASCII);
+            final String declared = pseudoAttribute(declaration, "encoding");
+            if (declared != null && !isUtf8(declared)) {
+                return false;
+            }
+            i = end + 2;
+        }
+
+        while (i < length) {
+            final int c = bytes[i] & 0xFF;
+            if (isWhitespace(c)) {
+                i++;
+            } else if (startsWith(bytes, i, length, "<!--")) {
+                final int end = indexOf(bytes, i + 4, length, "-->");
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 3;
+            } else if (startsWith(bytes, i, length, "<?")) {
+                final int end = indexOf(bytes, i + 2, length, "?>");
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 2;
+            } else {
+                return c == '<' && i + 1 < length && bytes[i + 1] != '!';
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUtf8(final String encoding) {
+        final String normalized = encoding.toUpperCase(Locale.ROOT);
+        return "UTF-8".equals(normalized) || "UTF8".equals(normalized) || "US-ASCII".equals(normalized)
+                || "ASCII".equals(normalized);
+    }
+
+    private static String pseudoAttribute(final String declaration, final String attribute) {
+        final int i = declaration.indexOf(attribute);
+        if (i < 0) {
+            return null;
+        }
+        int start = declaration.indexOf('=', i) + 1;
+        while (start > 0 && start < declaration.length() && isWhitespace(declaration.charAt(start))) {
+            start++;
+        }
+        if (start <= 0 || start >= declaration.length()) {
+            return null;
+        }
+        final int end = declaration.indexOf(declaration.charAt(start), start + 1);
+        return end < 0 ? null : declaration.substring(start + 1, end);
+    }
+
+    private static boolean startsWith(final byte[] bytes, final int offset, final int length, final String prefix) {
+        if (offset + prefix.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(final byte[] bytes, final int offset, final int length, final String search) {
+        for (int i = offset; i + search.length() <= length; i++) {
+            if (startsWith(bytes, i, length, search)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(final int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    // ------------------------------------------------------------------ input
+
+    /**
+     * Make sure that at least one more byte is in the buffer. The bytes from <code>keep</code> on are kept and
+     * moved to the front of the buffer.
+     *
+     * @return the number of bytes the kept bytes have been moved, or -1 at the end of the stream
+     */
+    private int fill(final int keep) throws XMLStreamException {
+        if (eof) {
+            return -1;
+        }
+        int shift = 0;
+        if (keep > 0) {
+            System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+            shift = keep;
+            consumed += keep;
+            limit -= keep;
+            pos -= keep;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        try {
+            final int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                eof = true;
+                return -1;
+            }
+            limit += n;
+        } catch (final IOException e) {
+            throw new XMLStreamException(e);
+        }
+        return shift;
+    }
+
+    private void readProlog() throws XMLStreamException {
+        if (limit >= 3 && (buffer[0] & 0xFF) == 0xEF && (buffer[1] & 0xFF) == 0xBB && (buffer[2] & 0xFF) == 0xBF) {
+            pos = 3;
+        }
+        if (startsWith(buffer, pos, limit, "<?xml") && pos + 5 < limit && isWhitespace(buffer[pos + 5])) {
+            final int end = indexOf(buffer, pos, limit, "?>");
+            final String declaration = new String(buffer, pos, end - pos, StandardCharsets.US_ASCII);
+            version = pseudoAttribute(declaration, "version");
+            encoding = pseudoAttribute(declaration, "encoding");
+            pos = end + 2;
+        }
+    }
+
+    // ------------------------------------------------------------------ parsing
+
+    @Override
+    public int next() throws XMLStreamException {
+        if (eventType == END_DOCUMENT) {
+            throw new IllegalStateException("No more events");
+        }
+        if (pendingEnd) {
+            pendingEnd = false;
+            return eventType = END_ELEMENT;
+        }
+        if (eventType == END_ELEMENT) {
+            popElement();
+        }
+
+        while (true) {
+            if (pos == limit && fill(pos) < 0) {
+                if (depth > 0 || !rootClosed) {
+                    throw new XMLStreamException("Unexpected end of document", getLocation());
+                }
+                return eventType = END_DOCUMENT;
+            }
+
+            if (buffer[pos] != '<') {
+                if (depth == 0) {
+                    skipWhitespace();
+                    continue;
+                }
+                readText();
+                return eventType = CHARACTERS;
+            }
+
+            // pos stays at the '<' while looking ahead, filling the buffer only moves it
+            final int next = peek(1);
+            if (next == '/') {
+                readEndTag();
+                return eventType = END_ELEMENT;
+            } else if (next == '?') {
+                skipPast("?>");
+            } else if (next == '!') {
+                if (lookingAt("<!--")) {
+                    skipPast("-->");
+                } else if (lookingAt("<![CDATA[")) {
+                    readCdata();
+                    return eventType = CHARACTERS;
+                } else {
+                    throw new XMLStreamException("Document type declarations are not supported", getLocation());
+                }
+            } else {
+                if (rootClosed) {
+                    throw new XMLStreamException("Content after the root element", getLocation());
+                }
+                readStartTag();
+                return eventType = START_ELEMENT;
+            }
+        }
+    }
+
+    /**
+     * @return the byte at the given distance from <code>pos</code>, reading more input if necessary, or -1 at
+     * the end of the stream
+     */
+    private int peek(final int offset) throws XMLStreamException {
+        while (pos + offset >= limit) {
+            if (fill(pos) < 0) {
+                return -1;
+            }
+        }
+        return buffer[pos + offset] & 0xFF;
+    }
+
+    private boolean lookingAt(final String s) throws XMLStreamException {
+        for (int i = 0; i < s.length(); i++) {
+            if (peek(i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipWhitespace() throws XMLStreamException {
+        while (pos < limit || fill(pos) >= 0) {
+            final int c = buffer[pos] & 0xFF;
+            if (c == '<') {
+                return;
+            }
+            if (!isWhitespace(c)) {
+                throw new XMLStreamException("Text outside of the root element", getLocation());
+            }
+            pos++;
+        }
+    }
+
+    private void skipPast(final String end) throws XMLStreamException {
+        int matched = 0;
+        while (true) {
+            if (pos == limit && fill(pos) < 0) {
+                throw new XMLStreamException("Unexpected end of document", getLocation());
+            }
+            final int c = buffer[pos++];
+            if (c == end.charAt(matched)) {
+                matched++;
+                if (matched == end.length()) {
+                    return;
+                }
+            } else {
+                matched = c == end.charAt(0) ? 1 : 0;
+            }
+        }
+    }
+
+    /**
+     * Adjust the positions that refer to the current token after the buffer has been compacted.
+     */
+    private int fillToken() throws XMLStreamException {
+        final int shift = fill(tokenStart);
+        if (shift > 0) {
+            tokenStart -= shift;
+            for (int i = 0; i < attributeCount; i++) {
+                attributeNameStart[i] -= shift;
+                attributeNameEnd[i] -= shift;
+                attributeValueStart[i] -= shift;
+                attributeValueEnd[i] -= shift;
+            }
+        }
+        return shift;
+    }
+
+    private int nextTokenByte() throws XMLStreamException {
+        if (pos == limit && fillToken() < 0) {
+            throw new XMLStreamException("Unexpected end of document", getLocation());
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    private void readStartTag() throws XMLStreamException {
+        tokenStart = pos;
+        pos++;
+        attributeCount = 0;
+
+        final int nameStart = pos - tokenStart;
+        int nameEnd = nameStart;
+        while (true) {
+            final int c = nextTokenByte();
+            if (isWhitespace(c) || c == '>' || c == '/') {
+                nameEnd = pos - 1 - tokenStart;
+                pos--;
+                break;
+            }
+        }
+        if (nameEnd == nameStart) {
+            throw new XMLStreamException("Missing element name", getLocation());
+        }
+
+        boolean empty = false;
+        while (true) {
+            int c = nextTokenByte();
+            if (isWhitespace(c)) {
+                continue;
+            }
+            if (c == '>') {
+                break;
+            }
+            if (c == '/') {
+                if (nextTokenByte() != '>') {
+                    throw new XMLStreamException("Expected >", getLocation());
+                }
+                empty = true;
+                break;
+            }
+
+            // relative to the start of the tag until the attribute has been added
+            final int attributeStart = pos - 1 - tokenStart;
+            do {
+                c = nextTokenByte();
+            } while (!isWhitespace(c) && c != '=');
+            final int attributeEnd = pos - 1 - tokenStart;
+            while (isWhitespace(c)) {
+                c = nextTokenByte();
+            }
+            if (c != '=') {
+                throw new XMLStreamException("Expected =", getLocation());
+            }
+            do {
+                c = nextTokenByte();
+            } while (isWhitespace(c));
+            if (c != '"' && c != '\'') {
+                throw new XMLStreamException("Expected quote", getLocation());
+            }
+            final int quote = c;
+            final int valueStart = pos - tokenStart;
+            do {
+                c = nextTokenByte();
+                if (c == '<') {
+                    throw new XMLStreamException("< in attribute value", getLocation());
+                }
+            } while (c != quote);
+
+            addAttribute(tokenStart + attributeStart, tokenStart + attributeEnd, tokenStart + valueStart, pos - 1);
+        }
+
+        final int elementNameStart = tokenStart + nameStart;
+        final int elementNameEnd = tokenStart + nameEnd;
+
+        pushScope();
+        declareNamespaces();
+        name = resolveElementName(elementNameStart, elementNameEnd);
+        resolveAttributeNames();
+
+        if (depth == elements.length) {
+            elements = Arrays.copyOf(elements, depth * 2);
+        }
+        elements[depth++] = name;
+        pendingEnd = empty;
+    }
+
+    private void addAttribute(final int nameStart, final int nameEnd, final int valueStart, final int valueEnd) {
+        if (attributeCount == attributeNameStart.length) {
+            final int size = attributeCount * 2;
+            attributeNameStart = Arrays.copyOf(attributeNameStart, size);
+            attributeNameEnd = Arrays.copyOf(attributeNameEnd, size);
+            attributeValueStart = Arrays.copyOf(attributeValueStart, size);
+            attributeValueEnd = Arrays.copyOf(attributeValueEnd, size);
+            attributeNames = Arrays.copyOf(attributeNames, size);
+            attributeValues = Arrays.copyOf(attributeValues, size);
+        }
+        attributeNameStart[attributeCount] = nameStart;
+        attributeNameEnd[attributeCount] = nameEnd;
+        attributeValueStart[attributeCount] = valueStart;
+        attributeValueEnd[attributeCount] = valueEnd;
+        attributeNames[attributeCount] = null;
+        attributeValues[attributeCount] = null;
+        attributeCount++;
+    }
+
+    private void pushScope() {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth] = bindingCount;
+        declarationStart = bindingCount;
+    }
+
+    /**
+     * Move the namespace declarations out of the attributes.
+     */
+    private void declareNamespaces() throws XMLStreamException {
+        int kept = 0;
+        for (int i = 0; i < attributeCount; i++) {
+            final int start = attributeNameStart[i];
+            final int length = attributeNameEnd[i] - start;
+            final boolean isDefault = length == 5 && startsWith(buffer, start, attributeNameEnd[i], XMLNS);
+            final boolean isPrefixed = length > 6 && startsWith(buffer, start, attributeNameEnd[i], "xmlns:");
+            if (isDefault || isPrefixed) {
+                final String prefix = isDefault ? XMLConstants.DEFAULT_NS_PREFIX
+                        : new String(buffer, start + 6, length - 6, StandardCharsets.UTF_8);
+                declare(prefix, decode(attributeValueStart[i], attributeValueEnd[i], true));
+            } else {
+                attributeNameStart[kept] = attributeNameStart[i];
+                attributeNameEnd[kept] = attributeNameEnd[i];
+                attributeValueStart[kept] = attributeValueStart[i];
+                attributeValueEnd[kept] = attributeValueEnd[i];
+                kept++;
+            }
+        }
+        attributeCount = kept;
+
+        if (bindingCount > declarationStart && depth > 0) {
+            // names that have been resolved before might be bound differently now
+            elementNames.clear();
+            attributeNameCache.clear();
+        }
+    }
+
+    private void declare(final String prefix, final String namespace) {
+        if (bindingCount == prefixes.length) {
+            prefixes = Arrays.copyOf(prefixes, bindingCount * 2);
+            namespaces = Arrays.copyOf(namespaces, bindingCount * 2);
+        }
+        prefixes[bindingCount] = prefix;
+        namespaces[bindingCount] = namespace;
+        bindingCount++;
+    }
+
+    private String lookupNamespace(final String prefix) {
+        for (int i = bindingCount - 1; i >= 0; i--) {
+            if (prefixes[i].equals(prefix)) {
+                return namespaces[i];
+            }
+        }
+        if ("xml".equals(prefix)) {
+            return XMLConstants.XML_NS_URI;
+        }
+        return null;
+    }
+
+    private QName resolveElementName(final int start, final int end) throws XMLStreamException {
+        QName result = elementNames.get(buffer, start, end);
+        if (result == null) {
+            result = resolve(start, end, true);
+            elementNames.put(buffer, start, end, result);
+        }
+        return result;
+    }
+
+    private void resolveAttributeNames() throws XMLStreamException {
+        for (int i = 0; i < attributeCount; i++) {
+            QName result = attributeNameCache.get(buffer, attributeNameStart[i], attributeNameEnd[i]);
+            if (result == null) {
+                result = resolve(attributeNameStart[i], attributeNameEnd[i], false);
+                attributeNameCache.put(buffer, attributeNameStart[i], attributeNameEnd[i], result);
+            }
+            attributeNames[i] = result;
+        }
+    }
+
+    private QName resolve(final int start, final int end, final boolean element) throws XMLStreamException {
+        final String qualifiedName = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        final int colon = qualifiedName.indexOf(':');
+        final String prefix = colon < 0 ? XMLConstants.DEFAULT_NS_PREFIX : qualifiedName.substring(0, colon);
+        final String localName = qualifiedName.substring(colon + 1);
+
+        String namespace = XMLConstants.NULL_NS_URI;
+        if (colon >= 0 || element) {
+            namespace = lookupNamespace(prefix);
+            if (namespace == null) {
+                if (colon >= 0) {
+                    throw new XMLStreamException("Undeclared namespace prefix " + prefix, getLocation());
+                }
+                namespace = XMLConstants.NULL_NS_URI;
+            }
+        }
+
+        if (element) {
+            for (QName known : KNOWN_NAMES) {
+                if (known.getLocalPart().equals(localName) && known.getNamespaceURI().equals(namespace)) {
+                    return known;
+                }
+            }
+        }
+        return new QName(namespace, localName, prefix);
+    }
+
+    private void readEndTag() throws XMLStreamException {
+        tokenStart = pos;
+        attributeCount = 0;
+        pos += 2;
+        int c;
+        do {
+            c = nextTokenByte();
+        } while (!isWhitespace(c) && c != '>');
+        final int nameLength = pos - 1 - tokenStart - 2;
+        while (c != '>') {
+            c = nextTokenByte();
+            if (!isWhitespace(c) && c != '>') {
+                throw new XMLStreamException("Expected >", getLocation());
+            }
+        }
+
+        if (depth == 0) {
+            throw new XMLStreamException("Unexpected end tag", getLocation());
+        }
+        name = resolveElementName(tokenStart + 2, tokenStart + 2 + nameLength);
+        if (!name.equals(elements[depth - 1])) {
+            throw new XMLStreamException("Expected end tag of " + elements[depth - 1] + " but found " + name,
+                    getLocation());
+        }
+    }
+
+    private void popElement() {
+        depth--;
+        if (bindingCount > scopes[depth]) {
+            bindingCount = scopes[depth];
+            elementNames.clear();
+            attributeNameCache.clear();
+        }
+        declarationStart = bindingCount;
+        attributeCount = 0;
+        if (depth == 0) {
+            rootClosed = true;
+        }
+    }
+
+    private void readText() throws XMLStreamException {
+        textLength = 0;
+        while (true) {
+            if (pos == limit && fill(pos) < 0) {
+                return;
+            }
+            final int c = buffer[pos] & 0xFF;
+            if (c == '<') {
+                return;
+            }
+            if (c == '&') {
+                readReference();
+            } else if (c == '\r') {
+                pos++;
+                if ((pos < limit || fill(pos) >= 0) && buffer[pos] == '\n') {
+                    pos++;
+                }
+                appendText('\n');
+            } else if (c < 0x80) {
+                pos++;
+                appendText((char) c);
+            } else {
+                readMultiByte(c);
+            }
+        }
+    }
+
+    private void readCdata() throws XMLStreamException {
+        pos += 9;
+        textLength = 0;
+        int matched = 0;
+        while (true) {
+            if (pos == limit && fill(pos) < 0) {
+                throw new XMLStreamException("Unexpected end of document", getLocation());
+            }
+            final int c = buffer[pos] & 0xFF;
+            if (c == ']') {
+                if (matched < 2) {
+                    matched++;
+                } else {
+                    // only the last two brackets can belong to the end
+                    appendText(']');
+                }
+                pos++;
+                continue;
+            }
+            if (c == '>' && matched == 2) {
+                pos++;
+                return;
+            }
+            for (; matched > 0; matched--) {
+                appendText(']');
+            }
+            if (c < 0x80) {
+                pos++;
+                appendText((char) c);
+            } else {
+                readMultiByte(c);
+            }
+        }
+    }
+
+    private void appendText(final char c) {
+        if (textLength == text.length) {
+            text = Arrays.copyOf(text, textLength * 2);
+        }
+        text[textLength++] = c;
+    }
+
+    private int nextTextByte() throws XMLStreamException {
+        if (pos == limit && fill(pos) < 0) {
+            throw new XMLStreamException("Unexpected end of document", getLocation());
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    private void readMultiByte(final int first) throws XMLStreamException {
+        pos++;
+        final int codePoint;
+        if ((first & 0xE0) == 0xC0) {
+            codePoint = ((first & 0x1F) << 6) | (nextTextByte() & 0x3F);
+        } else if ((first & 0xF0) == 0xE0) {
+            codePoint = ((first & 0x0F) << 12) | ((nextTextByte() & 0x3F) << 6) | (nextTextByte() & 0x3F);
+        } else if ((first & 0xF8) == 0xF0) {
+            codePoint = ((first & 0x07) << 18) | ((nextTextByte() & 0x3F) << 12) | ((nextTextByte() & 0x3F) << 6)
+                    | (nextTextByte() & 0x3F);
+        } else {
+            throw new XMLStreamException("Invalid UTF-8 sequence", getLocation());
+        }
+        appendCodePoint(codePoint);
+    }
+
+    private void appendCodePoint(final int codePoint) {
+        if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            appendText((char) codePoint);
+        } else {
+            appendText(Character.highSurrogate(codePoint));
+            appendText(Character.lowSurrogate(codePoint));
+        }
+    }
+
+    private void readReference() throws XMLStreamException {
+        pos++;
+        final StringBuilder reference = new StringBuilder(8);
+        while (true) {
+            final int c = nextTextByte();
+            if (c == ';') {
+                break;
+            }
+            if (reference.length() > 10 || c == '<' || c == '&') {
+                throw new XMLStreamException("Invalid reference", getLocation());
+            }
+            reference.append((char) c);
+        }
+        final int codePoint = referenceValue(reference);
+        if (codePoint < 0) {
+            throw new XMLStreamException("Undeclared entity &" + reference + ";", getLocation());
+        }
+        appendCodePoint(codePoint);
+    }
+
+    private static int referenceValue(final CharSequence reference) {
+        final String s = reference.toString();
+        switch (s) {
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                try {
+                    if (s.startsWith("#x")) {
+                        return Integer.parseInt(s.substring(2), 16);
+                    } else if (s.startsWith("#")) {
+                        return Integer.parseInt(s.substring(1));
+                    }
+                } catch (final NumberFormatException e) {
+                    return -1;
+                }
+                return -1;
+        }
+    }
+
+    /**
+     * Decode an attribute value of the current start tag.
+     */
+    private String decode(final int start, final int end, final boolean attribute) throws XMLStreamException {
+        boolean plain = true;
+        for (int i = start; i < end; i++) {
+            final int c = buffer[i];
+            if (c < 0x20 || c == '&') {
+                // non-ASCII bytes are negative
+                plain = false;
+                break;
+            }
+        }
+        if (plain) {
+            return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        final StringBuilder result = new StringBuilder(end - start);
+        int i = start;
+        while (i < end) {
+            final int c = buffer[i] & 0xFF;
+            if (c == '&') {
+                final int semicolon = indexOfByte(i, end, ';');
+                if (semicolon < 0) {
+                    throw new XMLStreamException("Invalid reference", getLocation());
+                }
+                final int codePoint = referenceValue(new String(buffer, i + 1, semicolon - i - 1,
+                        StandardCharsets.ISO_8859_1));
+                if (codePoint < 0) {
+                    throw new XMLStreamException("Undeclared entity", getLocation());
+                }
+                result.appendCodePoint(codePoint);
+                i = semicolon + 1;
+            } else if (attribute && c == '\r' && i + 1 < end && buffer[i + 1] == '\n') {
+                result.append(' ');
+                i += 2;
+            } else if (attribute && isWhitespace(c)) {
+                result.append(' ');
+                i++;
+            } else if (c < 0x80) {
+                result.append((char) c);
+                i++;
+            } else {
+                int length = (c & 0xE0) == 0xC0 ? 2 : (c & 0xF0) == 0xE0 ? 3 : 4;
+                length = Math.min(length, end - i);
+                result.append(new String(buffer, i, length, StandardCharsets.UTF_8));
+                i += length;
+            }
+        }
+        return result.toString();
+    }
+
+    private int indexOfByte(final int start, final int end, final int b) {
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ------------------------------------------------------------------ XMLStreamReader
+
+    @Override
+    public Object getProperty(final String property) {
+        return null;
+    }
+
+    @Override
+    public void require(final int type, final String namespaceURI, final String localName)
+            throws XMLStreamException {
+        if (type != eventType
+                || (namespaceURI != null && !namespaceURI.equals(getNamespaceURI()))
+                || (localName != null && !localName.equals(getLocalName()))) {
+            throw new XMLStreamException("Requirement not met", getLocation());
+        }
+    }
+
+    @Override
+    public String getElementText() throws XMLStreamException {
+        if (eventType != START_ELEMENT) {
+            throw new XMLStreamException("Not at a start element", getLocation());
+        }
+        final StringBuilder result = new StringBuilder();
+        int event = next();
+        while (event != END_ELEMENT) {
+            if (event == CHARACTERS) {
+                result.append(text, 0, textLength);
+            } else if (event == START_ELEMENT) {
+                throw new XMLStreamException("Element text must not contain elements", getLocation());
+            }
+            event = next();
+        }
+        return result.toString();
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+        int event = next();
+        while (event == CHARACTERS && isWhiteSpace()) {
+            event = next();
+        }
+        if (event != START_ELEMENT && event != END_ELEMENT) {
+            throw new XMLStreamException("Expected start or end tag", getLocation());
+        }
+        return event;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return eventType != END_DOCUMENT;
+    }
+
+    @Override
+    public void close() {
+        // the stream is closed by its owner
+    }
+
+    @Override
+    public String getNamespaceURI(final String prefix) {
+        return lookupNamespace(prefix);
+    }
+
+    @Override
+    public boolean isStartElement() {
+        return eventType == START_ELEMENT;
+    }
+
+    @Override
+    public boolean isEndElement() {
+        return eventType == END_ELEMENT;
+    }
+
+    @Override
+    public boolean isCharacters() {
+        return eventType == CHARACTERS;
+    }
+
+    @Override
+    public boolean isWhiteSpace() {
+        if (eventType != CHARACTERS) {
+            return false;
+        }
+        for (int i = 0; i < textLength; i++) {
+            if (!isWhitespace(text[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void requireStartElement() {
+        if (eventType != START_ELEMENT) {
+            throw new IllegalStateException("Not at a start element");
+        }
+    }
+
+    @Override
+    public String getAttributeValue(final String namespaceURI, final String localName) {
+        requireStartElement();
+        for (int i = 0; i < attributeCount; i++) {
+            final QName attributeName = attributeNames[i];
+            if (attributeName.getLocalPart().equals(localName)
+                    && (namespaceURI == null || namespaceURI.equals(attributeName.getNamespaceURI()))) {
+                return getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getAttributeCount() {
+        requireStartElement();
+        return attributeCount;
+    }
+
+    @Override
+    public QName getAttributeName(final int index) {
+        requireStartElement();
+        return attributeNames[index];
+    }
+
+    @Override
+    public String getAttributeNamespace(final int index) {
+        final String namespace = getAttributeName(index).getNamespaceURI();
+        return namespace.isEmpty() ? null : namespace;
+    }
+
+    @Override
+    public String getAttributeLocalName(final int index) {
+        return getAttributeName(index).getLocalPart();
+    }
+
+    @Override
+    public String getAttributePrefix(final int index) {
+        return getAttributeName(index).getPrefix();
+    }
+
+    @Override
+    public String getAttributeType(final int index) {
+        requireStartElement();
+        return "CDATA";
+    }
+
+    @Override
+    public String getAttributeValue(final int index) {
+        requireStartElement();
+        if (attributeValues[index] == null) {
+            try {
+                attributeValues[index] = decode(attributeValueStart[index], attributeValueEnd[index], true);
+            } catch (final XMLStreamException e) {
+                throw new OdsReaderException(e.getMessage(), e);
+            }
+        }
+        return attributeValues[index];
+    }
+
+    @Override
+    public boolean isAttributeSpecified(final int index) {
+        requireStartElement();
+        return true;
+    }
+
+    @Override
+    public int getNamespaceCount() {
+        if (eventType != START_ELEMENT && eventType != END_ELEMENT) {
+            throw new IllegalStateException("Not at an element");
+        }
+        return eventType == START_ELEMENT ? bindingCount - declarationStart : 0;
+    }
+
+    @Override
+    public String getNamespacePrefix(final int index) {
+        final String prefix = prefixes[declarationStart + index];
+        return prefix.isEmpty() ? null : prefix;
+    }
+
+    @Override
+    public String getNamespaceURI(final int index) {
+        return namespaces[declarationStart + index];
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        final String[] currentPrefixes = Arrays.copyOf(prefixes, bindingCount);
+        final String[] currentNamespaces = Arrays.copyOf(namespaces, bindingCount);
+        return new NamespaceContext() {
+            @Override
+            public String getNamespaceURI(final String prefix) {
+                for (int i = currentPrefixes.length - 1; i >= 0; i--) {
+                    if (currentPrefixes[i].equals(prefix)) {
+                        return currentNamespaces[i];
+                    }
+                }
+                return XMLConstants.NULL_NS_URI;
+            }
+
+            @Override
+            public String getPrefix(final String namespaceURI) {
+                final Iterator<String> prefixIterator = getPrefixes(namespaceURI);
+                return prefixIterator.hasNext() ? prefixIterator.next() : null;
+            }
+
+            @Override
+            public Iterator<String> getPrefixes(final String namespaceURI) {
+                final List<String> result = new ArrayList<>();
+                for (int i = currentPrefixes.length - 1; i >= 0; i--) {
+                    if (currentNamespaces[i].equals(namespaceURI)
+                            && namespaceURI.equals(getNamespaceURI(currentPrefixes[i]))) {
+                        result.add(currentPrefixes[i]);
+                    }
+                }
+                return Collections.unmodifiableList(result).iterator();
+            }
+        };
+    }
+
+    @Override
+    public int getEventType() {
+        return eventType;
+    }
+
+    @Override
+    public String getText() {
+        if (eventType != CHARACTERS) {
+            throw new IllegalStateException("Not at a text event");
+        }
+        return new String(text, 0, textLength);
+    }
+
+    @Override
+    public char[] getTextCharacters() {
+        if (eventType != CHARACTERS) {
+            throw new IllegalStateException("Not at a text event");
+        }
+        return text;
+    }
+
+    @Override
+    public int getTextCharacters(final int sourceStart, final char[] target, final int targetStart,
+                                 final int length) {
+        final int count = Math.max(0, Math.min(length, textLength - sourceStart));
+        System.arraycopy(text, sourceStart, target, targetStart, count);
+        return count;
+    }
+
+    @Override
+    public int getTextStart() {
+        return 0;
+    }
+
+    @Override
+    public int getTextLength() {
+        return textLength;
+    }
+
+    @Override
+    public String getEncoding() {
+        return "UTF-8";
+    }
+
+    @Override
+    public boolean hasText() {
+        return eventType == CHARACTERS;
+    }
+
+    @Override
+    public Location getLocation() {
+        final long offset = consumed + pos;
+        return new Location() {
+            @Override
+            public int getLineNumber() {
+                return -1;
+            }
+
+            @Override
+            public int getColumnNumber() {
+                return -1;
+            }
+
+            @Override
+            public int getCharacterOffset() {
+                return (int) Math.min(Integer.MAX_VALUE, offset);
+            }
+
+            @Override
+            public String getPublicId() {
+                return null;
+            }
+
+            @Override
+            public String getSystemId() {
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public QName getName() {
+        if (eventType != START_ELEMENT && eventType != END_ELEMENT) {
+            throw new IllegalStateException("Not at an element");
+        }
+        return name;
+    }
+
+    @Override
+    public String getLocalName() {
+        return getName().getLocalPart();
+    }
+
+    @Override
+    public boolean hasName() {
+        return eventType == START_ELEMENT || eventType == END_ELEMENT;
+    }
+
+    @Override
+    public String getNamespaceURI() {
+        if (!hasName()) {
+            return null;
+        }
+        final String namespace = name.getNamespaceURI();
+        return namespace.isEmpty() ? null : namespace;
+    }
+
+    @Override
+    public String getPrefix() {
+        return hasName() ? name.getPrefix() : null;
+    }
+
+    @Override
+    public String getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean isStandalone() {
+        return false;
+    }
+
+    @Override
+    public boolean standaloneSet() {
+        return false;
+    }
+
+    @Override
+    public String getCharacterEncodingScheme() {
+        return encoding;
+    }
+
+    @Override
+    public String getPITarget() {
+        return null;
+    }
+
+    @Override
+    public String getPIData() {
+        return null;
+    }
+
+    /**
+     * Maps the bytes of qualified names to resolved names without creating a key object per lookup.
+     */
+    private static final class NameCache {
+        private byte[][] keys = new byte[64][];
+        private QName[] values = new QName[64];
+        private int size;
+
+        private static int hash(final byte[] bytes, final int start, final int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + bytes[i];
+            }
+            return h ^ (h >>> 16);
+        }
+
+        QName get(final byte[] bytes, final int start, final int end) {
+            final int mask = keys.length - 1;
+            for (int i = hash(bytes, start, end) & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (matches(keys[i], bytes, start, end)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        private static boolean matches(final byte[] key, final byte[] bytes, final int start, final int end) {
+            if (key.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != bytes[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(final byte[] bytes, final int start, final int end, final QName value) {
+            if ((size + 1) * 2 > keys.length) {
+                final byte[][] oldKeys = keys;
+                final QName[] oldValues = values;
+                keys = new byte[oldKeys.length * 2][];
+                values = new QName[oldKeys.length * 2];
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        put(oldKeys[i], 0, oldKeys[i].length, oldValues[i]);
+                    }
+                }
+            }
+            final int mask = keys.length - 1;
+            int i = hash(bytes, start, end) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = Arrays.copyOfRange(bytes, start, end);
+            values[i] = value;
+            size++;
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(keys, null);
+                Arrays.fill(values, null);
+                size = 0;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OdsContentReader[" + (hasName() ? name : Integer.toString(eventType)) + "]";
+    }
+}
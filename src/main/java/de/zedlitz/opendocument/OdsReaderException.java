@@ -4,4 +4,8 @@ public class OdsReaderException extends ExcelReaderException {
     public OdsReaderException(String message) {
         super(message);
     }
+
+    public OdsReaderException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,36 @@
+package de.zedlitz.opendocument;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * The parser of a part of an indexed document. Closing it closes the stream it reads from as well, which releases
+ * the inflater of the stream.
+ *
+ * @author jzedlitz
+ */
+final class PartParser extends StreamReaderDelegate {
+    private final InputStream in;
+
+    PartParser(final XMLStreamReader reader, final InputStream in) {
+        super(reader);
+        this.in = in;
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        try {
+            super.close();
+        } finally {
+            try {
+                in.close();
+            } catch (final IOException e) {
+                throw new XMLStreamException(e);
+            }
+        }
+    }
+}
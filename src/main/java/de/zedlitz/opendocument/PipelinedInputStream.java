@@ -0,0 +1,187 @@
+package de.zedlitz.opendocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Reads another stream on a thread of its own. The bytes are handed over in chunks through a bounded queue, so
+ * that reading the source, e.g. inflating a zip entry that is downloaded, overlaps with consuming the bytes.
+ * When the queue is full the reading thread waits for the consumer.
+ *
+ * @author jzedlitz
+ */
+class PipelinedInputStream extends InputStream {
+    private static final Chunk END = new Chunk(new byte[0]);
+
+    private final InputStream source;
+    private final int chunkSize;
+    private final int maxChunks;
+    private final BlockingQueue<Chunk> filled;
+    private final BlockingQueue<Chunk> free;
+    private final Thread producer;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private int allocated;
+    private Chunk current;
+    private int position;
+    private boolean end;
+
+    /**
+     * @param chunkSize the size of a chunk in bytes
+     * @param capacity  the number of chunks that may be read ahead of the consumer
+     */
+    PipelinedInputStream(final InputStream source, final int chunkSize, final int capacity) {
+        if (chunkSize < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Chunk size and capacity must be positive");
+        }
+        this.source = source;
+        this.chunkSize = chunkSize;
+        // the chunks in the queue, the chunk of the consumer and the chunk that is being filled
+        this.maxChunks = capacity + 2;
+        this.filled = new ArrayBlockingQueue<>(capacity);
+        this.free = new ArrayBlockingQueue<>(maxChunks);
+        this.producer = new Thread(this::produce, "ods-reader-pipeline");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    private void produce() {
+        Chunk chunk = null;
+        try {
+            boolean eof = false;
+            while (!eof) {
+                chunk = nextFreeChunk();
+                chunk.length = 0;
+                while (chunk.length < chunk.data.length) {
+                    final int n = source.read(chunk.data, chunk.length, chunk.data.length - chunk.length);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    chunk.length += n;
+                }
+                if (chunk.length > 0) {
+                    filled.put(chunk);
+                }
+                chunk = null;
+            }
+        } catch (final InterruptedException e) {
+            // closed by the consumer
+            return;
+        } catch (final IOException e) {
+            failure = e;
+        } catch (final RuntimeException e) {
+            failure = new IOException(e);
+        }
+
+        try {
+            if (chunk != null && chunk.length > 0) {
+                // the bytes in front of the failure
+                filled.put(chunk);
+            }
+            filled.put(END);
+        } catch (final InterruptedException e) {
+            // closed by the consumer
+        }
+    }
+
+    private Chunk nextFreeChunk() throws InterruptedException {
+        final Chunk chunk = free.poll();
+        if (chunk != null) {
+            return chunk;
+        }
+        if (allocated < maxChunks) {
+            allocated++;
+            return new Chunk(new byte[chunkSize]);
+        }
+        return free.take();
+    }
+
+    /**
+     * Make sure that the current chunk has bytes left.
+     *
+     * @return <code>false</code> at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (current != null) {
+            free.offer(current);
+            current = null;
+        }
+        if (end) {
+            return false;
+        }
+
+        final Chunk next;
+        try {
+            next = filled.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the content");
+        }
+        if (next == END) {
+            end = true;
+            if (failure != null) {
+                throw new IOException("Cannot read the content", failure);
+            }
+            return false;
+        }
+        current = next;
+        position = 0;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current.data[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        final int count = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    /**
+     * Stop the reading thread and close the source.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            producer.interrupt();
+            source.close();
+        }
+    }
+
+    private static final class Chunk {
+        private final byte[] data;
+        private int length;
+
+        Chunk(final byte[] data) {
+            this.data = data;
+        }
+    }
+}
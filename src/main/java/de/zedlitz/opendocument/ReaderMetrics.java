@@ -0,0 +1,139 @@
+package de.zedlitz.opendocument;
+
+/**
+ * Receives the measurements of the documents that are read with a configuration, e.g. to find out whether a slow
+ * import spends its time on inflating the content, parsing the XML, creating the cells or in the code of the
+ * application. All methods do nothing by default, so an implementation only overrides what it needs.
+ * <p>
+ * The methods are called by the threads that read the documents, e.g. by the thread that inflates the content of
+ * a pipelined document or by the threads of a parallel stream, so implementations must be thread-safe and fast.
+ * The default {@link #NOOP} is not called at all: documents read without metrics neither count nor measure
+ * anything.
+ *
+ * @author jzedlitz
+ * @see DocumentReaderConfig#withMetrics(ReaderMetrics)
+ * @see JmxReaderMetrics
+ */
+public interface ReaderMetrics {
+
+    /**
+     * The metrics that are used if none are configured. They are never called.
+     */
+    ReaderMetrics NOOP = new ReaderMetrics() {
+    };
+
+    /**
+     * The phases whose time is measured.
+     */
+    enum Phase {
+        /**
+         * Reading and inflating the content. This time is also part of the phase that needed the bytes.
+         */
+        INFLATE,
+        /**
+         * Looking for the next table or row, i.e. tokenizing the XML up to its start tag. Rows that have to be
+         * read completely, e.g. because of a filter, include the time of their cells.
+         */
+        PARSE,
+        /**
+         * Creating the cells of a row.
+         */
+        CELLS,
+        /**
+         * The time between returning a row and being asked for the next one that has not been spent on the
+         * cells of the row, i.e. the time of the code of the application.
+         */
+        CALLBACK,
+        /**
+         * The time the parser of a {@link RowPipeline} waits because the consumer or the workers are behind. This
+         * time is also part of {@link #CALLBACK}.
+         */
+        BLOCKED
+    }
+
+    /**
+     * A document is being opened. The document and its tables report to the returned metrics, e.g. to collect
+     * the measurements of each document separately.
+     *
+     * @param name the name of the file of the document or <code>null</code> if it is read from a stream
+     * @return the metrics of the document, by default these metrics, or {@link #NOOP} to measure nothing for the
+     * document
+     */
+    default ReaderMetrics forDocument(final String name) {
+        return this;
+    }
+
+    /**
+     * A table of the document is being read. The table and its rows report to the returned metrics. The parts of
+     * a table that are read in parallel share the metrics of the table.
+     *
+     * @return the metrics of the table, by default these metrics, or {@link #NOOP} to measure nothing for the table
+     */
+    default ReaderMetrics forTable(final String name) {
+        return this;
+    }
+
+    /**
+     * The last row of a table has been read. The method is not called for tables that are not read to their end.
+     */
+    default void tableFinished() {
+    }
+
+    /**
+     * A document has been opened.
+     */
+    default void documentOpened() {
+    }
+
+    /**
+     * A document has been closed.
+     */
+    default void documentClosed() {
+    }
+
+    /**
+     * Bytes of the document have been read. For documents that are read from a file the compressed bytes are
+     * estimated from the ratio of the compressed and the uncompressed size of the content.
+     */
+    default void compressedBytesRead(final long bytes) {
+    }
+
+    /**
+     * Bytes of the content have been inflated.
+     */
+    default void uncompressedBytesRead(final long bytes) {
+    }
+
+    /**
+     * The XML parser has returned events. The events are reported in batches.
+     */
+    default void xmlEventsRead(final long events) {
+    }
+
+    /**
+     * A table has been returned.
+     */
+    default void tableRead() {
+    }
+
+    /**
+     * A row has been returned. A repeated row counts once unless its repetitions are expanded.
+     */
+    default void rowRead() {
+    }
+
+    /**
+     * A cell has been returned by {@link Row#nextCell()}.
+     *
+     * @param repeated <code>true</code> if the cell is one of the repeated columns of a run of cells, i.e. it has
+     *                 been created for a column of the run other than the first one
+     */
+    default void cellRead(final boolean repeated) {
+    }
+
+    /**
+     * Time has been spent in a phase.
+     */
+    default void timeSpent(final Phase phase, final long nanos) {
+    }
+}
@@ -1,10 +1,15 @@
 package de.zedlitz.opendocument;
 
+import org.apache.commons.lang.math.NumberUtils;
+
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Spliterators;
@@ -23,15 +28,54 @@ public class Row implements Iterable<Cell> {
      * Element name "table-row"
      */
     static final QName ELEMENT_ROW = new QName(Document.NS_TABLE, "table-row");
+    private static final String ATTRIBUTE_NUMBER_ROWS_REPEATED = "number-rows-repeated";
     private final XMLStreamReader xpp;
     private final int rowNumber;
+    private final int numberRowsRepeated;
     int columnIndex = 0;
-    private List<Cell> allCells = null;
-    private int emptyCells;
+    private int runColumn = 0;
+    private CellRun currentRun;
+    private List<CellRun> allRuns = null;
+    private int runIndex;
+    private Deque<CellRun> lookahead;
+    private boolean skipTrailingEmptyCells;
+    private int[] projection;
+    private int projectionIndex;
+    private List<RowFilter> filters;
+    private Deque<CellRun> prefetched;
+    private StringDictionary.Columns dictionary;
+    private ReaderMetrics metrics;
+    private long cellNanos;
 
     public Row(final XMLStreamReader xpp, int rowNumber) {
         this.xpp = xpp;
         this.rowNumber = rowNumber;
+        if (xpp != null && xpp.getEventType() == XMLStreamConstants.START_ELEMENT) {
+            this.numberRowsRepeated = numberRowsRepeated(xpp);
+        } else {
+            this.numberRowsRepeated = 1;
+        }
+    }
+
+    /**
+     * Create a repetition of a row. It shares the runs of cells with the template.
+     */
+    private Row(final Row template, final int rowNumber, final int numberRowsRepeated) {
+        this.xpp = null;
+        this.rowNumber = rowNumber;
+        this.numberRowsRepeated = numberRowsRepeated;
+        this.allRuns = template.allRuns;
+        this.skipTrailingEmptyCells = template.skipTrailingEmptyCells;
+        this.projection = template.projection;
+        this.metrics = template.metrics;
+    }
+
+    /**
+     * Read the <code>table:number-rows-repeated</code> attribute of the row element the parser is positioned at.
+     */
+    static int numberRowsRepeated(final XMLStreamReader parser) {
+        return Math.max(1, NumberUtils.toInt(parser.getAttributeValue(
+                Document.NS_TABLE, Row.ATTRIBUTE_NUMBER_ROWS_REPEATED)));
     }
 
     private boolean isCellStartElement(int eventType) {
@@ -42,36 +86,286 @@ public class Row implements Iterable<Cell> {
         return eventType == XMLStreamConstants.END_ELEMENT && Row.ELEMENT_ROW.equals(xpp.getName());
     }
 
-    public Cell nextCell() {
-        Cell result = null;
+    /**
+     * Read only the given columns of the row. The other cells are skipped without reading their values.
+     *
+     * @param columns the 0-based indexes of the columns, sorted and without duplicates
+     */
+    void setProjection(final int[] columns) {
+        this.projection = columns;
+    }
 
-        // while there are empty (faked) cells return one those
-        if (this.emptyCells > 0) {
-            result = new EmptyCell(this, columnIndex);
-            this.emptyCells--;
-        } else {
-            try {
-                int eventType = xpp.getEventType();
+    /**
+     * Share the texts of the cells of the row with the other cells of the document.
+     */
+    void setDictionary(final StringDictionary.Columns dictionary) {
+        this.dictionary = dictionary;
+    }
 
-                while (!isRowEndElement(eventType)) {
-                    if (isCellStartElement(eventType)) {
-                        final Cell myCell = new Cell(xpp, this, columnIndex);
+    StringDictionary.Columns getDictionary() {
+        return dictionary;
+    }
 
-                        if (myCell.getNumberColumnsRepeated() > 1) {
-                            this.emptyCells = myCell.getNumberColumnsRepeated() - 1;
-                        }
+    /**
+     * Report the cells of the row to the metrics of its document.
+     *
+     * @param metrics the metrics or <code>null</code> if nothing is measured
+     */
+    void setMetrics(final ReaderMetrics metrics) {
+        this.metrics = metrics;
+    }
 
-                        result = myCell;
-                        xpp.next();
+    /**
+     * @return the time spent in {@link #nextCell()} if the row is measured
+     */
+    long getCellNanos() {
+        return cellNanos;
+    }
 
-                        break;
+    /**
+     * Does the projection contain one of the columns from <code>start</code> up to but excluding <code>end</code>?
+     */
+    private boolean isProjected(final int start, final int end) {
+        final int i = Arrays.binarySearch(projection, start);
+        final int next = i >= 0 ? i : -i - 1;
+        return next < projection.length && projection[next] < end;
+    }
+
+    /**
+     * Does one of the filters test one of the columns from <code>start</code> up to but excluding
+     * <code>end</code>?
+     */
+    private boolean isFiltered(final int start, final int end) {
+        if (filters != null) {
+            for (RowFilter filter : filters) {
+                if (filter.getColumn() >= start && filter.getColumn() < end) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Is the cell of a run that starts in the given column needed? Only the first column of a run is backed by the
+     * cell, for the projection as well as for the filters.
+     */
+    private boolean isProjectedStart(final int start) {
+        return Arrays.binarySearch(projection, start) >= 0 || isFiltered(start, start + 1);
+    }
+
+    /**
+     * Read the cells of the row up to the columns of the given filters and test them. The cells that have been
+     * read are returned afterwards as usual. If a cell does not fulfil its condition the rest of the row is
+     * skipped without creating any more cells.
+     *
+     * @param rowFilters the filters, sorted by their column
+     * @return <code>true</code> if all conditions are fulfilled
+     */
+    boolean matches(final List<RowFilter> rowFilters) {
+        this.filters = rowFilters;
+        prefetched = new ArrayDeque<>();
+        CellRun run = null;
+        boolean end = false;
+        for (RowFilter filter : rowFilters) {
+            final int column = filter.getColumn();
+            while (!end && (run == null || run.getEndColumn() <= column)) {
+                run = parseCellRun();
+                if (run == null) {
+                    end = true;
+                } else {
+                    prefetched.add(run);
+                }
+            }
+            final Cell cell = run != null && run.contains(column) ? cellAt(run, column) : new EmptyCell(this, column);
+            if (!filter.test(cell)) {
+                skipRest();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Move the parser to the end tag of the row.
+     */
+    private void skipRest() {
+        try {
+            int depth = 0;
+            int eventType = xpp.getEventType();
+            while (depth > 0 || !isRowEndElement(eventType)) {
+                if (eventType == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+                eventType = xpp.next();
+            }
+        } catch (final XMLStreamException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Read the next <code>table:table-cell</code> element from the parser.
+     */
+    private CellRun parseCellRun() {
+        try {
+            int eventType = xpp.getEventType();
+
+            while (!isRowEndElement(eventType)) {
+                if (isCellStartElement(eventType) && projection != null) {
+                    final int length = Cell.numberColumnsRepeated(xpp);
+                    final int start = runColumn;
+                    runColumn += length;
+                    if (!isProjected(start, runColumn) && !isFiltered(start, runColumn)) {
+                        Table.skipElement(xpp);
+                    } else if (!isProjectedStart(start)) {
+                        // only the first column of a run is backed by the cell, so it is not needed
+                        Table.skipElement(xpp);
+                        xpp.next();
+                        return new CellRun(new EmptyCell(this, start), start, length);
+                    } else {
+                        final Cell cell = new Cell(xpp, this, start);
+                        xpp.next();
+                        return new CellRun(cell, start, length);
                     }
+                } else if (isCellStartElement(eventType)) {
+                    final Cell cell = new Cell(xpp, this, runColumn);
+                    final CellRun run = new CellRun(cell, runColumn, Math.max(1, cell.getNumberColumnsRepeated()));
+                    runColumn = run.getEndColumn();
+                    xpp.next();
 
-                    eventType = xpp.next();
+                    return run;
                 }
-            } catch (final XMLStreamException e) {
-                e.printStackTrace();
+
+                eventType = xpp.next();
+            }
+        } catch (final XMLStreamException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    private CellRun readCellRun() {
+        while (prefetched != null && !prefetched.isEmpty()) {
+            final CellRun run = prefetched.poll();
+            if (projection == null) {
+                return run;
+            }
+            if (!isProjected(run.getStartColumn(), run.getEndColumn())) {
+                // only read for a filter
+                continue;
+            }
+            if (Arrays.binarySearch(projection, run.getStartColumn()) < 0 && !(run.getCell() instanceof EmptyCell)) {
+                // the cell has only been read for a filter, without it the run is not backed by a cell
+                return new CellRun(new EmptyCell(this, run.getStartColumn()), run.getStartColumn(), run.getLength());
+            }
+            return run;
+        }
+        if (allRuns != null) {
+            if (runIndex >= allRuns.size()) {
+                return null;
+            }
+            final CellRun run = allRuns.get(runIndex++);
+            if (run.getCell().getRow() != this) {
+                // run is shared with the template of a repeated row
+                return new CellRun(run.getCell().copyFor(this), run.getStartColumn(), run.getLength());
             }
+            return run;
+        }
+        return parseCellRun();
+    }
+
+    /**
+     * Returns the next run of cells. Repeated columns are not expanded, so the cost of reading a row depends on
+     * the number of <code>table:table-cell</code> elements and not on the number of columns.
+     *
+     * @return the next run of cells or <code>null</code> if the end of the row has been reached.
+     */
+    public CellRun nextCellRun() {
+        if (lookahead != null && !lookahead.isEmpty()) {
+            return lookahead.poll();
+        }
+
+        final CellRun run = readCellRun();
+
+        if (run != null && skipTrailingEmptyCells && run.isEmpty()) {
+            // empty runs are only returned if there is a non-empty run behind them
+            if (lookahead == null) {
+                lookahead = new ArrayDeque<>();
+            }
+            CellRun next = run;
+            while (next != null && next.isEmpty()) {
+                lookahead.add(next);
+                next = readCellRun();
+            }
+            if (next == null) {
+                lookahead.clear();
+                return null;
+            }
+            lookahead.add(next);
+            return lookahead.poll();
+        }
+
+        return run;
+    }
+
+    /**
+     * Returns the cell of the given column. Only the first column of a run is backed by a parsed cell, the other
+     * columns are empty cells. Each of them is a new object, because it knows its column, so iterating over the
+     * columns of a long run allocates one cell per column; {@link #nextCellRun()} does not.
+     */
+    Cell cellAt(final CellRun run, final int column) {
+        if (column != run.getStartColumn()) {
+            return new EmptyCell(this, column);
+        }
+        return run.getCell().getRow() == this ? run.getCell() : run.getCell().copyFor(this);
+    }
+
+    /**
+     * Returns the cell of the next column. The repetitions of a repeated cell are returned as empty cells, one new
+     * object per column. Rows with long runs of repeated cells, e.g. the filler LibreOffice writes up to the last
+     * column, are read without allocating anything per column with {@link #nextCellRun()} or
+     * {@link #setSkipTrailingEmptyCells(boolean)}.
+     *
+     * @return the next cell or <code>null</code> if the end of the row has been reached
+     */
+    public Cell nextCell() {
+        if (metrics != null) {
+            return nextMeasuredCell();
+        }
+        return readCell();
+    }
+
+    private Cell nextMeasuredCell() {
+        final long start = System.nanoTime();
+        final Cell result = readCell();
+        final long nanos = System.nanoTime() - start;
+        cellNanos += nanos;
+        metrics.timeSpent(ReaderMetrics.Phase.CELLS, nanos);
+        if (result != null) {
+            // without a projection the column has already been moved to the next cell
+            final int column = projection != null ? columnIndex : columnIndex - 1;
+            metrics.cellRead(currentRun != null && currentRun.contains(column)
+                    && column != currentRun.getStartColumn());
+        }
+        return result;
+    }
+
+    private Cell readCell() {
+        if (projection != null) {
+            return nextProjectedCell();
+        }
+
+        Cell result = null;
+
+        if (currentRun == null || !currentRun.contains(columnIndex)) {
+            currentRun = nextCellRun();
+        }
+        if (currentRun != null) {
+            result = cellAt(currentRun, columnIndex);
         }
 
         columnIndex++;
@@ -79,19 +373,66 @@ public class Row implements Iterable<Cell> {
         return result;
     }
 
+    private Cell nextProjectedCell() {
+        if (projectionIndex >= projection.length) {
+            return null;
+        }
+        columnIndex = projection[projectionIndex++];
+        while (currentRun == null || currentRun.getEndColumn() <= columnIndex) {
+            currentRun = nextCellRun();
+            if (currentRun == null) {
+                projectionIndex = projection.length;
+                return null;
+            }
+        }
+        return currentRun.contains(columnIndex) ? cellAt(currentRun, columnIndex) : new EmptyCell(this, columnIndex);
+    }
+
+    /**
+     * Read all remaining runs of the row into memory.
+     */
+    void load() {
+        if (allRuns == null) {
+            final List<CellRun> runs = new ArrayList<>();
+            for (CellRun run = nextCellRun(); run != null; run = nextCellRun()) {
+                runs.add(run);
+            }
+            allRuns = runs;
+            runIndex = 0;
+        }
+    }
+
     public Cell getAt(final int i) {
         // switch to memory mode
-        if (allCells == null) {
-            allCells = new ArrayList<>();
-            Cell nextCell = this.nextCell();
+        load();
 
-            while (nextCell != null) {
-                allCells.add(nextCell);
-                nextCell = this.nextCell();
+        int low = 0;
+        int high = allRuns.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final CellRun run = allRuns.get(mid);
+            if (i < run.getStartColumn()) {
+                high = mid - 1;
+            } else if (i >= run.getEndColumn()) {
+                low = mid + 1;
+            } else {
+                return cellAt(run, i);
             }
         }
 
-        return allCells.get(i);
+        throw new IndexOutOfBoundsException("Index: " + i);
+    }
+
+    /**
+     * Stop iterating after the last cell that has a value type or content. LibreOffice often fills a row with
+     * an empty cell that is repeated up to the maximum number of columns.
+     */
+    public void setSkipTrailingEmptyCells(final boolean skipTrailingEmptyCells) {
+        this.skipTrailingEmptyCells = skipTrailingEmptyCells;
+    }
+
+    public boolean isSkipTrailingEmptyCells() {
+        return skipTrailingEmptyCells;
     }
 
     public void eachCell(final Consumer<Cell> c) {
@@ -103,6 +444,10 @@ public class Row implements Iterable<Cell> {
         }
     }
 
+    /**
+     * Returns the cells of the remaining columns like {@link #nextCell()}, with one new empty cell for each
+     * repetition of a repeated cell.
+     */
     @Override
     public Iterator<Cell> iterator() {
         return new CellIterator(this);
@@ -118,4 +463,55 @@ public class Row implements Iterable<Cell> {
     public int getRowNum() {
         return this.rowNumber;
     }
+
+    /**
+     * Get the number of rows this row stands for. ODS files store identical neighbouring rows as a single
+     * <code>table:table-row</code> element with a <code>table:number-rows-repeated</code> attribute.
+     *
+     * @return the number of repetitions of this row, at least 1
+     */
+    public int getNumberRowsRepeated() {
+        return this.numberRowsRepeated;
+    }
+
+    /**
+     * Get one of the rows this row stands for. The returned row shares the parsed cells with this row and has
+     * the row number <code>getRowNum() + i</code>. Its cells are only copied when they are accessed.
+     *
+     * @param i index of the repetition, from 0 to <code>getNumberRowsRepeated() - 1</code>
+     */
+    public Row getRepetition(final int i) {
+        if (i < 0 || i >= numberRowsRepeated) {
+            throw new IndexOutOfBoundsException("Repetition: " + i);
+        }
+        if (numberRowsRepeated == 1) {
+            return this;
+        }
+        load();
+        return new Row(this, rowNumber + i, 1);
+    }
+
+    /**
+     * Get a row that stands for the repetitions of this row starting with the given one.
+     */
+    Row remainder(final int i) {
+        if (i == 0) {
+            return this;
+        }
+        load();
+        return new Row(this, rowNumber + i, numberRowsRepeated - i);
+    }
+
+    /**
+     * Does the row consist of empty cells only? This reads the remaining cells of the row into memory.
+     */
+    public boolean isEmpty() {
+        load();
+        for (CellRun run : allRuns) {
+            if (!run.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,270 @@
+package de.zedlitz.opendocument;
+
+import java.util.Arrays;
+
+
+/**
+ * A batch of rows stored column by column. The values of each column are kept in preallocated arrays that are
+ * reused by every call of {@link Table#nextBatch(RowBatch)}, so reading a table batch by batch does not allocate
+ * any memory for the values once the text buffer has grown large enough.
+ * <p>
+ * For each column a batch holds
+ * <ul>
+ * <li>a type tag per row, one of the <code>TYPE_</code> constants,</li>
+ * <li>the value per row as a <code>double</code>: the number of float, percentage and currency cells, the epoch
+ * day of date cells, the second of the day of time cells, 1 or 0 for boolean cells and <code>NaN</code>
+ * otherwise,</li>
+ * <li>the offset and length of the text of the cell in a text buffer that is shared by all columns and</li>
+ * <li>a bitmap with a set bit for each row whose cell is empty.</li>
+ * </ul>
+ * Only the cell in the first column of a run of repeated cells has a value, like in {@link Row#nextCell()}.
+ *
+ * @author jzedlitz
+ */
+public final class RowBatch {
+    public static final byte TYPE_EMPTY = 0;
+    public static final byte TYPE_FLOAT = 1;
+    public static final byte TYPE_PERCENTAGE = 2;
+    public static final byte TYPE_CURRENCY = 3;
+    public static final byte TYPE_DATE = 4;
+    public static final byte TYPE_TIME = 5;
+    public static final byte TYPE_BOOLEAN = 6;
+    public static final byte TYPE_STRING = 7;
+
+    private final int capacity;
+    private final int columnCount;
+    private final int[] rowNumbers;
+    private final double[][] values;
+    private final byte[][] types;
+    private final int[][] textOffsets;
+    private final int[][] textLengths;
+    private final long[][] nulls;
+    private char[] text;
+    private int textLength;
+    private int size;
+
+    /**
+     * @param capacity    the maximum number of rows in the batch
+     * @param columnCount the number of columns that are read, starting with the first column of the table
+     */
+    public RowBatch(final int capacity, final int columnCount) {
+        if (capacity < 1 || columnCount < 1) {
+            throw new IllegalArgumentException("Capacity and column count must be positive");
+        }
+        this.capacity = capacity;
+        this.columnCount = columnCount;
+        this.rowNumbers = new int[capacity];
+        this.values = new double[columnCount][capacity];
+        this.types = new byte[columnCount][capacity];
+        this.textOffsets = new int[columnCount][capacity];
+        this.textLengths = new int[columnCount][capacity];
+        this.nulls = new long[columnCount][(capacity + 63) >>> 6];
+        this.text = new char[capacity * 16];
+    }
+
+    /**
+     * Remove all rows. The arrays are kept.
+     */
+    void clear() {
+        size = 0;
+        textLength = 0;
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    int remaining() {
+        return capacity - size;
+    }
+
+    /**
+     * Add a row and the given number of its repetitions.
+     *
+     * @param count the number of rows to add, at least 1
+     */
+    void add(final Row row, final int count) {
+        final int index = size;
+        for (int column = 0; column < columnCount; column++) {
+            setEmpty(column, index);
+        }
+        for (CellRun run = row.nextCellRun(); run != null && run.getStartColumn() < columnCount;
+             run = row.nextCellRun()) {
+            set(run.getStartColumn(), index, run.getCell());
+        }
+        rowNumbers[index] = row.getRowNum();
+        size++;
+
+        for (int i = 1; i < count; i++) {
+            final int copy = size;
+            for (int column = 0; column < columnCount; column++) {
+                values[column][copy] = values[column][index];
+                types[column][copy] = types[column][index];
+                textOffsets[column][copy] = textOffsets[column][index];
+                textLengths[column][copy] = textLengths[column][index];
+                setNull(column, copy, isNull(index, column));
+            }
+            rowNumbers[copy] = row.getRowNum() + i;
+            size++;
+        }
+    }
+
+    private void setEmpty(final int column, final int index) {
+        values[column][index] = Double.NaN;
+        types[column][index] = TYPE_EMPTY;
+        textOffsets[column][index] = textLength;
+        textLengths[column][index] = 0;
+        setNull(column, index, true);
+    }
+
+    private void setNull(final int column, final int index, final boolean isNull) {
+        if (isNull) {
+            nulls[column][index >>> 6] |= 1L << index;
+        } else {
+            nulls[column][index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    private void set(final int column, final int index, final Cell cell) {
+        if (cell.isBlank()) {
+            return;
+        }
+        final byte type = type(cell.getValueType());
+        types[column][index] = type;
+        values[column][index] = value(type, cell);
+        setNull(column, index, false);
+
+        final int length = cell.getContentLength();
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+        }
+        cell.getContentChars(text, textLength);
+        textOffsets[column][index] = textLength;
+        textLengths[column][index] = length;
+        textLength += length;
+    }
+
+    /**
+     * @return the type tag of the given value type
+     */
+    static byte type(final String valueType) {
+        switch (valueType) {
+            case "float":
+                return TYPE_FLOAT;
+            case "percentage":
+                return TYPE_PERCENTAGE;
+            case "currency":
+                return TYPE_CURRENCY;
+            case "date":
+                return TYPE_DATE;
+            case "time":
+                return TYPE_TIME;
+            case "boolean":
+                return TYPE_BOOLEAN;
+            default:
+                return TYPE_STRING;
+        }
+    }
+
+    private static double value(final byte type, final Cell cell) {
+        switch (type) {
+            case TYPE_FLOAT:
+            case TYPE_PERCENTAGE:
+            case TYPE_CURRENCY:
+                return cell.getValue() != null ? cell.getDouble() : Double.NaN;
+            case TYPE_DATE:
+                return cell.getDateValue() != null ? cell.getEpochDay() : Double.NaN;
+            case TYPE_TIME:
+                return cell.getTimeValue() != null ? cell.getSecondOfDay() : Double.NaN;
+            case TYPE_BOOLEAN:
+                return cell.getBooleanValue() != null ? (cell.getBooleanPrimitive() ? 1 : 0) : Double.NaN;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * @return the number of rows in the batch
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return the 1-based number of the given row of the batch in its table
+     */
+    public int getRowNumber(final int row) {
+        return rowNumbers[row];
+    }
+
+    public boolean isNull(final int row, final int column) {
+        return (nulls[column][row >>> 6] & (1L << row)) != 0;
+    }
+
+    public byte getType(final int row, final int column) {
+        return types[column][row];
+    }
+
+    public double getDouble(final int row, final int column) {
+        return values[column][row];
+    }
+
+    /**
+     * @return the text of the cell, the only accessor that creates an object
+     */
+    public String getText(final int row, final int column) {
+        return new String(text, textOffsets[column][row], textLengths[column][row]);
+    }
+
+    /**
+     * @return the values of a column, only the first {@link #getSize()} entries belong to the batch
+     */
+    public double[] getValues(final int column) {
+        return values[column];
+    }
+
+    /**
+     * @return the type tags of a column, only the first {@link #getSize()} entries belong to the batch
+     */
+    public byte[] getTypes(final int column) {
+        return types[column];
+    }
+
+    /**
+     * @return the bitmap of the empty cells of a column, bit <code>i % 64</code> of entry <code>i / 64</code>
+     * stands for row <code>i</code>
+     */
+    public long[] getNulls(final int column) {
+        return nulls[column];
+    }
+
+    /**
+     * @return the offsets of the texts of a column in {@link #getTextBuffer()}
+     */
+    public int[] getTextOffsets(final int column) {
+        return textOffsets[column];
+    }
+
+    /**
+     * @return the lengths of the texts of a column
+     */
+    public int[] getTextLengths(final int column) {
+        return textLengths[column];
+    }
+
+    /**
+     * @return the buffer that holds the texts of all cells of the batch. It is replaced by a larger one if the
+     * texts of a batch do not fit.
+     */
+    public char[] getTextBuffer() {
+        return text;
+    }
+}
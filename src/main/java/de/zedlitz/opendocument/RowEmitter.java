@@ -0,0 +1,210 @@
+package de.zedlitz.opendocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+
+/**
+ * Hands rows to a receiver only as far as it has asked for them. The rows are read on an executor: each request
+ * starts a task unless one is running already, and the task reads rows until the demand is met, so the parser
+ * never runs ahead of the receiver. Each row is read completely before it is handed over, so it can be used
+ * after the next row has been read.
+ * <p>
+ * After the last row, an error or a cancellation the resource is closed on the executor, never while a row is
+ * being read. A resource that outlives the rows, e.g. the document of a table, can be kept open after the last
+ * row.
+ *
+ * @author jzedlitz
+ */
+final class RowEmitter implements Runnable {
+
+    /**
+     * The receiver of the rows. Its methods are called on the executor, one at a time.
+     */
+    interface Receiver {
+        void onNext(Row row);
+
+        void onError(Throwable error);
+
+        void onComplete();
+    }
+
+    private final Supplier<Row> rows;
+    private final Closeable resource;
+    private final boolean closeAtEnd;
+    private final Executor executor;
+    private final Receiver receiver;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger work = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    private volatile boolean done;
+
+    /**
+     * @param rows     returns the next row or <code>null</code> at the end
+     * @param resource closed when no more rows are read, may be <code>null</code>
+     */
+    RowEmitter(final Supplier<Row> rows, final Closeable resource, final Executor executor,
+               final Receiver receiver) {
+        this(rows, resource, true, executor, receiver);
+    }
+
+    /**
+     * @param rows       returns the next row or <code>null</code> at the end
+     * @param resource   closed after an error or a cancellation, may be <code>null</code>
+     * @param closeAtEnd whether the resource is closed after the last row as well
+     */
+    RowEmitter(final Supplier<Row> rows, final Closeable resource, final boolean closeAtEnd,
+               final Executor executor, final Receiver receiver) {
+        this.rows = rows;
+        this.resource = resource;
+        this.closeAtEnd = closeAtEnd;
+        this.executor = executor;
+        this.receiver = receiver;
+    }
+
+    /**
+     * Read the rows of a table.
+     */
+    static Supplier<Row> rows(final Table table) {
+        return table::nextRow;
+    }
+
+    /**
+     * Read the rows of all tables of a document, one table after the other.
+     */
+    static Supplier<Row> rows(final Document document) {
+        final Table[] current = {document.nextTable()};
+        return () -> {
+            while (current[0] != null) {
+                final Row row = current[0].nextRow();
+                if (row != null) {
+                    return row;
+                }
+                current[0] = document.nextTable();
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Ask for more rows.
+     *
+     * @param n the number of rows, a request that is not positive ends the reading with an
+     *          {@link IllegalArgumentException}
+     */
+    void request(final long n) {
+        if (n <= 0) {
+            invalidRequest = new IllegalArgumentException("The number of requested rows must be positive: " + n);
+        } else {
+            long current;
+            do {
+                current = demand.get();
+            } while (current != Long.MAX_VALUE
+                    && !demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+        }
+        schedule();
+    }
+
+    /**
+     * Stop reading. The receiver gets no more rows after the row that is being read.
+     */
+    void cancel() {
+        cancelled = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (work.getAndIncrement() == 0) {
+            try {
+                executor.execute(this);
+            } catch (final RuntimeException e) {
+                // e.g. an executor that has been shut down
+                finish(e);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        int missed = 1;
+        do {
+            emit();
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit() {
+        while (!done) {
+            if (cancelled) {
+                finish(null);
+                return;
+            }
+            if (invalidRequest != null) {
+                finish(invalidRequest);
+                return;
+            }
+            if (demand.get() == 0) {
+                return;
+            }
+
+            final Row row;
+            try {
+                row = rows.get();
+                if (row != null) {
+                    row.load();
+                }
+            } catch (final RuntimeException e) {
+                finish(e);
+                return;
+            }
+            if (row == null) {
+                finish(null);
+                return;
+            }
+            if (demand.get() != Long.MAX_VALUE) {
+                demand.decrementAndGet();
+            }
+            try {
+                receiver.onNext(row);
+            } catch (final RuntimeException e) {
+                // a receiver that fails is treated as if it had cancelled
+                cancelled = true;
+            }
+        }
+    }
+
+    /**
+     * Close the resource and tell the receiver about the end, unless reading has been cancelled.
+     *
+     * @param error the reason or <code>null</code> if all rows have been read or reading has been cancelled
+     */
+    private void finish(final Throwable error) {
+        if (done) {
+            return;
+        }
+        done = true;
+        Throwable failure = error;
+        if (resource != null && (closeAtEnd || error != null || cancelled)) {
+            try {
+                resource.close();
+            } catch (final IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (cancelled) {
+            return;
+        }
+        if (failure != null) {
+            receiver.onError(failure);
+        } else {
+            receiver.onComplete();
+        }
+    }
+}
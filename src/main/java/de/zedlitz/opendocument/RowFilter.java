@@ -0,0 +1,31 @@
+package de.zedlitz.opendocument;
+
+import java.util.function.Predicate;
+
+
+/**
+ * A condition on the cell of one column that a row has to fulfil to be returned by a table.
+ *
+ * @author jzedlitz
+ * @see Table#where(int, Predicate)
+ */
+class RowFilter {
+    private final int column;
+    private final Predicate<? super Cell> predicate;
+
+    RowFilter(final int column, final Predicate<? super Cell> predicate) {
+        this.column = column;
+        this.predicate = predicate;
+    }
+
+    /**
+     * @return the 0-based index of the column the condition is tested on
+     */
+    int getColumn() {
+        return column;
+    }
+
+    boolean test(final Cell cell) {
+        return predicate.test(cell);
+    }
+}
@@ -0,0 +1,233 @@
+package de.zedlitz.opendocument;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+
+/**
+ * Reads the rows of a table on a thread of its own and maps them on a pool of worker threads, e.g. to convert
+ * the values of the cells into the objects of an application. The results are returned in the order of the rows.
+ * <p>
+ * The parser reads each row completely and hands it to a worker. The pending results are kept in a queue in the
+ * order of the rows; when the queue is full the parser waits, so that it does not run ahead of the workers by more
+ * than the capacity of the queue. The consumer takes the results from the head of the queue and waits if the
+ * result of the next row is not ready yet.
+ * <p>
+ * The metrics show where the time goes: if the queue is mostly full and the parser has to wait, the workers are
+ * the bottleneck; if the queue is mostly empty and the consumer has to wait, it is the parser.
+ *
+ * @param <T> the type of the results
+ * @author jzedlitz
+ * @see Table#pipeline(Function, int, int)
+ */
+public final class RowPipeline<T> implements Iterator<T>, AutoCloseable {
+    private static final CompletableFuture<Object> END = CompletableFuture.completedFuture(null);
+    /**
+     * How long {@link #close()} waits for the parser to stop, it cannot be interrupted while it reads a row.
+     */
+    private static final long PARSER_STOP_MILLIS = 1000;
+
+    private final Table table;
+    private final Function<? super Row, ? extends T> mapper;
+    private final ForkJoinPool workers;
+    private final BlockingQueue<CompletableFuture<?>> pending;
+    private final Thread parser;
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong parserWaits = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private long consumerWaits;
+    private CompletableFuture<?> next;
+    private boolean end;
+
+    /**
+     * @param parallelism the number of worker threads
+     * @param capacity    the number of rows that may be read ahead of the consumer
+     */
+    RowPipeline(final Table table, final Function<? super Row, ? extends T> mapper, final int parallelism,
+                final int capacity) {
+        if (parallelism < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Parallelism and capacity must be positive");
+        }
+        this.table = table;
+        this.mapper = mapper;
+        this.workers = new ForkJoinPool(parallelism);
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.parser = new Thread(this::parse, "ods-reader-parser");
+        this.parser.setDaemon(true);
+        this.parser.start();
+    }
+
+    private void parse() {
+        try {
+            for (Row row = table.nextRow(); row != null && !closed; row = table.nextRow()) {
+                // the cells must have been read before the parser moves on
+                row.load();
+                final Row current = row;
+                put(CompletableFuture.supplyAsync(() -> mapper.apply(current), workers));
+                rows.incrementAndGet();
+            }
+        } catch (final InterruptedException e) {
+            // closed by the consumer
+        } catch (final Throwable e) {
+            failure = e;
+        } finally {
+            putEnd();
+        }
+    }
+
+    /**
+     * Tell the consumer that there are no more rows, even if the parser has failed.
+     */
+    private void putEnd() {
+        if (closed) {
+            // nobody takes the results any more
+            pending.offer(END);
+            return;
+        }
+        try {
+            pending.put(END);
+        } catch (final InterruptedException e) {
+            // closed by the consumer
+        }
+    }
+
+    private void put(final CompletableFuture<?> result) throws InterruptedException {
+        if (!pending.offer(result)) {
+            parserWaits.incrementAndGet();
+            final long start = System.nanoTime();
+            pending.put(result);
+            if (table.getMetrics() != null) {
+                table.getMetrics().timeSpent(ReaderMetrics.Phase.BLOCKED, System.nanoTime() - start);
+            }
+        }
+        final int depth = pending.size();
+        int max;
+        do {
+            max = maxQueueDepth.get();
+        } while (depth > max && !maxQueueDepth.compareAndSet(max, depth));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (end) {
+            return false;
+        }
+        if (next == null) {
+            if (closed) {
+                throw new OdsReaderException("The pipeline has been closed");
+            }
+            try {
+                next = pending.poll();
+                if (next == null) {
+                    consumerWaits++;
+                    next = pending.take();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OdsReaderException("Interrupted while waiting for the next row", e);
+            }
+            if (next == END) {
+                end = true;
+                close();
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                }
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                if (failure != null) {
+                    throw new OdsReaderException("Cannot read a row", failure);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final CompletableFuture<?> result = next;
+        next = null;
+        if (!result.isDone()) {
+            consumerWaits++;
+        }
+        try {
+            return (T) result.join();
+        } catch (final CompletionException e) {
+            close();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new OdsReaderException("Cannot map a row", e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of rows that have been read by the parser
+     */
+    public long getRowCount() {
+        return rows.get();
+    }
+
+    /**
+     * @return the number of rows that have been read but not taken by the consumer yet
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * @return the largest number of rows that have been waiting in the queue at the same time
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return how often the parser had to wait because the queue was full, i.e. the workers or the consumer were
+     * too slow
+     */
+    public long getParserWaits() {
+        return parserWaits.get();
+    }
+
+    /**
+     * @return how often the consumer had to wait for the parser or a worker. It must only be called by the
+     * consumer.
+     */
+    public long getConsumerWaits() {
+        return consumerWaits;
+    }
+
+    /**
+     * Stop the parser and the workers and wait a moment until the parser has stopped. The table cannot be read
+     * any further.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            parser.interrupt();
+            workers.shutdownNow();
+            try {
+                parser.join(PARSER_STOP_MILLIS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
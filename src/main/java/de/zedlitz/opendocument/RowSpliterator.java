@@ -0,0 +1,103 @@
+package de.zedlitz.opendocument;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+
+/**
+ * Splits an indexed table at the rows recorded in the index. Each part is read by a parser of its own that
+ * starts at the recorded row, so the parts of a table can be read in parallel. The row numbers are taken from
+ * the index. All parts report to the measurements of the table, the end of the table is reported when the last
+ * part is done.
+ *
+ * @author jzedlitz
+ */
+class RowSpliterator implements Spliterator<Row> {
+    private final Table template;
+    private final DocumentIndex.Entry entry;
+    private int from;
+    private final int to;
+    private final AtomicInteger openParts;
+    private Table table;
+    private boolean done;
+
+    /**
+     * @param template the table whose settings are used for the parts
+     */
+    RowSpliterator(final Table template, final DocumentIndex.Entry entry) {
+        this(template, entry, 0, entry.getCheckpointCount(), new AtomicInteger(1));
+    }
+
+    /**
+     * Create a spliterator for the rows from the recorded row <code>from</code> up to but excluding the
+     * recorded row <code>to</code>. The first part always starts at the beginning of the table.
+     */
+    private RowSpliterator(final Table template, final DocumentIndex.Entry entry, final int from, final int to,
+                           final AtomicInteger openParts) {
+        this.template = template;
+        this.entry = entry;
+        this.from = from;
+        this.to = to;
+        this.openParts = openParts;
+    }
+
+    private int startRow() {
+        return from == 0 ? 1 : entry.getRowNumber(from);
+    }
+
+    private int endRow() {
+        return to < entry.getCheckpointCount() ? entry.getRowNumber(to) : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super Row> action) {
+        if (done) {
+            return false;
+        }
+        if (table == null) {
+            table = template.openPart(from == 0 ? -1 : from, startRow());
+        }
+
+        final Row row = table.nextRow();
+        if (row == null || row.getRowNum() >= endRow()) {
+            done = true;
+            table.closeParser();
+            if (openParts.decrementAndGet() == 0 && template.getMetrics() != null) {
+                template.getMetrics().tableFinished();
+            }
+            return false;
+        }
+        action.accept(row);
+        return true;
+    }
+
+    @Override
+    public Spliterator<Row> trySplit() {
+        if (table != null || to - from < 2) {
+            return null;
+        }
+
+        final int middle = (from + to) >>> 1;
+        final RowSpliterator prefix = new RowSpliterator(template, entry, from, middle, openParts);
+        openParts.incrementAndGet();
+        this.from = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        if (done) {
+            return 0;
+        }
+        if (to < entry.getCheckpointCount()) {
+            return endRow() - startRow();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -0,0 +1,84 @@
+package de.zedlitz.opendocument;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Append-only storage made of buffers of an allocator. Each record is reserved as a whole and never spans two
+ * buffers, so it can be written and read with the absolute methods of a single buffer. Reading is safe for
+ * several threads once all records have been written.
+ * <p>
+ * The segments start small and double in size up to the given segment size, so that a small table does not
+ * take a large segment and most of a small memory budget can be used.
+ *
+ * @author jzedlitz
+ */
+class SegmentStorage {
+    private static final int INITIAL_SEGMENT_SIZE = 64 << 10;
+
+    private final SpillAllocator allocator;
+    private final int segmentSize;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private long[] starts = new long[16];
+    private long end;
+    private int position;
+
+    SegmentStorage(final SpillAllocator allocator, final int segmentSize) {
+        this.allocator = allocator;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Reserve space for a record.
+     *
+     * @return the address of the record
+     */
+    long reserve(final int size) {
+        final ByteBuffer current = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (current == null || position + size > current.capacity()) {
+            if (segments.size() == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[segments.size()] = end;
+            final int next = current == null ? Math.min(segmentSize, INITIAL_SEGMENT_SIZE)
+                    : (int) Math.min(segmentSize, current.capacity() * 2L);
+            // a record that is larger than a segment gets a segment of its own
+            segments.add(allocator.allocate(Math.max(next, size)));
+            position = 0;
+        }
+        final long address = end;
+        position += size;
+        end += size;
+        return address;
+    }
+
+    /**
+     * @return the segment that contains the given address
+     */
+    private int segment(final long address) {
+        final int i = Arrays.binarySearch(starts, 0, segments.size(), address);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Get the buffer of a record. The position of the buffer is not used, the record starts at
+     * {@link #offset(long)}.
+     */
+    ByteBuffer buffer(final long address) {
+        return segments.get(segment(address));
+    }
+
+    int offset(final long address) {
+        return (int) (address - starts[segment(address)]);
+    }
+
+    /**
+     * @return the number of bytes that have been reserved
+     */
+    long size() {
+        return end;
+    }
+}
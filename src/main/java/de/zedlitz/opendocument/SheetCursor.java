@@ -0,0 +1,369 @@
+package de.zedlitz.opendocument;
+
+import org.apache.commons.lang.math.NumberUtils;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+
+/**
+ * A reusable cursor that moves through the tables, rows and cells of a document. Unlike {@link Table},
+ * {@link Row} and {@link Cell} no object is created per step: the cursor itself holds the state of the current
+ * table, row and cell.
+ * <p>
+ * The values returned by the getters are only valid until the cursor is advanced. In particular the content of
+ * a cell is a view on a buffer that is reused for the next cell. Repeated rows and cells are not expanded, use
+ * {@link #getNumberRowsRepeated()} and {@link #getNumberColumnsRepeated()} to get the size of the run.
+ *
+ * @author jzedlitz
+ */
+public class SheetCursor {
+    private static final String ELEMENT_TABLE = "table";
+    private static final String ELEMENT_ROW = "table-row";
+    private static final String ELEMENT_CELL = "table-cell";
+    private static final String ELEMENT_ANNOTATION = "annotation";
+
+    private final XMLStreamReader xpp;
+    private final StringBuilder content = new StringBuilder();
+    private boolean inTable;
+    private boolean inRow;
+    private String tableName;
+    private int rowNumber;
+    private int numberRowsRepeated;
+    private int columnIndex;
+    private int numberColumnsRepeated;
+    private String valueType;
+    private String value;
+    private String dateValue;
+    private String timeValue;
+    private String booleanValue;
+    private String currency;
+
+    SheetCursor(final XMLStreamReader parser) {
+        this.xpp = parser;
+    }
+
+    private boolean isStartElement(final int eventType, final String namespace, final String localName) {
+        return eventType == XMLStreamConstants.START_ELEMENT && localName.equals(xpp.getLocalName())
+                && namespace.equals(xpp.getNamespaceURI());
+    }
+
+    private boolean isEndElement(final int eventType, final String namespace, final String localName) {
+        return eventType == XMLStreamConstants.END_ELEMENT && localName.equals(xpp.getLocalName())
+                && namespace.equals(xpp.getNamespaceURI());
+    }
+
+    /**
+     * Move to the next table of the document.
+     *
+     * @return <code>false</code> if there are no more tables
+     */
+    public boolean nextTable() {
+        inTable = false;
+        inRow = false;
+
+        try {
+            int eventType = xpp.getEventType();
+
+            while (eventType != XMLStreamConstants.END_DOCUMENT) {
+                if (isStartElement(eventType, Document.NS_TABLE, ELEMENT_TABLE)) {
+                    tableName = xpp.getAttributeValue(Document.NS_TABLE, "name");
+                    rowNumber = 0;
+                    numberRowsRepeated = 1;
+                    inTable = true;
+                    xpp.next();
+
+                    return true;
+                }
+
+                eventType = xpp.next();
+            }
+        } catch (final XMLStreamException e) {
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * Move to the next row of the current table.
+     *
+     * @return <code>false</code> if there are no more rows in the current table
+     */
+    public boolean nextRow() {
+        inRow = false;
+        if (!inTable) {
+            return false;
+        }
+
+        try {
+            int eventType = xpp.getEventType();
+
+            while (!isEndElement(eventType, Document.NS_TABLE, ELEMENT_TABLE)) {
+                if (isStartElement(eventType, Document.NS_TABLE, ELEMENT_ROW)) {
+                    rowNumber += numberRowsRepeated;
+                    numberRowsRepeated = Math.max(1,
+                            NumberUtils.toInt(xpp.getAttributeValue(Document.NS_TABLE, "number-rows-repeated")));
+                    columnIndex = 0;
+                    numberColumnsRepeated = 0;
+                    inRow = true;
+                    xpp.next();
+
+                    return true;
+                }
+
+                eventType = xpp.next();
+            }
+        } catch (final XMLStreamException e) {
+            e.printStackTrace();
+        }
+
+        inTable = false;
+        return false;
+    }
+
+    /**
+     * Move to the next run of cells of the current row.
+     *
+     * @return <code>false</code> if there are no more cells in the current row
+     */
+    public boolean nextCell() {
+        if (!inRow) {
+            return false;
+        }
+
+        try {
+            int eventType = xpp.getEventType();
+
+            while (!isEndElement(eventType, Document.NS_TABLE, ELEMENT_ROW)) {
+                if (isStartElement(eventType, Document.NS_TABLE, ELEMENT_CELL)) {
+                    columnIndex += numberColumnsRepeated;
+                    readAttributes();
+                    readContent();
+                    xpp.next();
+
+                    return true;
+                }
+
+                eventType = xpp.next();
+            }
+        } catch (final XMLStreamException e) {
+            e.printStackTrace();
+        }
+
+        inRow = false;
+        return false;
+    }
+
+    private void readAttributes() {
+        valueType = Cell.TYPE_UNDEFINED;
+        value = null;
+        dateValue = null;
+        timeValue = null;
+        booleanValue = null;
+        currency = null;
+        numberColumnsRepeated = 1;
+
+        for (int i = 0; i < xpp.getAttributeCount(); i++) {
+            final String namespace = xpp.getAttributeNamespace(i);
+            final String localName = xpp.getAttributeLocalName(i);
+
+            if (Document.NS_OFFICE.equals(namespace)) {
+                switch (localName) {
+                    case "value-type":
+                        if (!xpp.getAttributeValue(i).isEmpty()) {
+                            valueType = xpp.getAttributeValue(i);
+                        }
+                        break;
+                    case "value":
+                        value = xpp.getAttributeValue(i);
+                        break;
+                    case "date-value":
+                        dateValue = xpp.getAttributeValue(i);
+                        break;
+                    case "time-value":
+                        timeValue = xpp.getAttributeValue(i);
+                        break;
+                    case "boolean-value":
+                        booleanValue = xpp.getAttributeValue(i);
+                        break;
+                    case "currency":
+                        currency = xpp.getAttributeValue(i);
+                        break;
+                    default:
+                        break;
+                }
+            } else if (Document.NS_TABLE.equals(namespace) && "number-columns-repeated".equals(localName)) {
+                numberColumnsRepeated = Math.max(1, NumberUtils.toInt(xpp.getAttributeValue(i)));
+            }
+        }
+    }
+
+    private void readContent() throws XMLStreamException {
+        content.setLength(0);
+        int eventType = xpp.getEventType();
+
+        while (!isEndElement(eventType, Document.NS_TABLE, ELEMENT_CELL)) {
+            if (isStartElement(eventType, Document.NS_OFFICE, ELEMENT_ANNOTATION)) {
+                // skip note
+                while (!isEndElement(eventType, Document.NS_OFFICE, ELEMENT_ANNOTATION)) {
+                    eventType = xpp.next();
+                }
+            } else if (eventType == XMLStreamConstants.CHARACTERS) {
+                content.append(xpp.getTextCharacters(), xpp.getTextStart(), xpp.getTextLength());
+            }
+
+            eventType = xpp.next();
+        }
+    }
+
+    /**
+     * @return the name of the current table
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return the 1-based number of the current row
+     */
+    public int getRowNum() {
+        return rowNumber;
+    }
+
+    /**
+     * @return the number of rows the current row stands for, at least 1
+     */
+    public int getNumberRowsRepeated() {
+        return numberRowsRepeated;
+    }
+
+    /**
+     * @return the 0-based index of the first column of the current cell
+     */
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * @return the number of columns the current cell stands for, at least 1
+     */
+    public int getNumberColumnsRepeated() {
+        return numberColumnsRepeated;
+    }
+
+    /**
+     * @see Cell#getValueType()
+     */
+    public CharSequence getValueType() {
+        return valueType;
+    }
+
+    /**
+     * @see Cell#getValue()
+     */
+    public CharSequence getValue() {
+        return value;
+    }
+
+    /**
+     * @see Cell#getDateValue()
+     */
+    public CharSequence getDateValue() {
+        return dateValue;
+    }
+
+    /**
+     * @see Cell#getTimeValue()
+     */
+    public CharSequence getTimeValue() {
+        return timeValue;
+    }
+
+    /**
+     * @see Cell#getBooleanValue()
+     */
+    public CharSequence getBooleanValue() {
+        return booleanValue;
+    }
+
+    /**
+     * @see Cell#getCurrency()
+     */
+    public CharSequence getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Returns the content of the current cell. The returned sequence is overwritten when the cursor moves to
+     * the next cell, use <code>toString()</code> to keep it.
+     *
+     * @see Cell#getContent()
+     */
+    public CharSequence getContent() {
+        return content;
+    }
+
+    /**
+     * @see Cell#getDouble()
+     */
+    public double getDouble() {
+        if (value != null && !value.isEmpty()) {
+            return ValueParser.parseDouble(value);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for numeric value");
+    }
+
+    /**
+     * @see Cell#getLong()
+     */
+    public long getLong() {
+        if (value != null && !value.isEmpty()) {
+            return ValueParser.parseLong(value);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for numeric value");
+    }
+
+    /**
+     * @see Cell#getEpochDay()
+     */
+    public long getEpochDay() {
+        if ("date".equals(valueType) && dateValue != null && !dateValue.isEmpty()) {
+            return ValueParser.parseEpochDay(dateValue);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for date value");
+    }
+
+    /**
+     * @see Cell#getSecondOfDay()
+     */
+    public int getSecondOfDay() {
+        if ("time".equals(valueType) && timeValue != null && !timeValue.isEmpty()) {
+            return ValueParser.parseSecondOfDay(timeValue);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for time value");
+    }
+
+    /**
+     * @see Cell#getBooleanPrimitive()
+     */
+    public boolean getBooleanPrimitive() {
+        if ("boolean".equals(valueType) && booleanValue != null && !booleanValue.isEmpty()) {
+            return ValueParser.parseBoolean(booleanValue);
+        }
+
+        throw new OdsReaderException("Wrong cell type " + valueType + " for boolean value");
+    }
+
+    /**
+     * Does the current cell have neither a value type nor any content?
+     */
+    public boolean isEmpty() {
+        return Cell.TYPE_UNDEFINED.equals(valueType) && content.length() == 0;
+    }
+}
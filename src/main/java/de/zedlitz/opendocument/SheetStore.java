@@ -0,0 +1,338 @@
+package de.zedlitz.opendocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+
+/**
+ * A copy of the rows of a table that is stored outside of the heap, so that sheets that are larger than the heap
+ * can be read and the garbage collector does not have to copy or scan the cells. The rows are written into direct
+ * buffers until a memory budget is used up, the remaining rows are written into temporary files that are mapped
+ * into memory. The temporary files are deleted when the store or the document of the table is closed.
+ * <p>
+ * Each stored row is a record with the columns of its cells, followed by the type, the value and the text of
+ * each cell. An index of fixed size entries maps the row numbers to the records, a cell is found by a binary
+ * search over the index and over the columns of its row, like {@link Row#getAt(int)} does. A repeated row is
+ * stored once. A store can be shared by several threads.
+ * <p>
+ * The type of a cell is one of the <code>TYPE_</code> constants of {@link RowBatch}. Like in
+ * {@link Row#nextCell()} only the first column of a run of repeated cells has a value.
+ *
+ * @author jzedlitz
+ * @see Table#store(long)
+ */
+public final class SheetStore implements Closeable {
+    static final int SEGMENT_SIZE = 16 << 20;
+
+    /**
+     * An index entry holds the first row, the row behind the last row and the address of a stored row.
+     */
+    private static final int ENTRY_SIZE = 16;
+    private static final int CELL_HEADER_SIZE = 1 + 8 + 4;
+
+    private final String name;
+    private final SpillAllocator allocator;
+    private final SegmentStorage index;
+    private final SegmentStorage records;
+    private int entryCount;
+    private int firstRow = 1;
+    private int endRow = 1;
+    private int columnCount;
+    private volatile boolean closed;
+
+    private SheetStore(final String name, final SpillAllocator allocator, final int segmentSize) {
+        this.name = name;
+        this.allocator = allocator;
+        // the entries must not span two segments
+        this.index = new SegmentStorage(allocator, Math.max(ENTRY_SIZE, segmentSize / ENTRY_SIZE * ENTRY_SIZE));
+        this.records = new SegmentStorage(allocator, segmentSize);
+    }
+
+    /**
+     * Read the remaining rows of a table.
+     *
+     * @param memoryBudget the number of bytes that are kept in memory before the rows are written to temporary
+     *                     files
+     * @param directory    the directory of the temporary files
+     */
+    static SheetStore read(final Table table, final long memoryBudget, final Path directory, final int segmentSize) {
+        final SheetStore result = new SheetStore(table.getName(), new SpillAllocator(memoryBudget, directory),
+                segmentSize);
+        try {
+            final Writer writer = result.new Writer();
+            for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                writer.add(row);
+            }
+        } catch (final RuntimeException e) {
+            try {
+                result.close();
+            } catch (final IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of the first row in the store
+     */
+    public int getFirstRowNumber() {
+        return firstRow;
+    }
+
+    /**
+     * @return the number of the last row in the store, including the empty rows a sheet is filled with
+     */
+    public int getLastRowNumber() {
+        return endRow - 1;
+    }
+
+    /**
+     * @return the number of columns up to the last column that contains a cell that is not empty
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return the number of bytes that have been written to temporary files
+     */
+    public long getSpilledBytes() {
+        return allocator.getSpilledBytes();
+    }
+
+    /**
+     * @return the address of the cell or -1 if the cell is empty because it is behind the last row or column, its
+     * row has been left out or there is no cell in its column
+     */
+    private long cell(final int rowNumber, final int column) {
+        if (closed) {
+            throw new OdsReaderException("The store has been closed");
+        }
+        if (rowNumber < firstRow || column < 0) {
+            throw new IndexOutOfBoundsException("Cell: " + rowNumber + "/" + column);
+        }
+        if (rowNumber >= endRow || column >= columnCount) {
+            return -1;
+        }
+
+        // the last entry that starts at or in front of the row
+        int low = 0;
+        int high = entryCount - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (index.buffer((long) mid * ENTRY_SIZE).getInt(index.offset((long) mid * ENTRY_SIZE)) <= rowNumber) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        final long entry = (long) low * ENTRY_SIZE;
+        final ByteBuffer entryBuffer = index.buffer(entry);
+        final int entryOffset = index.offset(entry);
+        if (rowNumber >= entryBuffer.getInt(entryOffset + 4)) {
+            return -1;
+        }
+
+        final long record = entryBuffer.getLong(entryOffset + 8);
+        final ByteBuffer buffer = records.buffer(record);
+        final int offset = records.offset(record);
+        final int count = buffer.getInt(offset);
+        int lowCell = 0;
+        int highCell = count - 1;
+        while (lowCell <= highCell) {
+            final int mid = (lowCell + highCell) >>> 1;
+            final int midColumn = buffer.getInt(offset + 4 + mid * 4);
+            if (midColumn < column) {
+                lowCell = mid + 1;
+            } else if (midColumn > column) {
+                highCell = mid - 1;
+            } else {
+                return record + buffer.getInt(offset + 4 + count * 4 + mid * 4);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param rowNumber the 1-based number of the row
+     * @param column    the 0-based index of the column
+     * @return the type of the cell, one of the <code>TYPE_</code> constants of {@link RowBatch}
+     */
+    public byte getType(final int rowNumber, final int column) {
+        final long cell = cell(rowNumber, column);
+        return cell < 0 ? RowBatch.TYPE_EMPTY : records.buffer(cell).get(records.offset(cell));
+    }
+
+    public boolean isEmpty(final int rowNumber, final int column) {
+        return getType(rowNumber, column) == RowBatch.TYPE_EMPTY;
+    }
+
+    /**
+     * @return the number of float, percentage and currency cells, the epoch day of date cells, the second of the
+     * day of time cells, 1 or 0 for boolean cells and <code>NaN</code> for other cells
+     */
+    public double getDouble(final int rowNumber, final int column) {
+        final long cell = cell(rowNumber, column);
+        if (cell < 0) {
+            return Double.NaN;
+        }
+        final ByteBuffer buffer = records.buffer(cell);
+        final int offset = records.offset(cell);
+        final long value = buffer.getLong(offset + 1);
+        switch (buffer.get(offset)) {
+            case RowBatch.TYPE_FLOAT:
+            case RowBatch.TYPE_PERCENTAGE:
+            case RowBatch.TYPE_CURRENCY:
+                return Double.longBitsToDouble(value);
+            case RowBatch.TYPE_DATE:
+            case RowBatch.TYPE_TIME:
+            case RowBatch.TYPE_BOOLEAN:
+                return value;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * @return the epoch day of date cells, the second of the day of time cells, 1 or 0 for boolean cells and the
+     * number of numeric cells without its fraction
+     * @throws OdsReaderException if the cell has no value
+     */
+    public long getLong(final int rowNumber, final int column) {
+        final long cell = cell(rowNumber, column);
+        final ByteBuffer buffer = cell < 0 ? null : records.buffer(cell);
+        final int offset = cell < 0 ? 0 : records.offset(cell);
+        final byte type = cell < 0 ? RowBatch.TYPE_EMPTY : buffer.get(offset);
+        switch (type) {
+            case RowBatch.TYPE_FLOAT:
+            case RowBatch.TYPE_PERCENTAGE:
+            case RowBatch.TYPE_CURRENCY:
+                return (long) Double.longBitsToDouble(buffer.getLong(offset + 1));
+            case RowBatch.TYPE_DATE:
+            case RowBatch.TYPE_TIME:
+            case RowBatch.TYPE_BOOLEAN:
+                return buffer.getLong(offset + 1);
+            default:
+                throw new OdsReaderException("The cell " + rowNumber + "/" + column + " has no value");
+        }
+    }
+
+    public boolean getBoolean(final int rowNumber, final int column) {
+        if (getType(rowNumber, column) != RowBatch.TYPE_BOOLEAN) {
+            throw new OdsReaderException("The cell " + rowNumber + "/" + column + " is not a boolean cell");
+        }
+        return getLong(rowNumber, column) != 0;
+    }
+
+    /**
+     * @return the text of the cell as it is displayed, see {@link Cell#getContent()}
+     */
+    public String getText(final int rowNumber, final int column) {
+        final long cell = cell(rowNumber, column);
+        if (cell < 0) {
+            return "";
+        }
+        final ByteBuffer buffer = records.buffer(cell);
+        final int offset = records.offset(cell);
+        final char[] text = new char[buffer.getInt(offset + 9)];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = buffer.getChar(offset + CELL_HEADER_SIZE + i * 2);
+        }
+        return new String(text);
+    }
+
+    /**
+     * Delete the temporary files. The cells can no longer be read afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        allocator.close();
+    }
+
+    /**
+     * Writes the rows. The cells of a row are collected first, so that the size of its record is known.
+     */
+    private final class Writer {
+        private int cellCount;
+        private int[] columns = new int[64];
+        private byte[] types = new byte[64];
+        private long[] values = new long[64];
+        private String[] texts = new String[64];
+
+        void add(final Row row) {
+            cellCount = 0;
+            int size = 4;
+            for (CellRun run = row.nextCellRun(); run != null; run = row.nextCellRun()) {
+                final Cell cell = run.getCell();
+                if (!cell.isBlank()) {
+                    size += addCell(run.getStartColumn(), cell);
+                }
+            }
+            if (entryCount == 0) {
+                firstRow = row.getRowNum();
+            }
+            endRow = row.getRowNum() + row.getNumberRowsRepeated();
+
+            final long record = records.reserve(size);
+            final ByteBuffer buffer = records.buffer(record);
+            final int start = records.offset(record);
+            buffer.putInt(start, cellCount);
+            int cellOffset = 4 + cellCount * 8;
+            for (int i = 0; i < cellCount; i++) {
+                buffer.putInt(start + 4 + i * 4, columns[i]);
+                buffer.putInt(start + 4 + cellCount * 4 + i * 4, cellOffset);
+
+                final int offset = start + cellOffset;
+                final String text = texts[i];
+                buffer.put(offset, types[i]);
+                buffer.putLong(offset + 1, values[i]);
+                buffer.putInt(offset + 9, text.length());
+                for (int c = 0; c < text.length(); c++) {
+                    buffer.putChar(offset + CELL_HEADER_SIZE + c * 2, text.charAt(c));
+                }
+                cellOffset += CELL_HEADER_SIZE + text.length() * 2;
+                texts[i] = null;
+            }
+
+            final long entry = index.reserve(ENTRY_SIZE);
+            final ByteBuffer entryBuffer = index.buffer(entry);
+            final int entryOffset = index.offset(entry);
+            entryBuffer.putInt(entryOffset, row.getRowNum());
+            entryBuffer.putInt(entryOffset + 4, endRow);
+            entryBuffer.putLong(entryOffset + 8, record);
+            entryCount++;
+        }
+
+        /**
+         * @return the number of bytes the cell needs in the record
+         */
+        private int addCell(final int column, final Cell cell) {
+            if (cellCount == columns.length) {
+                final int size = cellCount * 2;
+                columns = Arrays.copyOf(columns, size);
+                types = Arrays.copyOf(types, size);
+                values = Arrays.copyOf(values, size);
+                texts = Arrays.copyOf(texts, size);
+            }
+            final byte type = RowBatch.type(cell.getValueType());
+            final String text = cell.getContent();
+            columns[cellCount] = column;
+            types[cellCount] = type;
+            values[cellCount] = TableSnapshot.value(type, cell);
+            texts[cellCount] = text;
+            cellCount++;
+            columnCount = Math.max(columnCount, column + 1);
+            return 8 + CELL_HEADER_SIZE + text.length() * 2;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package de.zedlitz.opendocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Allocates memory outside of the heap. Direct buffers are used until the memory budget is used up, after that
+ * each buffer is a temporary file that is mapped into memory. The files are deleted when the allocator is
+ * closed.
+ *
+ * @author jzedlitz
+ */
+class SpillAllocator implements Closeable {
+    private final long memoryBudget;
+    private final Path directory;
+    private final List<Path> files = new ArrayList<>();
+    private long allocated;
+    private long spilled;
+
+    /**
+     * @param memoryBudget the number of bytes that may be allocated as direct buffers
+     * @param directory    the directory of the temporary files
+     */
+    SpillAllocator(final long memoryBudget, final Path directory) {
+        this.memoryBudget = memoryBudget;
+        this.directory = directory;
+    }
+
+    ByteBuffer allocate(final int size) {
+        if (allocated + size <= memoryBudget) {
+            allocated += size;
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        try {
+            final Path file = Files.createTempFile(directory, "ods-reader", ".spill");
+            files.add(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // the mapping stays valid after the channel has been closed
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                spilled += size;
+                return buffer;
+            }
+        } catch (final IOException e) {
+            throw new OdsReaderException("Cannot create a temporary file in " + directory, e);
+        }
+    }
+
+    /**
+     * @return the number of bytes that have been written to temporary files
+     */
+    long getSpilledBytes() {
+        return spilled;
+    }
+
+    List<Path> getFiles() {
+        return files;
+    }
+
+    /**
+     * Delete the temporary files. The direct buffers and mappings are released by the garbage collector once
+     * they are not referenced anymore. A file that is still mapped cannot be deleted on some systems, e.g. on
+     * Windows, it is deleted when the JVM exits.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (final IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+        files.clear();
+    }
+}
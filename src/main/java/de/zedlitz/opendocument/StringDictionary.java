@@ -0,0 +1,263 @@
+package de.zedlitz.opendocument;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A bounded dictionary of the texts of the cells of a document. Columns like a country or a status repeat a few
+ * texts many times; with a dictionary all cells with the same text share one string. The characters are hashed
+ * and compared before a string is created, so a text that is found in the dictionary does not create a string
+ * at all.
+ * <p>
+ * The dictionary takes at most the given number of texts, later texts are not stored. Each column of each table
+ * is watched separately: after {@value #SAMPLE_SIZE} lookups a column in which less than half of the texts have
+ * been found is not looked up anymore, because its texts hardly repeat. The dictionary can be used by several
+ * threads: texts are found without a lock, only new texts are stored under a lock.
+ *
+ * @author jzedlitz
+ * @see DocumentReaderConfig#withStringDictionary(int)
+ */
+public final class StringDictionary {
+    /**
+     * The number of lookups after which the hit rate of a column is checked.
+     */
+    static final int SAMPLE_SIZE = 1024;
+
+    private final int maxSize;
+    // replaced as a whole when it grows, so a lookup always sees a table with free slots
+    private volatile String[] entries = new String[16];
+    private volatile int size;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final AtomicInteger disabledColumns = new AtomicInteger();
+
+    /**
+     * @param maxSize the maximum number of texts in the dictionary
+     */
+    StringDictionary(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the statistics of the columns of a table that is about to be read
+     */
+    Columns forTable() {
+        return new Columns(this);
+    }
+
+    /**
+     * Get the string for the value of an attribute.
+     *
+     * @return <code>null</code> if the value is <code>null</code>
+     */
+    String intern(final String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        return lookup(value);
+    }
+
+    private String lookup(final CharSequence text) {
+        lookups.increment();
+        final int hash = hash(text);
+        final String found = find(hash, text);
+        if (found != null) {
+            hits.increment();
+            return found;
+        }
+        return add(hash, text);
+    }
+
+    private static int hash(final CharSequence text) {
+        int hash = 0;
+        for (int i = 0; i < text.length(); i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * @return the text from the dictionary or <code>null</code> if it has not been stored
+     */
+    private String find(final int hash, final CharSequence text) {
+        final String[] table = entries;
+        final int mask = table.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        for (String entry = table[slot]; entry != null; entry = table[slot]) {
+            if (entry.hashCode() == hash && contentEquals(entry, text)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Store a text that has not been found, unless the dictionary is full.
+     */
+    private String add(final int hash, final CharSequence text) {
+        if (size >= maxSize) {
+            return text.toString();
+        }
+        synchronized (this) {
+            // another thread may have stored the text in the meantime
+            final String[] table = entries;
+            final int mask = table.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            for (String entry = table[slot]; entry != null; entry = table[slot]) {
+                if (entry.hashCode() == hash && contentEquals(entry, text)) {
+                    return entry;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            final String result = text.toString();
+            if (size < maxSize) {
+                table[slot] = result;
+                size++;
+                if (size * 2 > table.length) {
+                    grow();
+                }
+            }
+            return result;
+        }
+    }
+
+    private static boolean contentEquals(final String entry, final CharSequence text) {
+        if (entry.length() != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < entry.length(); i++) {
+            if (entry.charAt(i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        final String[] old = entries;
+        final String[] table = new String[old.length * 2];
+        final int mask = table.length - 1;
+        for (String entry : old) {
+            if (entry != null) {
+                final int hash = entry.hashCode();
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (table[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = entry;
+            }
+        }
+        entries = table;
+    }
+
+    /**
+     * @return the number of texts in the dictionary
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of texts that have been looked up
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return the number of texts that have been found in the dictionary
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the share of the lookups that have found a text, 0 if there has been no lookup
+     */
+    public double getHitRate() {
+        final long all = lookups.sum();
+        return all == 0 ? 0 : (double) hits.sum() / all;
+    }
+
+    /**
+     * @return the number of columns of all tables that are not looked up anymore because their texts hardly
+     * repeat
+     */
+    public int getDisabledColumns() {
+        return disabledColumns.get();
+    }
+
+    @Override
+    public String toString() {
+        return "StringDictionary[size=" + size + ", lookups=" + lookups.sum() + ", hits=" + hits.sum()
+                + ", disabledColumns=" + disabledColumns.get() + "]";
+    }
+
+    /**
+     * Looks up the texts of the cells of one table and watches the hit rate of each of its columns. A table is
+     * read by one thread at a time, so the statistics are not shared between threads.
+     */
+    static final class Columns {
+        private final StringDictionary dictionary;
+        private int[] columnLookups = new int[16];
+        private int[] columnHits = new int[16];
+        private boolean[] columnDisabled = new boolean[16];
+
+        Columns(final StringDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * Get the string for the text of a cell.
+         *
+         * @param column the column of the cell
+         */
+        String intern(final int column, final CharSequence text) {
+            if (text.length() == 0) {
+                return "";
+            }
+            if (column >= columnDisabled.length) {
+                final int length = Math.max(column + 1, columnDisabled.length * 2);
+                columnLookups = Arrays.copyOf(columnLookups, length);
+                columnHits = Arrays.copyOf(columnHits, length);
+                columnDisabled = Arrays.copyOf(columnDisabled, length);
+            }
+            if (columnDisabled[column]) {
+                return text.toString();
+            }
+
+            dictionary.lookups.increment();
+            columnLookups[column]++;
+            final int hash = hash(text);
+            String result = dictionary.find(hash, text);
+            if (result != null) {
+                dictionary.hits.increment();
+                columnHits[column]++;
+            } else {
+                result = dictionary.add(hash, text);
+            }
+            if (columnLookups[column] == SAMPLE_SIZE && columnHits[column] * 2 < SAMPLE_SIZE) {
+                columnDisabled[column] = true;
+                dictionary.disabledColumns.incrementAndGet();
+            }
+            return result;
+        }
+
+        /**
+         * Get the string for the value of an attribute.
+         *
+         * @return <code>null</code> if the value is <code>null</code>
+         */
+        String intern(final String value) {
+            return dictionary.intern(value);
+        }
+    }
+}
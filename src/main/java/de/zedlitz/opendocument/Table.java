@@ -4,9 +4,21 @@ import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Spliterators;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -19,14 +31,114 @@ import java.util.stream.StreamSupport;
 public class Table implements Sheet, Iterable<Row> {
     static final QName ELEMENT_TABLE = new QName(Document.NS_TABLE, "table");
 
-    private static final String ATTRIBUTE_NAME = "name";
-    private final XMLStreamReader xpp;
+    static final String ATTRIBUTE_NAME = "name";
+    private final Document document;
+    private final DocumentIndex.Entry indexEntry;
+    private final StringDictionary.Columns dictionary;
+    private final ReaderMetrics metrics;
+    private XMLStreamReader xpp;
     private String name;
     private int rowNumber = 1;
+    private boolean skipTrailingEmptyCells;
+    private boolean skipTrailingEmptyRows;
+    private boolean expandRepeatedRows;
+    private int[] projection;
+    private List<RowFilter> filters;
+    private Deque<Row> lookahead;
+    private Row repeatedRow;
+    private int repetition;
+    private Row returnedRow;
+    private long returnedAt;
+    private boolean finished;
+    private Closeable ownParser;
+    private boolean parserClosed;
 
     Table(final XMLStreamReader parser) {
-        this.xpp = parser;
+        this(parser, null, null);
+    }
+
+    /**
+     * Create a table that has been found in the index of a document. It can be reopened at any of the rows that
+     * are recorded in the index.
+     */
+    Table(final XMLStreamReader parser, final Document document, final DocumentIndex.Entry indexEntry) {
+        this(parser, document, indexEntry, null);
+    }
+
+    /**
+     * @param metrics the measurements of the table the new table is a part of or <code>null</code> to start new
+     *                measurements
+     */
+    private Table(final XMLStreamReader parser, final Document document, final DocumentIndex.Entry indexEntry,
+                  final ReaderMetrics metrics) {
+        this.document = document;
+        this.indexEntry = indexEntry;
+        if (document != null && indexEntry != null) {
+            own(parser);
+        } else {
+            this.xpp = parser;
+        }
+        this.dictionary = document != null && document.getStringDictionary() != null
+                ? document.getStringDictionary().forTable() : null;
         this.setName(parser.getAttributeValue(Document.NS_TABLE, Table.ATTRIBUTE_NAME));
+        if (metrics != null) {
+            this.metrics = metrics;
+        } else {
+            this.metrics = document != null && document.getMetrics() != null
+                    ? Document.active(document.getMetrics().forTable(name)) : null;
+        }
+    }
+
+    /**
+     * Open a new table with the same settings that starts at one of the rows recorded in the index. All parts of
+     * a table share its measurements, the end of the table is reported by the caller.
+     *
+     * @param checkpoint the recorded row or -1 to start at the beginning of the table
+     * @param startRow   the number of the recorded row
+     */
+    Table openPart(final int checkpoint, final int startRow) {
+        final Table result = new Table(document.openParser(indexEntry, checkpoint), document, indexEntry, metrics);
+        result.finished = true;
+        result.rowNumber = startRow;
+        result.skipTrailingEmptyCells = skipTrailingEmptyCells;
+        result.expandRepeatedRows = expandRepeatedRows;
+        result.projection = projection;
+        result.filters = filters;
+        return result;
+    }
+
+    /**
+     * Read from a parser that has been opened for this table only. It is closed at the end of the table, when the
+     * table moves to another part of the document or when the document is closed.
+     */
+    private void own(final XMLStreamReader parser) {
+        closeParser();
+        xpp = parser;
+        parserClosed = false;
+        ownParser = () -> {
+            try {
+                parser.close();
+            } catch (final XMLStreamException e) {
+                throw new IOException(e);
+            }
+        };
+        document.register(ownParser);
+    }
+
+    /**
+     * Close the parser if it has been opened for this table only. No more rows can be read afterwards.
+     */
+    void closeParser() {
+        if (ownParser != null) {
+            document.unregister(ownParser);
+            try {
+                ownParser.close();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+            ownParser = null;
+            parserClosed = true;
+        }
     }
 
     private boolean isTableEndElement(int eventType) {
@@ -39,7 +151,13 @@ public class Table implements Sheet, Iterable<Row> {
                 && Row.ELEMENT_ROW.equals(xpp.getName());
     }
 
-    public final Row nextRow() {
+    /**
+     * Read the next <code>table:table-row</code> element from the parser.
+     */
+    private Row parseRow() {
+        if (parserClosed) {
+            return null;
+        }
         Row result = null;
 
         try {
@@ -54,6 +172,29 @@ public class Table implements Sheet, Iterable<Row> {
                 if (isRowStartElement(eventType)) {
                     // @PMD:REVIEWED:AvoidInstantiatingObjectsInLoops: by jzedlitz on 12.04.06 15:30
                     result = new Row(xpp, rowNumber);
+                    result.setSkipTrailingEmptyCells(skipTrailingEmptyCells);
+                    result.setProjection(projection);
+                    result.setDictionary(dictionary);
+                    result.setMetrics(metrics);
+                    if (filters != null) {
+                        xpp.next();
+                        if (!result.matches(filters)) {
+                            // the parser is at the end of the row
+                            rowNumber += result.getNumberRowsRepeated();
+                            result = null;
+                            eventType = xpp.next();
+                            continue;
+                        }
+                        if (result.getNumberRowsRepeated() > 1) {
+                            result.load();
+                        }
+                        // the parser is positioned behind the cells that have been read
+                        break;
+                    }
+                    if (result.getNumberRowsRepeated() > 1) {
+                        // the cells are shared by all repetitions of the row
+                        result.load();
+                    }
                     xpp.next();
 
                     break;
@@ -65,10 +206,335 @@ public class Table implements Sheet, Iterable<Row> {
             e.printStackTrace();
         }
 
-        rowNumber++;
+        if (result == null) {
+            // the end of the table
+            closeParser();
+        }
+        rowNumber += result == null ? 1 : result.getNumberRowsRepeated();
         return result;
     }
 
+    private Row readRow() {
+        if (lookahead != null && !lookahead.isEmpty()) {
+            return lookahead.poll();
+        }
+
+        final Row row = parseRow();
+
+        if (row != null && skipTrailingEmptyRows && row.isEmpty()) {
+            // empty rows are only returned if there is a non-empty row behind them
+            if (lookahead == null) {
+                lookahead = new ArrayDeque<>();
+            }
+            Row next = row;
+            while (next != null && next.isEmpty()) {
+                lookahead.add(next);
+                next = parseRow();
+            }
+            if (next == null) {
+                lookahead.clear();
+                return null;
+            }
+            lookahead.add(next);
+            return lookahead.poll();
+        }
+
+        return row;
+    }
+
+    /**
+     * Returns the next row of the table. A <code>table:table-row</code> element with a
+     * <code>table:number-rows-repeated</code> attribute is returned as a single row unless
+     * {@link #setExpandRepeatedRows(boolean)} has been enabled.
+     *
+     * @return the next row or <code>null</code> if the end of the table has been reached.
+     */
+    public final Row nextRow() {
+        if (metrics == null) {
+            return readNextRow();
+        }
+
+        final long start = System.nanoTime();
+        if (returnedRow != null) {
+            // the time since the last row has been returned, without reading its cells
+            metrics.timeSpent(ReaderMetrics.Phase.CALLBACK,
+                    Math.max(0, start - returnedAt - returnedRow.getCellNanos()));
+        }
+        final Row result = readNextRow();
+        returnedAt = System.nanoTime();
+        metrics.timeSpent(ReaderMetrics.Phase.PARSE, returnedAt - start);
+        if (result != null) {
+            metrics.rowRead();
+        } else if (!finished) {
+            finished = true;
+            metrics.tableFinished();
+        }
+        returnedRow = result;
+        return result;
+    }
+
+    private Row readNextRow() {
+        if (repeatedRow != null) {
+            final Row result = repeatedRow.getRepetition(repetition++);
+            if (repetition >= repeatedRow.getNumberRowsRepeated()) {
+                repeatedRow = null;
+            }
+            return result;
+        }
+
+        final Row result = readRow();
+
+        if (result != null && expandRepeatedRows && result.getNumberRowsRepeated() > 1) {
+            repeatedRow = result;
+            repetition = 1;
+            return result.getRepetition(0);
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the remaining rows into an immutable snapshot that is stored column by column. The snapshot needs much
+     * less memory than the rows and cells and allows to read any cell in constant time, e.g. from several threads.
+     *
+     * @see TableSnapshot
+     */
+    public TableSnapshot load() {
+        return TableSnapshot.read(this);
+    }
+
+    /**
+     * Read the remaining rows into a store outside of the heap, see {@link SheetStore}. Temporary files are created
+     * in the default directory for temporary files.
+     *
+     * @param memoryBudget the number of bytes that are kept in memory before the rows are written to temporary
+     *                     files
+     */
+    public SheetStore store(final long memoryBudget) {
+        return store(memoryBudget, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Read the remaining rows into a store outside of the heap, see {@link SheetStore}. The store is closed
+     * together with the document of the table. A table that has not been read from a document needs the store to
+     * be closed by the caller.
+     *
+     * @param memoryBudget the number of bytes that are kept in memory before the rows are written to temporary
+     *                     files
+     * @param directory    the directory of the temporary files
+     */
+    public SheetStore store(final long memoryBudget, final Path directory) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Negative memory budget: " + memoryBudget);
+        }
+        final SheetStore result = SheetStore.read(this, memoryBudget, directory, SheetStore.SEGMENT_SIZE);
+        if (document != null) {
+            document.register(result);
+        }
+        return result;
+    }
+
+    /**
+     * Read the remaining rows on a thread of their own and map them on worker threads, e.g. to convert the values
+     * of the cells. The results are returned in the order of the rows. The table must not be used otherwise
+     * while the pipeline is running.
+     *
+     * @param mapper      called for each row on one of the worker threads
+     * @param parallelism the number of worker threads
+     * @param capacity    the number of rows that may be read ahead of the consumer
+     * @see RowPipeline
+     */
+    public <T> RowPipeline<T> pipeline(final Function<? super Row, ? extends T> mapper, final int parallelism,
+                                       final int capacity) {
+        return new RowPipeline<>(this, mapper, parallelism, capacity);
+    }
+
+    /**
+     * Read the next rows into the given batch. The batch is cleared first. A repeated row fills as many rows of
+     * the batch as it stands for, the repetitions that do not fit are returned by the next call.
+     *
+     * @return the number of rows that have been read, 0 at the end of the table
+     */
+    public int nextBatch(final RowBatch batch) {
+        batch.clear();
+        while (!batch.isFull()) {
+            final Row row = nextRow();
+            if (row == null) {
+                break;
+            }
+            final int count = Math.min(row.getNumberRowsRepeated(), batch.remaining());
+            batch.add(row, count);
+            if (count < row.getNumberRowsRepeated()) {
+                if (lookahead == null) {
+                    lookahead = new ArrayDeque<>();
+                }
+                lookahead.addFirst(row.remainder(count));
+            }
+        }
+        return batch.getSize();
+    }
+
+    /**
+     * Move to the given row, so that the next call of {@link #nextRow()} returns it. If the row is one of the
+     * repetitions of a repeated row, the returned row stands for the remaining repetitions.
+     * <p>
+     * A table that has been read with an index of its document starts reading at the closest row in front of the
+     * given one that is recorded in the index. Other tables skip the rows in between and cannot move backwards.
+     *
+     * @param n the 1-based number of the row
+     * @see Document#index()
+     */
+    public void seekRow(final int n) {
+        if (seekPending(n)) {
+            return;
+        }
+        repeatedRow = null;
+        if (lookahead != null) {
+            lookahead.clear();
+        }
+
+        if (indexEntry != null) {
+            final int checkpoint = indexEntry.findCheckpoint(n);
+            final int checkpointRow = checkpoint < 0 ? 1 : indexEntry.getRowNumber(checkpoint);
+            if (parserClosed || n < rowNumber || checkpointRow > rowNumber) {
+                own(document.openParser(indexEntry, checkpoint));
+                rowNumber = checkpointRow;
+            }
+        }
+
+        if (n < rowNumber) {
+            throw new OdsReaderException("Cannot move back to row " + n + " of a table without an index");
+        }
+        skipRowsBefore(n);
+    }
+
+    /**
+     * Skip the next rows. The rows that are skipped are not created, only the
+     * <code>table:number-rows-repeated</code> attribute of each row element is read. A repeated row counts as
+     * the number of rows it stands for, rows that are rejected by a filter count as well.
+     *
+     * @param n the number of rows to skip
+     * @see #seekRow(int)
+     */
+    public void skipRows(final long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Cannot skip a negative number of rows: " + n);
+        }
+        seekRow((int) Math.min(Integer.MAX_VALUE, getNextRowNumber() + Math.min(n, Integer.MAX_VALUE)));
+    }
+
+    /**
+     * @return the number of the row that is returned by the next call of {@link #nextRow()} if it exists
+     */
+    private long getNextRowNumber() {
+        if (repeatedRow != null) {
+            return (long) repeatedRow.getRowNum() + repetition;
+        }
+        if (lookahead != null && !lookahead.isEmpty()) {
+            return lookahead.peek().getRowNum();
+        }
+        return rowNumber;
+    }
+
+    /**
+     * Look for the row among the rows that have already been read but not returned.
+     */
+    private boolean seekPending(final int n) {
+        if (repeatedRow != null) {
+            final int offset = n - repeatedRow.getRowNum();
+            if (offset < repetition) {
+                return false;
+            }
+            if (offset < repeatedRow.getNumberRowsRepeated()) {
+                repetition = offset;
+                return true;
+            }
+            repeatedRow = null;
+        }
+
+        while (lookahead != null && !lookahead.isEmpty()) {
+            final Row row = lookahead.peek();
+            final int offset = n - row.getRowNum();
+            if (offset < 0) {
+                return false;
+            }
+            lookahead.poll();
+            if (offset < row.getNumberRowsRepeated()) {
+                lookahead.addFirst(row.remainder(offset));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void skipRowsBefore(final int n) {
+        try {
+            int eventType = xpp.getEventType();
+
+            while (!isTableEndElement(eventType)) {
+                if (isRowStartElement(eventType)) {
+                    final int repeated = Row.numberRowsRepeated(xpp);
+                    if (rowNumber + repeated > n) {
+                        break;
+                    }
+                    skipElement();
+                    rowNumber += repeated;
+                }
+
+                eventType = xpp.next();
+            }
+        } catch (final XMLStreamException e) {
+            e.printStackTrace();
+        }
+
+        if (rowNumber < n) {
+            // the row is a repetition of a repeated row
+            final Row row = parseRow();
+            if (row != null) {
+                if (lookahead == null) {
+                    lookahead = new ArrayDeque<>();
+                }
+                lookahead.add(row.remainder(n - row.getRowNum()));
+            }
+        }
+    }
+
+    /**
+     * Move the parser to the end tag of the element it is positioned at.
+     */
+    private void skipElement() throws XMLStreamException {
+        skipElement(xpp);
+    }
+
+    /**
+     * Move the given parser to the end tag of the element it is positioned at. The attributes and the text of the
+     * element are not read.
+     */
+    static void skipElement(final XMLStreamReader parser) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int eventType = parser.next();
+            if (eventType == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * @return the document the table has been read from or <code>null</code> if it has been read from a parser
+     */
+    Document getDocument() {
+        return document;
+    }
+
+    /**
+     * @return the metrics of the document of the table or <code>null</code> if nothing is measured
+     */
+    ReaderMetrics getMetrics() {
+        return metrics;
+    }
 
     /**
      * @see de.zedlitz.opendocument.Table#getName()
@@ -84,6 +550,102 @@ public class Table implements Sheet, Iterable<Row> {
         this.name = name;
     }
 
+    /**
+     * Stop iterating the cells of each row after its last cell that has a value type or content.
+     *
+     * @see Row#setSkipTrailingEmptyCells(boolean)
+     */
+    public void setSkipTrailingEmptyCells(final boolean skipTrailingEmptyCells) {
+        this.skipTrailingEmptyCells = skipTrailingEmptyCells;
+    }
+
+    /**
+     * Stop iterating after the last row that contains a non-empty cell. LibreOffice often fills a table with an
+     * empty row that is repeated up to the maximum number of rows. In this mode every row is read into memory
+     * before it is returned and {@link #openStream()} cannot be split.
+     */
+    public void setSkipTrailingEmptyRows(final boolean skipTrailingEmptyRows) {
+        this.skipTrailingEmptyRows = skipTrailingEmptyRows;
+    }
+
+    /**
+     * Return each repetition of a repeated row as a row of its own. The repetitions share the parsed cells.
+     *
+     * @see Row#getRepetition(int)
+     */
+    public void setExpandRepeatedRows(final boolean expandRepeatedRows) {
+        this.expandRepeatedRows = expandRepeatedRows;
+    }
+
+    /**
+     * Read only the given columns. The rows that are read afterwards return the cells of these columns in
+     * ascending order, each with its index in the table. The other cells are skipped without reading their
+     * attributes and text. Rows that end in front of a column return <code>null</code> for it like for the end of
+     * the row.
+     * <p>
+     * A column that is part of a run of repeated cells but not its first column is an empty cell, as without a
+     * projection. {@link Row#getAt(int)} can only be used for the projected columns.
+     *
+     * @param columns the 0-based indexes of the columns
+     * @return this table
+     */
+    public Table project(final int... columns) {
+        final int[] sorted = Arrays.stream(columns).sorted().distinct().toArray();
+        if (sorted.length > 0 && sorted[0] < 0) {
+            throw new IllegalArgumentException("Invalid column index: " + sorted[0]);
+        }
+        this.projection = sorted;
+        return this;
+    }
+
+    /**
+     * Read only the columns with the given names, e.g. <code>project("A", "D", "AA")</code>.
+     *
+     * @see #project(int...)
+     */
+    public Table project(final String... columnNames) {
+        final int[] columns = new int[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            columns[i] = Cell.getColumnIndex(columnNames[i]);
+        }
+        return project(columns);
+    }
+
+    /**
+     * Only return the rows whose cell in the given column fulfils the condition. The condition is tested as soon
+     * as the cell has been read. The rest of a row that does not fulfil it is skipped without reading any more
+     * cells, so a filter on one of the first columns saves most of the work. A column that is missing in a row
+     * is tested as an empty cell. The condition sees the same cell as {@link Row#nextCell()} and
+     * {@link Row#getAt(int)}, so a column that is covered by the repetition of a repeated cell, but is not its
+     * first column, is tested as an empty cell as well. Several conditions have to be fulfilled all.
+     * <p>
+     * The rows that are returned keep their row numbers.
+     *
+     * @param column    the 0-based index of the column
+     * @param predicate the condition, e.g. on {@link Cell#getValue()}, {@link Cell#getValueType()} or
+     *                  {@link Cell#getContent()}
+     * @return this table
+     */
+    public Table where(final int column, final Predicate<? super Cell> predicate) {
+        if (column < 0) {
+            throw new IllegalArgumentException("Invalid column index: " + column);
+        }
+        final List<RowFilter> newFilters = filters == null ? new ArrayList<>() : new ArrayList<>(filters);
+        newFilters.add(new RowFilter(column, predicate));
+        newFilters.sort(Comparator.comparingInt(RowFilter::getColumn));
+        this.filters = newFilters;
+        return this;
+    }
+
+    /**
+     * Only return the rows whose cell in the column with the given name, e.g. "A", fulfils the condition.
+     *
+     * @see #where(int, Predicate)
+     */
+    public Table where(final String columnName, final Predicate<? super Cell> predicate) {
+        return where(Cell.getColumnIndex(columnName), predicate);
+    }
+
     public void eachRow(final Consumer<Row> c) {
         Row nextRow = this.nextRow();
 
@@ -94,7 +656,23 @@ public class Table implements Sheet, Iterable<Row> {
         }
     }
 
+    /**
+     * Returns the remaining rows of the table. The stream is only split if the caller has called both
+     * {@link Document#keepInMemory()} and {@link Document#index(int)} (or one of the other <code>index</code>
+     * methods) before calling it, which {@link Document#parallelStream()} does for a content below the in-memory
+     * limit, and no row has been read yet. Then <code>openStream().parallel()</code> reads the parts of the table
+     * between the rows recorded in the index concurrently and the rows keep their order. Otherwise the stream
+     * silently stays sequential, because each part would inflate the content in front of it again.
+     *
+     * @see Document#index(int)
+     * @see Document#keepInMemory()
+     */
     public Stream<Row> openStream() {
+        if (indexEntry != null && document.isInMemory() && rowNumber == 1 && repeatedRow == null
+                && !skipTrailingEmptyRows && (lookahead == null || lookahead.isEmpty())) {
+            return StreamSupport.stream(new RowSpliterator(this, indexEntry), false);
+        }
+
         Iterator<Row> iterator = new RowIterator(this);
 
         return StreamSupport.stream(
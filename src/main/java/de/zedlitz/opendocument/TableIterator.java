@@ -0,0 +1,29 @@
+package de.zedlitz.opendocument;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+class TableIterator implements Iterator<Table> {
+    private final Document document;
+    private Table next;
+
+    TableIterator(Document document) {
+        this.document = document;
+        this.next = document.nextTable();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Table next() {
+        if (next == null) {
+            throw new NoSuchElementException("No more tables available.");
+        }
+        Table current = next;
+        next = document.nextTable();
+        return current;
+    }
+}
@@ -0,0 +1,314 @@
+package de.zedlitz.opendocument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * An immutable copy of the rows of a table that is stored column by column. The values are kept in primitive
+ * arrays and the texts of the cells are stored once per distinct text in a dictionary, so a snapshot needs only
+ * a small part of the memory of the rows and cells it has been read from.
+ * <p>
+ * A row that stands for several rows and the empty rows a sheet is filled with are stored only once. Each cell
+ * can be read in constant time by its row number and column index. A snapshot can be shared by several threads.
+ * <p>
+ * The type of a cell is one of the <code>TYPE_</code> constants of {@link RowBatch}. Like in
+ * {@link Row#nextCell()} only the first column of a run of repeated cells has a value.
+ *
+ * @author jzedlitz
+ * @see Table#load()
+ */
+public final class TableSnapshot {
+    private static final int NO_TEXT = -1;
+
+    private final String name;
+    private final int firstRow;
+    private final int endRow;
+    private final int columnCount;
+    /**
+     * The index of the stored row for each row number from <code>firstRow</code> on. Rows behind the end of the
+     * array belong to the last stored row.
+     */
+    private final int[] rowGroups;
+    private final byte[][] types;
+    private final long[][] values;
+    private final int[][] texts;
+    private final String[] dictionary;
+
+    private TableSnapshot(final Builder builder) {
+        this.name = builder.name;
+        this.firstRow = Math.max(1, builder.firstRow);
+        this.endRow = builder.endRow;
+        this.columnCount = builder.columnCount;
+        this.rowGroups = Arrays.copyOf(builder.rowGroups, builder.rowGroupCount);
+        this.dictionary = builder.dictionary.toArray(new String[0]);
+
+        final int groups = builder.groupCount;
+        this.types = new byte[columnCount][groups];
+        this.values = new long[columnCount][groups];
+        this.texts = new int[columnCount][groups];
+        for (int column = 0; column < columnCount; column++) {
+            Arrays.fill(texts[column], NO_TEXT);
+        }
+        for (int i = 0; i < builder.cellCount; i++) {
+            final int column = builder.cellColumns[i];
+            final int group = builder.cellGroups[i];
+            types[column][group] = builder.cellTypes[i];
+            values[column][group] = builder.cellValues[i];
+            texts[column][group] = builder.cellTexts[i];
+        }
+    }
+
+    /**
+     * Read the remaining rows of a table.
+     */
+    static TableSnapshot read(final Table table) {
+        final Builder builder = new Builder(table.getName());
+        for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+            builder.add(row);
+        }
+        return new TableSnapshot(builder);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of the first row in the snapshot
+     */
+    public int getFirstRowNumber() {
+        return firstRow;
+    }
+
+    /**
+     * @return the number of the last row in the snapshot, including the empty rows a sheet is filled with
+     */
+    public int getLastRowNumber() {
+        return endRow - 1;
+    }
+
+    /**
+     * @return the number of columns up to the last column that contains a cell that is not empty
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return the stored row or -1 if the cell is empty because it is behind the last row or column or its row
+     * has been left out
+     */
+    private int group(final int rowNumber, final int column) {
+        if (rowNumber < firstRow || column < 0) {
+            throw new IndexOutOfBoundsException("Cell: " + rowNumber + "/" + column);
+        }
+        if (rowNumber >= endRow || column >= columnCount || rowGroups.length == 0) {
+            return -1;
+        }
+        final int i = rowNumber - firstRow;
+        return rowGroups[Math.min(i, rowGroups.length - 1)];
+    }
+
+    /**
+     * @param rowNumber the 1-based number of the row
+     * @param column    the 0-based index of the column
+     * @return the type of the cell, one of the <code>TYPE_</code> constants of {@link RowBatch}
+     */
+    public byte getType(final int rowNumber, final int column) {
+        final int group = group(rowNumber, column);
+        return group < 0 ? RowBatch.TYPE_EMPTY : types[column][group];
+    }
+
+    public boolean isEmpty(final int rowNumber, final int column) {
+        return getType(rowNumber, column) == RowBatch.TYPE_EMPTY;
+    }
+
+    /**
+     * @return the number of float, percentage and currency cells, the epoch day of date cells, the second of the
+     * day of time cells, 1 or 0 for boolean cells and <code>NaN</code> for other cells
+     */
+    public double getDouble(final int rowNumber, final int column) {
+        final int group = group(rowNumber, column);
+        if (group < 0) {
+            return Double.NaN;
+        }
+        final long value = values[column][group];
+        switch (types[column][group]) {
+            case RowBatch.TYPE_FLOAT:
+            case RowBatch.TYPE_PERCENTAGE:
+            case RowBatch.TYPE_CURRENCY:
+                return Double.longBitsToDouble(value);
+            case RowBatch.TYPE_DATE:
+            case RowBatch.TYPE_TIME:
+            case RowBatch.TYPE_BOOLEAN:
+                return value;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * @return the epoch day of date cells, the second of the day of time cells, 1 or 0 for boolean cells and the
+     * number of numeric cells without its fraction
+     * @throws OdsReaderException if the cell has no value
+     */
+    public long getLong(final int rowNumber, final int column) {
+        final int group = group(rowNumber, column);
+        final byte type = group < 0 ? RowBatch.TYPE_EMPTY : types[column][group];
+        switch (type) {
+            case RowBatch.TYPE_FLOAT:
+            case RowBatch.TYPE_PERCENTAGE:
+            case RowBatch.TYPE_CURRENCY:
+                return (long) Double.longBitsToDouble(values[column][group]);
+            case RowBatch.TYPE_DATE:
+            case RowBatch.TYPE_TIME:
+            case RowBatch.TYPE_BOOLEAN:
+                return values[column][group];
+            default:
+                throw new OdsReaderException("The cell " + rowNumber + "/" + column + " has no value");
+        }
+    }
+
+    public boolean getBoolean(final int rowNumber, final int column) {
+        if (getType(rowNumber, column) != RowBatch.TYPE_BOOLEAN) {
+            throw new OdsReaderException("The cell " + rowNumber + "/" + column + " is not a boolean cell");
+        }
+        return getLong(rowNumber, column) != 0;
+    }
+
+    /**
+     * @return the text of the cell as it is displayed, see {@link Cell#getContent()}
+     */
+    public String getText(final int rowNumber, final int column) {
+        final int group = group(rowNumber, column);
+        if (group < 0 || texts[column][group] == NO_TEXT) {
+            return "";
+        }
+        return dictionary[texts[column][group]];
+    }
+
+    /**
+     * @return the value of a cell as it is stored: the raw bits of numbers, the epoch day of dates, the second of
+     * the day of times and 1 or 0 for booleans
+     */
+    static long value(final byte type, final Cell cell) {
+        switch (type) {
+            case RowBatch.TYPE_FLOAT:
+            case RowBatch.TYPE_PERCENTAGE:
+            case RowBatch.TYPE_CURRENCY:
+                return Double.doubleToRawLongBits(cell.getValue() != null ? cell.getDouble() : Double.NaN);
+            case RowBatch.TYPE_DATE:
+                return cell.getDateValue() != null ? cell.getEpochDay() : 0;
+            case RowBatch.TYPE_TIME:
+                return cell.getTimeValue() != null ? cell.getSecondOfDay() : 0;
+            case RowBatch.TYPE_BOOLEAN:
+                return cell.getBooleanValue() != null && cell.getBooleanPrimitive() ? 1 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return the number of distinct texts
+     */
+    int getDictionarySize() {
+        return dictionary.length;
+    }
+
+    /**
+     * Collects the cells of the rows. The cells are kept as a list of coordinates until the number of columns is
+     * known.
+     */
+    private static final class Builder {
+        private final String name;
+        private final Map<String, Integer> textIds = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int firstRow = -1;
+        private int endRow;
+        private int columnCount;
+        private int groupCount;
+        private int[] rowGroups = new int[64];
+        private int rowGroupCount;
+        private int cellCount;
+        private int[] cellColumns = new int[256];
+        private int[] cellGroups = new int[256];
+        private byte[] cellTypes = new byte[256];
+        private long[] cellValues = new long[256];
+        private int[] cellTexts = new int[256];
+
+        Builder(final String name) {
+            this.name = name;
+        }
+
+        void add(final Row row) {
+            if (firstRow < 0) {
+                firstRow = row.getRowNum();
+                endRow = firstRow;
+            }
+            final int group = groupCount++;
+
+            // the rows of the previous group are known now that it is not the last one anymore
+            if (group > 0) {
+                while (rowGroupCount < endRow - firstRow) {
+                    addRowGroup(group - 1);
+                }
+            }
+            // rows that have been left out by a filter are empty
+            while (rowGroupCount < row.getRowNum() - firstRow) {
+                addRowGroup(-1);
+            }
+            addRowGroup(group);
+            endRow = row.getRowNum() + row.getNumberRowsRepeated();
+
+            for (CellRun run = row.nextCellRun(); run != null; run = row.nextCellRun()) {
+                final Cell cell = run.getCell();
+                if (!cell.isBlank()) {
+                    addCell(group, run.getStartColumn(), cell);
+                }
+            }
+        }
+
+        private void addRowGroup(final int group) {
+            if (rowGroupCount == rowGroups.length) {
+                rowGroups = Arrays.copyOf(rowGroups, rowGroupCount * 2);
+            }
+            rowGroups[rowGroupCount++] = group;
+        }
+
+        private void addCell(final int group, final int column, final Cell cell) {
+            if (cellCount == cellColumns.length) {
+                final int size = cellCount * 2;
+                cellColumns = Arrays.copyOf(cellColumns, size);
+                cellGroups = Arrays.copyOf(cellGroups, size);
+                cellTypes = Arrays.copyOf(cellTypes, size);
+                cellValues = Arrays.copyOf(cellValues, size);
+                cellTexts = Arrays.copyOf(cellTexts, size);
+            }
+            final byte type = RowBatch.type(cell.getValueType());
+            cellColumns[cellCount] = column;
+            cellGroups[cellCount] = group;
+            cellTypes[cellCount] = type;
+            cellValues[cellCount] = value(type, cell);
+            cellTexts[cellCount] = textId(cell.getContent());
+            cellCount++;
+            columnCount = Math.max(columnCount, column + 1);
+        }
+
+        private int textId(final String text) {
+            if (text.isEmpty()) {
+                return NO_TEXT;
+            }
+            Integer id = textIds.get(text);
+            if (id == null) {
+                id = dictionary.size();
+                dictionary.add(text);
+                textIds.put(text, id);
+            }
+            return id;
+        }
+    }
+}
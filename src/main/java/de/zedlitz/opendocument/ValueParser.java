@@ -0,0 +1,324 @@
+package de.zedlitz.opendocument;
+
+import java.time.DateTimeException;
+
+
+/**
+ * Parses the machine-readable attribute values of a cell directly from their characters into primitives.
+ * Unusual input is handed over to the JDK parsers.
+ *
+ * @author jzedlitz
+ */
+final class ValueParser {
+    /**
+     * Powers of ten that can be represented exactly as a <code>double</code>.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Every integer with up to 15 digits can be represented exactly as a <code>double</code>.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private static final long DAYS_0000_TO_1970 = 719528L;
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private ValueParser() {
+    }
+
+    /**
+     * Parse a decimal number. If the number has at most 15 significant digits and a small exponent the result
+     * is computed exactly with a single multiplication or division, otherwise {@link Double#parseDouble(String)}
+     * is used.
+     *
+     * @throws NumberFormatException if the value is not a number
+     */
+    static double parseDouble(final CharSequence s) {
+        final int length = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+
+        for (; i < length && isDigit(s.charAt(i)); i++) {
+            anyDigit = true;
+            if (mantissa != 0 || s.charAt(i) != '0') {
+                mantissa = mantissa * 10 + (s.charAt(i) - '0');
+                significantDigits++;
+            }
+            if (significantDigits > MAX_EXACT_DIGITS) {
+                return Double.parseDouble(s.toString());
+            }
+        }
+        if (i < length && s.charAt(i) == '.') {
+            for (i++; i < length && isDigit(s.charAt(i)); i++) {
+                anyDigit = true;
+                if (mantissa != 0 || s.charAt(i) != '0') {
+                    mantissa = mantissa * 10 + (s.charAt(i) - '0');
+                    significantDigits++;
+                }
+                exponent--;
+                if (significantDigits > MAX_EXACT_DIGITS) {
+                    return Double.parseDouble(s.toString());
+                }
+            }
+        }
+        if (anyDigit && i < length && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negativeExponent = s.charAt(i) == '-';
+                i++;
+            }
+            final int start = i;
+            int explicitExponent = 0;
+            for (; i < length && isDigit(s.charAt(i)) && i - start < 4; i++) {
+                explicitExponent = explicitExponent * 10 + (s.charAt(i) - '0');
+            }
+            if (i == start) {
+                return Double.parseDouble(s.toString());
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (!anyDigit || i != length) {
+            // NaN, Infinity, hexadecimal numbers or garbage
+            return Double.parseDouble(s.toString());
+        }
+
+        final double result;
+        if (mantissa == 0 || exponent == 0) {
+            result = mantissa;
+        } else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+            result = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            result = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return Double.parseDouble(s.toString());
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parse an integral number. A fractional part that consists of zeros only is accepted.
+     *
+     * @throws NumberFormatException if the value is not an integral number or does not fit into a long
+     */
+    static long parseLong(final CharSequence s) {
+        final int length = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        // accumulate negatively to be able to parse Long.MIN_VALUE
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multiplicationLimit = limit / 10;
+        final int start = i;
+        long result = 0;
+        for (; i < length && isDigit(s.charAt(i)); i++) {
+            final int digit = s.charAt(i) - '0';
+            if (result < multiplicationLimit || result * 10 < limit + digit) {
+                throw numberFormatException(s);
+            }
+            result = result * 10 - digit;
+        }
+        if (i == start) {
+            throw numberFormatException(s);
+        }
+        if (i < length && s.charAt(i) == '.') {
+            for (i++; i < length && s.charAt(i) == '0'; i++) {
+                // only zeros allowed
+            }
+        }
+        if (i != length) {
+            throw numberFormatException(s);
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parse a date of the form <code>yyyy-mm-dd</code>. A time component is ignored.
+     *
+     * @return the number of days since 1970-01-01
+     * @throws DateTimeException if the value is not a valid date
+     */
+    static long parseEpochDay(final CharSequence s) {
+        final int length = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        final int yearStart = i;
+        long year = 0;
+        for (; i < length && isDigit(s.charAt(i)) && i - yearStart < 10; i++) {
+            year = year * 10 + (s.charAt(i) - '0');
+        }
+        if (i - yearStart < 4 || i + 6 > length || s.charAt(i) != '-' || s.charAt(i + 3) != '-') {
+            throw dateTimeException("date", s);
+        }
+        if (negative) {
+            year = -year;
+        }
+        final int month = parseTwoDigits(s, i + 1, "date");
+        final int day = parseTwoDigits(s, i + 4, "date");
+        i += 6;
+        if (i != length && s.charAt(i) != 'T') {
+            throw dateTimeException("date", s);
+        }
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            throw dateTimeException("date", s);
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Parse a duration of the form <code>PThhHmmMss.sssS</code> as it is used for time values. Fractions of a
+     * second are truncated.
+     *
+     * @return the number of seconds since midnight
+     * @throws DateTimeException if the value is not a valid duration or is longer than a day
+     */
+    static int parseSecondOfDay(final CharSequence s) {
+        final int length = s.length();
+        if (length < 3 || s.charAt(0) != 'P') {
+            throw dateTimeException("time", s);
+        }
+
+        long seconds = 0;
+        boolean time = false;
+        boolean anyComponent = false;
+        int i = 1;
+        while (i < length) {
+            if (s.charAt(i) == 'T' && !time) {
+                time = true;
+                i++;
+                continue;
+            }
+
+            final int start = i;
+            long number = 0;
+            for (; i < length && isDigit(s.charAt(i)) && i - start < 9; i++) {
+                number = number * 10 + (s.charAt(i) - '0');
+            }
+            if (i == start || i == length) {
+                throw dateTimeException("time", s);
+            }
+            char unit = s.charAt(i);
+            if (unit == '.' && time) {
+                // truncate fraction of a second
+                for (i++; i < length && isDigit(s.charAt(i)); i++) {
+                    // skip
+                }
+                if (i == length || s.charAt(i) != 'S') {
+                    throw dateTimeException("time", s);
+                }
+                unit = 'S';
+            }
+
+            if (unit == 'D' && !time) {
+                seconds += number * SECONDS_PER_DAY;
+            } else if (unit == 'H' && time) {
+                seconds += number * 3600;
+            } else if (unit == 'M' && time) {
+                seconds += number * 60;
+            } else if (unit == 'S' && time) {
+                seconds += number;
+            } else {
+                throw dateTimeException("time", s);
+            }
+            anyComponent = true;
+            i++;
+        }
+
+        if (!anyComponent || seconds >= SECONDS_PER_DAY) {
+            throw dateTimeException("time", s);
+        }
+        return (int) seconds;
+    }
+
+    /**
+     * Parse a boolean value the same way as {@link Boolean#parseBoolean(String)}.
+     */
+    static boolean parseBoolean(final CharSequence s) {
+        return s != null && s.length() == 4
+                && Character.toLowerCase(s.charAt(0)) == 't'
+                && Character.toLowerCase(s.charAt(1)) == 'r'
+                && Character.toLowerCase(s.charAt(2)) == 'u'
+                && Character.toLowerCase(s.charAt(3)) == 'e';
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int parseTwoDigits(final CharSequence s, final int i, final String type) {
+        if (!isDigit(s.charAt(i)) || !isDigit(s.charAt(i + 1))) {
+            throw dateTimeException(type, s);
+        }
+        return (s.charAt(i) - '0') * 10 + (s.charAt(i + 1) - '0');
+    }
+
+    private static boolean isLeapYear(final long year) {
+        return ((year & 3) == 0) && ((year % 100) != 0 || (year % 400) == 0);
+    }
+
+    private static int lengthOfMonth(final long year, final int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Same computation as {@link java.time.LocalDate#toEpochDay()}.
+     */
+    private static long toEpochDay(final long year, final int month, final int day) {
+        long total = 365 * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        } else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static NumberFormatException numberFormatException(final CharSequence s) {
+        return new NumberFormatException("For input string: \"" + s + "\"");
+    }
+
+    private static DateTimeException dateTimeException(final String type, final CharSequence s) {
+        return new DateTimeException("Invalid " + type + " value " + s);
+    }
+}
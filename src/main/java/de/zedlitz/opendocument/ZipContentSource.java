@@ -0,0 +1,47 @@
+package de.zedlitz.opendocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+
+/**
+ * The <code>content.xml</code> entry of a {@link ZipFile}.
+ *
+ * @author jzedlitz
+ */
+class ZipContentSource implements ContentSource {
+    private final ZipFile file;
+    private final ZipEntry entry;
+
+    ZipContentSource(final ZipFile file, final ZipEntry entry) {
+        this.file = file;
+        this.entry = entry;
+    }
+
+    @Override
+    public InputStream open() throws IOException {
+        return file.getInputStream(entry);
+    }
+
+    @Override
+    public long getSize() {
+        return entry.getSize();
+    }
+
+    @Override
+    public long getCompressedSize() {
+        return entry.getCompressedSize();
+    }
+
+    @Override
+    public long getCrc() {
+        return entry.getCrc();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
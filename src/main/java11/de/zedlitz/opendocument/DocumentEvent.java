@@ -0,0 +1,42 @@
+package de.zedlitz.opendocument;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+
+/**
+ * A document from being opened until it is closed.
+ *
+ * @author jzedlitz
+ * @see JfrReaderMetrics
+ */
+@Name("de.zedlitz.opendocument.Document")
+@Label("ODS Document")
+@Description("An ODS document from being opened until it is closed")
+@Category("ODS Reader")
+@Threshold("20 ms")
+@StackTrace(false)
+class DocumentEvent extends Event {
+
+    @Label("Document")
+    String document;
+
+    @Label("Tables")
+    int tables;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Cells")
+    long cells;
+
+    @Label("Bytes Inflated")
+    @DataAmount
+    long bytesInflated;
+}
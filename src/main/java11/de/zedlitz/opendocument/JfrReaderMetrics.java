@@ -0,0 +1,205 @@
+package de.zedlitz.opendocument;
+
+import jdk.jfr.EventType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Metrics that emit Java Flight Recorder events, so that a recording of a slow process shows which document and
+ * which table were read at the time, next to the events of the garbage collector and of the I/O:
+ * <ul>
+ * <li><code>de.zedlitz.opendocument.Document</code> from opening a document until it is closed,</li>
+ * <li><code>de.zedlitz.opendocument.Table</code> from finding a table until its last row has been read,</li>
+ * <li><code>de.zedlitz.opendocument.RowBatch</code> for each {@value #BATCH_SIZE} rows of a table.</li>
+ * </ul>
+ * Each event carries the name of the document and of the table, the number of rows and cells and the bytes that
+ * have been inflated. Events that are shorter than their threshold are not recorded, the thresholds can be changed
+ * in the settings of the recording like those of the JDK events. Documents that are opened while no recording
+ * includes any of the events are not measured at all.
+ *
+ * <pre>
+ * DocumentReaderConfig config = DocumentReaderConfig.getDefault().withMetrics(new JfrReaderMetrics());
+ * </pre>
+ * <p>
+ * This class needs Java 11 or later.
+ *
+ * @author jzedlitz
+ */
+public final class JfrReaderMetrics implements ReaderMetrics {
+    /**
+     * The number of rows of a <code>RowBatch</code> event.
+     */
+    public static final int BATCH_SIZE = 1000;
+
+    private static final EventType DOCUMENT = EventType.getEventType(DocumentEvent.class);
+    private static final EventType TABLE = EventType.getEventType(TableEvent.class);
+    private static final EventType ROW_BATCH = EventType.getEventType(RowBatchEvent.class);
+
+    @Override
+    public ReaderMetrics forDocument(final String name) {
+        if (!DOCUMENT.isEnabled() && !TABLE.isEnabled() && !ROW_BATCH.isEnabled()) {
+            return NOOP;
+        }
+        return new DocumentScope(name);
+    }
+
+    /**
+     * The measurements of an open document.
+     */
+    private static final class DocumentScope implements ReaderMetrics {
+        private final DocumentEvent event = new DocumentEvent();
+        private final String name;
+        private final AtomicInteger tables = new AtomicInteger();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong cells = new AtomicLong();
+        // the content of a pipelined document is inflated on a thread of its own
+        private final AtomicLong bytesInflated = new AtomicLong();
+        private final List<TableScope> openTables = new ArrayList<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        DocumentScope(final String name) {
+            this.name = name;
+            event.begin();
+        }
+
+        @Override
+        public ReaderMetrics forTable(final String tableName) {
+            final TableScope result = new TableScope(this, tableName);
+            synchronized (openTables) {
+                openTables.add(result);
+            }
+            return result;
+        }
+
+        void tableFinished(final TableScope table, final long tableRows, final long tableCells) {
+            synchronized (openTables) {
+                openTables.remove(table);
+            }
+            rows.addAndGet(tableRows);
+            cells.addAndGet(tableCells);
+        }
+
+        @Override
+        public void tableRead() {
+            tables.incrementAndGet();
+        }
+
+        @Override
+        public void uncompressedBytesRead(final long bytes) {
+            bytesInflated.addAndGet(bytes);
+        }
+
+        @Override
+        public void documentClosed() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            final List<TableScope> unfinished;
+            synchronized (openTables) {
+                unfinished = new ArrayList<>(openTables);
+            }
+            for (TableScope table : unfinished) {
+                table.tableFinished();
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.document = name;
+                event.tables = tables.get();
+                event.rows = rows.get();
+                event.cells = cells.get();
+                event.bytesInflated = bytesInflated.get();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * The measurements of a table that is being read.
+     */
+    private static final class TableScope implements ReaderMetrics {
+        private final DocumentScope document;
+        private final TableEvent event = new TableEvent();
+        private final String name;
+        private final boolean batches = ROW_BATCH.isEnabled();
+        private final long bytesAtStart;
+        // the cells of the rows of a pipeline are read by the workers
+        private final LongAdder cells = new LongAdder();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private long rows;
+        private RowBatchEvent batch;
+        private long batchCells;
+        private long batchBytes;
+
+        TableScope(final DocumentScope document, final String name) {
+            this.document = document;
+            this.name = name;
+            this.bytesAtStart = document.bytesInflated.get();
+            event.begin();
+        }
+
+        // the parts of a parallel stream of rows share the table
+        @Override
+        public synchronized void rowRead() {
+            if (batches) {
+                if (batch != null && batch.rows == BATCH_SIZE) {
+                    commitBatch();
+                }
+                if (batch == null) {
+                    batch = new RowBatchEvent();
+                    batch.firstRow = rows + 1;
+                    batchCells = cells.sum();
+                    batchBytes = document.bytesInflated.get();
+                    batch.begin();
+                }
+                batch.rows++;
+            }
+            rows++;
+        }
+
+        private void commitBatch() {
+            batch.end();
+            if (batch.shouldCommit()) {
+                batch.document = document.name;
+                batch.sheet = name;
+                batch.cells = cells.sum() - batchCells;
+                batch.bytesInflated = document.bytesInflated.get() - batchBytes;
+                batch.commit();
+            }
+            batch = null;
+        }
+
+        @Override
+        public void cellRead(final boolean repeated) {
+            cells.increment();
+        }
+
+        @Override
+        public synchronized void tableFinished() {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (batch != null) {
+                commitBatch();
+            }
+
+            final long tableCells = cells.sum();
+            event.end();
+            if (event.shouldCommit()) {
+                event.document = document.name;
+                event.sheet = name;
+                event.rows = rows;
+                event.cells = tableCells;
+                event.bytesInflated = document.bytesInflated.get() - bytesAtStart;
+                event.commit();
+            }
+            document.tableFinished(this, rows, tableCells);
+        }
+    }
+}
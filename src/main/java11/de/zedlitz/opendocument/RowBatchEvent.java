@@ -0,0 +1,46 @@
+package de.zedlitz.opendocument;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+
+/**
+ * A number of consecutive rows of a table, including the time the application has spent on them.
+ *
+ * @author jzedlitz
+ * @see JfrReaderMetrics#BATCH_SIZE
+ */
+@Name("de.zedlitz.opendocument.RowBatch")
+@Label("ODS Row Batch")
+@Description("Consecutive rows of a table of an ODS document")
+@Category("ODS Reader")
+@Threshold("10 ms")
+@StackTrace(false)
+class RowBatchEvent extends Event {
+
+    @Label("Document")
+    String document;
+
+    @Label("Sheet")
+    String sheet;
+
+    @Label("First Row")
+    @Description("The position of the first row of the batch among the rows that have been read from the table")
+    long firstRow;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Cells")
+    long cells;
+
+    @Label("Bytes Inflated")
+    @DataAmount
+    long bytesInflated;
+}
@@ -0,0 +1,43 @@
+package de.zedlitz.opendocument;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+
+/**
+ * A table from being found until its last row has been read or its document is closed.
+ *
+ * @author jzedlitz
+ * @see JfrReaderMetrics
+ */
+@Name("de.zedlitz.opendocument.Table")
+@Label("ODS Table")
+@Description("A table of an ODS document from being found until its last row has been read")
+@Category("ODS Reader")
+@Threshold("20 ms")
+@StackTrace(false)
+class TableEvent extends Event {
+
+    @Label("Document")
+    String document;
+
+    @Label("Sheet")
+    String sheet;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Cells")
+    long cells;
+
+    @Label("Bytes Inflated")
+    @Description("The bytes of the document that have been inflated while the table was read")
+    @DataAmount
+    long bytesInflated;
+}
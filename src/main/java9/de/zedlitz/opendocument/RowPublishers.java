@@ -0,0 +1,143 @@
+package de.zedlitz.opendocument;
+
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+
+/**
+ * Publishers of rows for reactive consumers. A publisher reads only as many rows as its subscriber has
+ * requested, on the given executor, so a slow subscriber slows down the parser instead of rows piling up in
+ * memory. Each row has been read completely when it is published and can be kept by the subscriber.
+ * <p>
+ * A table or document can be read only once, so a publisher accepts a single subscriber. Further subscribers
+ * get an {@link IllegalStateException}.
+ * <p>
+ * This class needs Java 9 or later.
+ *
+ * @author jzedlitz
+ */
+public final class RowPublishers {
+
+    private RowPublishers() {
+    }
+
+    /**
+     * Publish the remaining rows of a table on the common fork join pool.
+     */
+    public static Flow.Publisher<Row> of(final Table table) {
+        return of(table, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Publish the remaining rows of a table. Cancelling the subscription stops the parser after the row that is
+     * being read. The document of the table is closed after an error and as soon as the subscription is
+     * cancelled, because the rest of the table cannot be read any more. After the last row it stays open, so
+     * that its other tables can be read.
+     */
+    public static Flow.Publisher<Row> of(final Table table, final Executor executor) {
+        final Document document = table.getDocument();
+        return new RowPublisher(() -> RowEmitter.rows(table), document != null ? document::close : null, false,
+                executor);
+    }
+
+    /**
+     * Publish the rows of all remaining tables of a document on the common fork join pool.
+     */
+    public static Flow.Publisher<Row> of(final Document document) {
+        return of(document, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Publish the rows of all remaining tables of a document, one table after the other. The document is closed
+     * after the last row, after an error and as soon as the subscription is cancelled.
+     */
+    public static Flow.Publisher<Row> of(final Document document, final Executor executor) {
+        return new RowPublisher(() -> RowEmitter.rows(document), document::close, true, executor);
+    }
+
+    private static final class RowPublisher implements Flow.Publisher<Row> {
+        private final Supplier<Supplier<Row>> rows;
+        private final Closeable resource;
+        private final boolean closeAtEnd;
+        private final Executor executor;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        RowPublisher(final Supplier<Supplier<Row>> rows, final Closeable resource, final boolean closeAtEnd,
+                     final Executor executor) {
+            this.rows = rows;
+            this.resource = resource;
+            this.closeAtEnd = closeAtEnd;
+            this.executor = executor;
+        }
+
+        @Override
+        public void subscribe(final Flow.Subscriber<? super Row> subscriber) {
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(final long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("The rows can be published only once"));
+                return;
+            }
+
+            final RowEmitter emitter = new RowEmitter(new LazyRows(rows), resource, closeAtEnd, executor,
+                    new RowEmitter.Receiver() {
+                        @Override
+                        public void onNext(final Row row) {
+                            subscriber.onNext(row);
+                        }
+
+                        @Override
+                        public void onError(final Throwable error) {
+                            subscriber.onError(error);
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            subscriber.onComplete();
+                        }
+                    });
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(final long n) {
+                    emitter.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    emitter.cancel();
+                }
+            });
+        }
+    }
+
+    /**
+     * Looks for the first table of a document on the executor and not on the thread that subscribes.
+     */
+    private static final class LazyRows implements Supplier<Row> {
+        private final Supplier<Supplier<Row>> factory;
+        private Supplier<Row> rows;
+
+        LazyRows(final Supplier<Supplier<Row>> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public Row get() {
+            if (rows == null) {
+                rows = factory.get();
+            }
+            return rows.get();
+        }
+    }
+}
@@ -4,7 +4,13 @@ import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 
 /**
@@ -31,4 +37,25 @@ public abstract class AbstractBaseTest {
 
         return xpp;
     }
+
+    /**
+     * Write a temporary ODS file that only contains the given <code>content.xml</code>.
+     */
+    protected File createOdsFile(final String content) throws IOException {
+        return createZipFile("content.xml", content);
+    }
+
+    /**
+     * Write a temporary zip file with a single entry.
+     */
+    protected File createZipFile(final String entryName, final String content) throws IOException {
+        final File file = File.createTempFile("test", ".ods");
+        file.deleteOnExit();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry(entryName));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return file;
+    }
 }
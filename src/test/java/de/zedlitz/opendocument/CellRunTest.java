@@ -0,0 +1,28 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellRunTest {
+
+    private final CellRun run = new CellRun(new EmptyCell(new DummyRow(), 3), 3, 4);
+
+    @Test
+    void getEndColumn() {
+        assertEquals(7, run.getEndColumn());
+    }
+
+    @Test
+    void contains() {
+        assertFalse(run.contains(2));
+        assertTrue(run.contains(3));
+        assertTrue(run.contains(6));
+        assertFalse(run.contains(7));
+    }
+
+    @Test
+    void isEmpty() {
+        assertTrue(run.isEmpty());
+    }
+}
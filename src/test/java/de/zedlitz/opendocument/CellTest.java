@@ -205,6 +205,45 @@ public class CellTest extends AbstractBaseTest {
         assertEquals("120.5", cells.get(8).getValue());
     }
 
+    @Test
+    public void testGetDouble() throws Exception {
+        List<Cell> cells = getCellsFromDemoFile("/formats_french.ods");
+        assertEquals(50000.0, cells.get(0).getDouble());
+        assertEquals(0.1295, cells.get(7).getDouble());
+        assertEquals(120.5, cells.get(8).getDouble());
+        assertThrows(OdsReaderException.class, () -> cells.get(11).getDouble());
+    }
+
+    @Test
+    public void testGetLong() throws Exception {
+        List<Cell> cells = getCellsFromDemoFile("/formats_french.ods");
+        assertEquals(50000L, cells.get(0).getLong());
+        assertThrows(NumberFormatException.class, () -> cells.get(8).getLong());
+    }
+
+    @Test
+    public void testGetEpochDay() throws Exception {
+        List<Cell> cells = getCellsFromDemoFile("/formats_german.ods");
+        assertThrows(OdsReaderException.class, () -> cells.get(0).getEpochDay());
+        assertEquals(LocalDate.of(1999, 12, 31).toEpochDay(), cells.get(11).getEpochDay());
+        assertEquals(LocalDate.of(1999, 12, 31).toEpochDay(), cells.get(22).getEpochDay());
+    }
+
+    @Test
+    public void testGetSecondOfDay() throws Exception {
+        List<Cell> cells = getCellsFromDemoFile("/formats_german.ods");
+        assertThrows(OdsReaderException.class, () -> cells.get(0).getSecondOfDay());
+        assertEquals(LocalTime.of(13, 37, 46).toSecondOfDay(), cells.get(26).getSecondOfDay());
+    }
+
+    @Test
+    public void testGetBooleanPrimitive() throws Exception {
+        List<Cell> cells = getCellsFromDemoFile("/formats_french.ods");
+        assertThrows(OdsReaderException.class, () -> cells.get(0).getBooleanPrimitive());
+        assertTrue(cells.get(33).getBooleanPrimitive());
+        assertFalse(cells.get(34).getBooleanPrimitive());
+    }
+
     @Test
     public void invalidCells() throws XMLStreamException {
         Cell cell = new Cell(advanceToStartTag(createParser(CONTENT_MISSING_DATE_VALUE)), new DummyRow(), 0);
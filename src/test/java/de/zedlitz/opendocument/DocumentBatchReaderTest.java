@@ -0,0 +1,151 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class DocumentBatchReaderTest {
+    private static final int DOCUMENTS = 40;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void copyDocuments() throws Exception {
+        for (int i = 0; i < DOCUMENTS; i++) {
+            try (InputStream in = getClass().getResourceAsStream("/test01.ods")) {
+                Files.copy(in, directory.resolve(String.format("doc%02d.ods", i)));
+            }
+        }
+        Files.write(directory.resolve("readme.txt"), new byte[]{'x'});
+    }
+
+    private static long countCells(final Document doc) {
+        long cells = 0;
+        for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+            for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                for (Cell cell = row.nextCell(); cell != null; cell = row.nextCell()) {
+                    cells++;
+                }
+            }
+        }
+        return cells;
+    }
+
+    @Test
+    public void testDirectory() throws Exception {
+        final long expected;
+        try (Document doc = new Document(directory.resolve("doc00.ods"))) {
+            expected = countCells(doc);
+        }
+
+        final LongAdder cells = new LongAdder();
+        final DocumentBatchReader.Result result = new DocumentBatchReader()
+                .read(directory, (path, doc) -> cells.add(countCells(doc)));
+
+        assertEquals(DOCUMENTS, result.getDocumentCount());
+        assertEquals(DOCUMENTS * expected, cells.sum());
+        assertEquals(DOCUMENTS * Files.size(directory.resolve("doc00.ods")), result.getBytes());
+        assertTrue(result.getFailures().isEmpty());
+        assertTrue(result.getElapsedNanos() > 0);
+        assertTrue(result.getDocumentsPerSecond() > 0);
+    }
+
+    @Test
+    public void testConcurrency() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final DocumentBatchReader.Result result = new DocumentBatchReader(DocumentReaderConfig.getDefault(), 3)
+                .read(directory, (path, doc) -> {
+                    final int now = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(now, Math::max);
+                    Thread.sleep(5);
+                    countCells(doc);
+                    running.decrementAndGet();
+                });
+
+        assertEquals(DOCUMENTS, result.getDocumentCount());
+        assertTrue(maxRunning.get() <= 3, "max: " + maxRunning.get());
+        assertTrue(maxRunning.get() > 1, "max: " + maxRunning.get());
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        final Path broken = directory.resolve("broken.ods");
+        Files.write(broken, new byte[]{1, 2, 3});
+        final Path missing = directory.resolve("missing.ods");
+        final List<Path> paths = new ArrayList<>();
+        paths.add(missing);
+        paths.add(directory.resolve("doc00.ods"));
+        paths.add(broken);
+        paths.add(directory.resolve("doc01.ods"));
+
+        final DocumentBatchReader.Result result = new DocumentBatchReader(DocumentReaderConfig.getDefault(), 2)
+                .read(paths, (path, doc) -> {
+                    if (path.endsWith("doc01.ods")) {
+                        throw new IllegalStateException("handler");
+                    }
+                    countCells(doc);
+                });
+
+        assertEquals(1, result.getDocumentCount());
+        assertEquals(3, result.getFailures().size());
+        assertEquals(Arrays.asList(missing, broken, directory.resolve("doc01.ods")),
+                new ArrayList<>(result.getFailures().keySet()));
+        assertEquals("handler", result.getFailures().get(directory.resolve("doc01.ods")).getMessage());
+    }
+
+    @Test
+    public void testHandlerError() throws Exception {
+        final List<Path> paths = Arrays.asList(directory.resolve("doc00.ods"), directory.resolve("doc01.ods"));
+
+        final DocumentBatchReader.Result result = new DocumentBatchReader(DocumentReaderConfig.getDefault(), 2)
+                .read(paths, (path, doc) -> {
+                    if (path.endsWith("doc00.ods")) {
+                        throw new AssertionError("handler");
+                    }
+                    countCells(doc);
+                });
+
+        assertEquals(1, result.getDocumentCount());
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().get(directory.resolve("doc00.ods")) instanceof AssertionError);
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "an open document cannot be moved")
+    public void testHandlerMovesFile() throws Exception {
+        final Path path = directory.resolve("doc00.ods");
+        final long size = Files.size(path);
+
+        final DocumentBatchReader.Result result = new DocumentBatchReader()
+                .read(Collections.singletonList(path), (p, doc) -> Files.move(p, directory.resolve("done.ods")));
+
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(1, result.getDocumentCount());
+        assertEquals(size, result.getBytes());
+    }
+
+    @Test
+    public void testInvalidConcurrency() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new DocumentBatchReader(DocumentReaderConfig.getDefault(), 0));
+    }
+}
@@ -0,0 +1,226 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class DocumentIndexTest extends AbstractBaseTest {
+
+    /**
+     * A table with 2500 rows whose first cell holds the row number. Rows 1001 to 1200 are a single repeated row.
+     */
+    static String createLargeContent() {
+        final StringBuilder content = new StringBuilder();
+        content.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<office:document-content")
+                .append(" xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\"")
+                .append(" xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\"")
+                .append(" xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\">")
+                .append("<office:body><office:spreadsheet>")
+                .append("<table:table table:name=\"Big &amp; Tall\">")
+                .append("<table:table-column table:number-columns-repeated=\"2\"/>");
+        for (int i = 1; i <= 2500; i++) {
+            if (i == 1001) {
+                content.append("<table:table-row table:number-rows-repeated=\"200\">")
+                        .append("<table:table-cell office:value-type=\"string\"><text:p>rep</text:p>")
+                        .append("</table:table-cell></table:table-row>");
+                i = 1200;
+                continue;
+            }
+            content.append("<table:table-row><table:table-cell office:value-type=\"float\" office:value=\"")
+                    .append(i).append("\"><text:p>").append(i).append("</text:p></table:table-cell>")
+                    .append("<!-- <table:table-row> --><table:table-cell/></table:table-row>");
+        }
+        content.append("</table:table>")
+                .append("<table:table table:name=\"Small\"><table:table-row><table:table-cell")
+                .append(" office:value-type=\"string\"><text:p>s</text:p></table:table-cell></table:table-row>")
+                .append("</table:table>")
+                .append("</office:spreadsheet></office:body></office:document-content>");
+        return content.toString();
+    }
+
+    private File test01() {
+        return new File(Objects.requireNonNull(getClass().getResource("/test01.ods")).getFile());
+    }
+
+    @Test
+    public void testTableNames() throws Exception {
+        final Document doc = new Document(test01());
+        final DocumentIndex index = doc.index();
+
+        assertEquals(3, index.getTableCount());
+        assertEquals(Arrays.asList("Tabelle1", "Tabelle2", "Tabelle3"), index.getTableNames());
+        assertEquals(1, index.indexOf("Tabelle2"));
+        assertEquals(-1, index.indexOf("Tabelle4"));
+    }
+
+    @Test
+    public void testGetTableWithIndex() throws Exception {
+        final Document doc = new Document(test01());
+        doc.index();
+
+        final Table table3 = doc.getTable(2).orElseThrow(AssertionError::new);
+        assertEquals("Tabelle3", table3.getName());
+        assertNotNull(table3.nextRow(), "1st row");
+        assertNull(table3.nextRow(), "no 2nd row");
+
+        // tables can be read in any order and more than once
+        final Table table1 = doc.getTable("Tabelle1").orElseThrow(AssertionError::new);
+        assertEquals("A1", table1.nextRow().nextCell().getContent());
+        assertEquals("A1", doc.getTable(0).orElseThrow(AssertionError::new).nextRow().nextCell().getContent());
+
+        assertFalse(doc.getTable(3).isPresent());
+        assertFalse(doc.getTable("Tabelle4").isPresent());
+    }
+
+    @Test
+    public void testGetTableByNameWithoutIndex() throws Exception {
+        final Document doc = new Document(test01());
+
+        final Table table = doc.getTable("Tabelle2").orElseThrow(AssertionError::new);
+        assertEquals("Tabelle2", table.getName());
+        assertFalse(doc.getTable("Tabelle1").isPresent(), "tables are only read once");
+    }
+
+    @Test
+    public void testIndexRequiresFile() throws Exception {
+        final Document doc = new Document(getClass().getResourceAsStream("/test01.ods"));
+        assertThrows(OdsReaderException.class, doc::index);
+    }
+
+    @Test
+    public void testCheckpoints() throws Exception {
+        final Document doc = new Document(createOdsFile(createLargeContent()));
+        final DocumentIndex index = doc.index(100);
+
+        assertEquals(Arrays.asList("Big & Tall", "Small"), index.getTableNames());
+        final DocumentIndex.Entry entry = index.getEntry(0);
+        assertEquals(1, entry.getRowNumber(0));
+        assertEquals(901, entry.getRowNumber(9));
+        assertEquals(1001, entry.getRowNumber(10), "repeated row is a checkpoint");
+        assertEquals(1201, entry.getRowNumber(11), "next checkpoint after the repeated row");
+        assertEquals(24, entry.getCheckpointCount());
+        assertEquals(10, entry.findCheckpoint(1100));
+        assertEquals(-1, entry.findCheckpoint(0));
+    }
+
+    @Test
+    public void testSeekRowWithIndex() throws Exception {
+        final Document doc = new Document(createOdsFile(createLargeContent()));
+        doc.index(100);
+        final Table table = doc.getTable("Big & Tall").orElseThrow(AssertionError::new);
+
+        table.seekRow(2000);
+        Row row = table.nextRow();
+        assertEquals(2000, row.getRowNum());
+        assertEquals(2000, row.nextCell().getLong());
+
+        table.seekRow(50);
+        row = table.nextRow();
+        assertEquals(50, row.getRowNum());
+        assertEquals("50", row.nextCell().getContent());
+        assertEquals(51, table.nextRow().getRowNum());
+
+        table.seekRow(1100);
+        row = table.nextRow();
+        assertEquals(1100, row.getRowNum());
+        assertEquals(101, row.getNumberRowsRepeated());
+        assertEquals("rep", row.nextCell().getContent());
+        assertEquals(1201, table.nextRow().getRowNum());
+
+        table.seekRow(2501);
+        assertNull(table.nextRow());
+    }
+
+    @Test
+    public void testIndexedTableClosesParser() throws Exception {
+        final Document doc = new Document(createOdsFile(createLargeContent()));
+        doc.index(100);
+        final Table table = doc.getTable("Big & Tall").orElseThrow(AssertionError::new);
+        assertEquals(1, doc.getResourceCount());
+
+        table.seekRow(2000);
+        table.seekRow(50);
+        table.seekRow(1100);
+        assertEquals(1, doc.getResourceCount(), "the previous parsers are closed");
+
+        while (table.nextRow() != null) {
+            // read to the end of the table
+        }
+        assertEquals(0, doc.getResourceCount());
+        assertNull(table.nextRow());
+
+        table.seekRow(10);
+        assertEquals(10, table.nextRow().getRowNum());
+        doc.getTable(1);
+        assertEquals(2, doc.getResourceCount());
+        doc.close();
+        assertEquals(0, doc.getResourceCount());
+    }
+
+    @Test
+    public void testSeekRowWithoutIndex() throws Exception {
+        final Document doc = new Document(createOdsFile(createLargeContent()));
+        final Table table = doc.nextTable();
+
+        table.seekRow(1199);
+        Row row = table.nextRow();
+        assertEquals(1199, row.getRowNum());
+        assertEquals(2, row.getNumberRowsRepeated());
+
+        table.seekRow(1500);
+        assertEquals(1500, table.nextRow().getRowNum());
+        assertThrows(OdsReaderException.class, () -> table.seekRow(10));
+    }
+
+    @Test
+    public void testSeekRowInExpandedRows() throws Exception {
+        final Document doc = new Document(createOdsFile(createLargeContent()));
+        final Table table = doc.nextTable();
+        table.setExpandRepeatedRows(true);
+
+        table.seekRow(1001);
+        assertEquals(1001, table.nextRow().getRowNum());
+        table.seekRow(1150);
+        final Row row = table.nextRow();
+        assertEquals(1150, row.getRowNum());
+        assertEquals(1, row.getNumberRowsRepeated());
+        assertEquals(1151, table.nextRow().getRowNum());
+    }
+
+    @Test
+    public void testIndexFile() throws Exception {
+        final Path indexFile = Files.createTempFile("test", ".idx");
+        indexFile.toFile().deleteOnExit();
+        final File odsFile = createOdsFile(createLargeContent());
+
+        // a file that belongs to another document is replaced
+        new Document(test01()).index(indexFile);
+        final DocumentIndex created = new Document(odsFile).index(indexFile);
+        assertEquals(2, created.getTableCount());
+
+        final DocumentIndex read = DocumentIndex.read(indexFile);
+        assertEquals(created.getTableNames(), read.getTableNames());
+        assertEquals(created.getRowInterval(), read.getRowInterval());
+        assertEquals(created.getEntry(0).getRowOffset(2), read.getEntry(0).getRowOffset(2));
+
+        final Document doc = new Document(odsFile);
+        doc.index(indexFile);
+        assertEquals(1, doc.getTable(0).orElseThrow(AssertionError::new).nextRow().nextCell().getLong());
+    }
+
+    @Test
+    public void testDocumentTypeIsRejected() throws Exception {
+        final Document doc = new Document(createOdsFile("<!DOCTYPE foo><foo/>"));
+        assertThrows(OdsReaderException.class, doc::index);
+    }
+}
@@ -0,0 +1,112 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLInputFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class DocumentReaderConfigTest extends AbstractBaseTest {
+
+    private static final String CONTENT_WITH_DTD =
+            "<?xml version=\"1.0\"?><!DOCTYPE x [<!ENTITY e SYSTEM \"file:///etc/hostname\">]>" +
+                    "<office:document-content xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'" +
+                    " xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'>" +
+                    "<table:table table:name=\"T&amp;1\"><table:table-row><table:table-cell>" +
+                    "<text:p xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'>a&lt;&#98;&e;</text:p>" +
+                    "</table:table-cell></table:table-row></table:table></office:document-content>";
+
+    private Path test01() {
+        return Paths.get(Objects.requireNonNull(getClass().getResource("/test01.ods")).getFile());
+    }
+
+    @Test
+    public void testDefaultIsShared() {
+        assertSame(DocumentReaderConfig.getDefault(), DocumentReaderConfig.getDefault());
+        assertSame(DocumentReaderConfig.getDefault().getFactory(), DocumentReaderConfig.getDefault().getFactory());
+        assertEquals(DocumentReaderConfig.Backend.DEFAULT, DocumentReaderConfig.getDefault().getBackend());
+    }
+
+    @Test
+    public void testFactoryIsConfigured() {
+        final XMLInputFactory factory = DocumentReaderConfig.getDefault().getFactory();
+        assertEquals(Boolean.FALSE, factory.getProperty(XMLInputFactory.SUPPORT_DTD));
+        assertEquals(Boolean.FALSE, factory.getProperty(XMLInputFactory.IS_COALESCING));
+        assertEquals(Boolean.TRUE, factory.getProperty(XMLInputFactory.IS_NAMESPACE_AWARE));
+    }
+
+    @Test
+    public void testJdkBackend() throws Exception {
+        final DocumentReaderConfig config = DocumentReaderConfig.getDefault()
+                .withBackend(DocumentReaderConfig.Backend.JDK);
+        assertTrue(DocumentReaderConfig.Backend.JDK.isAvailable());
+        assertEquals(DocumentReaderConfig.Backend.JDK, config.getBackend());
+
+        try (Document doc = new Document(test01(), config)) {
+            final Table table = doc.nextTable();
+            assertEquals("Tabelle1", table.getName());
+            assertEquals("A1", table.nextRow().nextCell().getContent());
+        }
+    }
+
+    @Test
+    public void testMissingBackend() {
+        assertFalse(DocumentReaderConfig.Backend.AALTO.isAvailable());
+        assertThrows(OdsReaderException.class,
+                () -> DocumentReaderConfig.getDefault().withBackend(DocumentReaderConfig.Backend.AALTO));
+    }
+
+    @Test
+    public void testCustomFactory() throws Exception {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        final DocumentReaderConfig config = DocumentReaderConfig.getDefault().withFactory(factory);
+        assertSame(factory, config.getFactory());
+        assertNull(config.getBackend());
+    }
+
+    @Test
+    public void testPipeline() throws Exception {
+        final DocumentReaderConfig config = DocumentReaderConfig.getDefault().withPipeline(100, 2);
+        assertTrue(config.isPipelined());
+        assertFalse(DocumentReaderConfig.getDefault().isPipelined());
+        assertSame(DocumentReaderConfig.getDefault().getFactory(), config.getFactory());
+        assertThrows(IllegalArgumentException.class, () -> config.withPipeline(0, 1));
+
+        try (Document doc = new Document(getClass().getResourceAsStream("/test01.ods"), config)) {
+            assertEquals("Tabelle1", doc.nextTable().getName());
+        }
+    }
+
+    @Test
+    public void testInMemoryLimit() {
+        assertEquals(DocumentReaderConfig.DEFAULT_IN_MEMORY_LIMIT,
+                DocumentReaderConfig.getDefault().getInMemoryLimit());
+        final DocumentReaderConfig config = DocumentReaderConfig.getDefault().withInMemoryLimit(0);
+        assertEquals(0, config.getInMemoryLimit());
+        assertEquals(0, config.withStringDictionary(10).getInMemoryLimit(), "kept by the other settings");
+        assertThrows(IllegalArgumentException.class, () -> config.withInMemoryLimit(-1));
+    }
+
+    @Test
+    public void testEntities() throws Exception {
+        final Document doc = new Document(createOdsFile(CONTENT_WITH_DTD.replace("&e;", "")).toPath(),
+                DocumentReaderConfig.getDefault().withBackend(DocumentReaderConfig.Backend.JDK));
+        final Table table = doc.nextTable();
+        assertEquals("T&1", table.getName());
+        assertEquals("a<b", table.nextRow().nextCell().getContent(), "predefined entities are replaced");
+    }
+
+    @Test
+    public void testExternalEntitiesAreNotResolved() throws Exception {
+        final Document doc = new Document(createOdsFile(CONTENT_WITH_DTD).toPath(),
+                DocumentReaderConfig.getDefault().withBackend(DocumentReaderConfig.Backend.JDK));
+        final Row row = doc.nextTable().nextRow();
+        assertThrows(RuntimeException.class, row::nextCell);
+    }
+}
@@ -9,8 +9,12 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import java.util.zip.ZipFile;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -225,4 +229,145 @@ public class DocumentTest extends AbstractBaseTest {
          Document doc = new Document(getClass().getResourceAsStream("/empty.zip"));
     }
 
+    @Test
+    public void testZipFileWithoutContent() throws Exception {
+        final ZipFile file = new ZipFile(createZipFile("mimetype", "text/plain"));
+        final OdsReaderException e = assertThrows(OdsReaderException.class, () -> new Document(file));
+        assertTrue(e.getMessage().startsWith("No content.xml in "), e.getMessage());
+        assertThrows(IllegalStateException.class, file::size, "the zip file is closed");
+
+        final Path path = createZipFile("mimetype", "text/plain").toPath();
+        assertThrows(OdsReaderException.class, () -> new Document(path));
+    }
+
+    @Test
+    public void testConstructorClosesZipFileOnError() throws Exception {
+        final ZipFile file = new ZipFile(createOdsFile("<?xml version=\"1.0\" encoding=\"no-such-charset\"?><a/>"));
+        assertThrows(XMLStreamException.class, () -> new Document(file));
+        assertThrows(IllegalStateException.class, file::size, "the zip file is closed");
+    }
+
+    @Test
+    public void testOpenStream() throws Exception {
+        final Document doc = new Document(getClass().getResourceAsStream("/test01.ods"));
+        assertEquals(Arrays.asList("Tabelle1", "Tabelle2", "Tabelle3"),
+                doc.openStream().map(Table::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testParallelStream() throws Exception {
+        File file = new File(Objects.requireNonNull(getClass().getResource("/test01.ods")).getFile());
+        final Document doc = new Document(file);
+
+        final Map<String, Long> rows = doc.parallelStream()
+                .collect(Collectors.toMap(Table::getName, table -> table.openStream().count()));
+        assertEquals(3, rows.size());
+        assertEquals(4L, rows.get("Tabelle1"));
+        assertEquals(1L, rows.get("Tabelle2"));
+        assertEquals(1L, rows.get("Tabelle3"));
+
+        // the stream keeps the order of the tables
+        assertEquals(Arrays.asList("Tabelle1", "Tabelle2", "Tabelle3"),
+                doc.parallelStream().map(Table::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testParallelStreamAboveInMemoryLimit() throws Exception {
+        final Path path = createOdsFile(DocumentIndexTest.createLargeContent()).toPath();
+        final Document doc = new Document(path, DocumentReaderConfig.getDefault().withInMemoryLimit(1000));
+
+        final Map<String, Long> rows = doc.parallelStream()
+                .collect(Collectors.toMap(Table::getName, table -> table.openStream().count()));
+        assertFalse(doc.isInMemory(), "the content is read from the file for each table");
+        assertEquals(2301L, rows.get("Big & Tall"));
+        assertEquals(1L, rows.get("Small"));
+
+        final Document small = new Document(path);
+        assertEquals(2L, small.parallelStream().count());
+        assertTrue(small.isInMemory(), "the content is below the default limit");
+    }
+
+    @Test
+    public void testEachTableParallel() throws Exception {
+        final Document doc = new Document(createOdsFile(DocumentIndexTest.createLargeContent()));
+
+        final Map<String, Integer> rows = new ConcurrentHashMap<>();
+        doc.eachTable(table -> {
+            int count = 0;
+            for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                count += row.getNumberRowsRepeated();
+            }
+            rows.put(table.getName(), count);
+        }, 2);
+
+        assertEquals(2500, rows.get("Big & Tall"));
+        assertEquals(1, rows.get("Small"));
+    }
+
+    @Test
+    public void testEachTableParallelPropagatesException() throws Exception {
+        File file = new File(Objects.requireNonNull(getClass().getResource("/test01.ods")).getFile());
+        final Document doc = new Document(file);
+
+        assertThrows(IllegalStateException.class, () -> doc.eachTable(table -> {
+            throw new IllegalStateException(table.getName());
+        }, 2));
+    }
+
+    @Test
+    public void testPipelined() throws Exception {
+        try (Document doc = new Document(getClass().getResourceAsStream("/test01.ods"), 256, 2)) {
+            final Table table = doc.nextTable();
+            assertEquals("Tabelle1", table.getName());
+            assertEquals(4, table.openStream().count());
+            assertEquals(Arrays.asList("Tabelle2", "Tabelle3"),
+                    doc.openStream().map(Table::getName).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testSkipTable() throws Exception {
+        final Document doc = new Document(this.createParser(CONTENT_ONE_TWO_ROWS));
+        assertTrue(doc.skipTable());
+        assertEquals("Tabelle2", doc.nextTable().getName());
+        assertFalse(doc.skipTable());
+        assertNull(doc.nextTable());
+    }
+
+    @Test
+    public void testGetTableByName() throws Exception {
+        final Path path = Paths.get(Objects.requireNonNull(getClass().getResource("/test01.ods")).getFile());
+        try (Document doc = new Document(path)) {
+            final Table table = doc.getTable("Tabelle2").orElseThrow(AssertionError::new);
+            assertEquals("Tabelle2", table.getName());
+            assertEquals("Tabelle3", doc.nextTable().getName());
+        }
+        try (Document doc = new Document(path)) {
+            assertFalse(doc.getTable("Missing").isPresent());
+        }
+        try (Document doc = new Document(path)) {
+            assertEquals("Tabelle3", doc.getTable(2).orElseThrow(AssertionError::new).getName());
+            assertFalse(doc.getTable(0).isPresent());
+        }
+    }
+
+    @Test
+    public void testCloseAllResources() throws Exception {
+        final Document doc = new Document(getClass().getResourceAsStream("/test01.ods"));
+        final boolean[] closed = new boolean[1];
+        doc.register(() -> {
+            throw new IOException("first");
+        });
+        doc.register(() -> {
+            throw new IllegalStateException("second");
+        });
+        doc.register(() -> closed[0] = true);
+
+        final IOException e = assertThrows(IOException.class, doc::close);
+        assertEquals("first", e.getMessage());
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals("second", e.getSuppressed()[0].getMessage());
+        assertTrue(closed[0]);
+        assertEquals(0, doc.getResourceCount());
+    }
 }
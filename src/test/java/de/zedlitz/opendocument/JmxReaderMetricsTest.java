@@ -0,0 +1,144 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class JmxReaderMetricsTest {
+
+    private Path testDocument() throws Exception {
+        return Paths.get(Objects.requireNonNull(getClass().getResource("/test01.ods")).toURI());
+    }
+
+    private static long readCells(final Document doc) {
+        long cells = 0;
+        for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+            for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                for (Cell cell = row.nextCell(); cell != null; cell = row.nextCell()) {
+                    cells++;
+                }
+            }
+        }
+        return cells;
+    }
+
+    @Test
+    public void testFile() throws Exception {
+        try (JmxReaderMetrics metrics = JmxReaderMetrics.register("testFile")) {
+            final DocumentReaderConfig config = DocumentReaderConfig.getDefault().withMetrics(metrics);
+            final long cells;
+            try (Document doc = new Document(testDocument(), config)) {
+                assertEquals(1, metrics.getOpenDocuments());
+                cells = readCells(doc);
+            }
+
+            assertEquals(1, metrics.getDocumentsOpened());
+            assertEquals(0, metrics.getOpenDocuments());
+            assertEquals(cells, metrics.getCells());
+            assertTrue(metrics.getTables() > 0);
+            assertTrue(metrics.getRows() > 0);
+            assertTrue(metrics.getXmlEvents() > metrics.getCells());
+            assertTrue(metrics.getUncompressedBytes() > 0);
+            assertTrue(metrics.getCompressedBytes() > 0);
+            assertTrue(metrics.getCompressedBytes() < metrics.getUncompressedBytes());
+            assertTrue(metrics.getNanos(ReaderMetrics.Phase.PARSE) > 0);
+            assertTrue(metrics.getNanos(ReaderMetrics.Phase.CELLS) > 0);
+            assertTrue(metrics.getNanos(ReaderMetrics.Phase.INFLATE) > 0);
+
+            metrics.reset();
+            assertEquals(0, metrics.getCells());
+            assertEquals(0, metrics.getDocumentsOpened());
+        }
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        final byte[] document = WorkbookGenerator.generate(WorkbookGenerator.Shape.REPEATED, 1, 42);
+        try (JmxReaderMetrics metrics = JmxReaderMetrics.register("testStream")) {
+            final DocumentReaderConfig config = DocumentReaderConfig.getDefault().withPipeline(8192, 4)
+                    .withMetrics(metrics);
+            final long cells;
+            try (Document doc = new Document(new ByteArrayInputStream(document), config)) {
+                cells = readCells(doc);
+            }
+
+            assertEquals(cells, metrics.getCells());
+            assertTrue(metrics.getRepeatedCells() > 0);
+            assertTrue(metrics.getRepeatedCells() < metrics.getCells());
+            // the whole stream has been read, the other entries of the zip file as well
+            assertTrue(metrics.getCompressedBytes() <= document.length);
+            assertTrue(metrics.getCompressedBytes() > document.length / 2);
+        }
+    }
+
+    @Test
+    public void testCallback() throws Exception {
+        try (JmxReaderMetrics metrics = JmxReaderMetrics.register("testCallback")) {
+            final DocumentReaderConfig config = DocumentReaderConfig.getDefault().withMetrics(metrics);
+            try (Document doc = new Document(testDocument(), config)) {
+                final Table table = doc.nextTable();
+                assertNotNull(table.nextRow());
+                Thread.sleep(20);
+                table.nextRow();
+            }
+            assertTrue(metrics.getCallbackMillis() >= 20);
+            assertEquals(2, metrics.getRows());
+        }
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        try (JmxReaderMetrics metrics = JmxReaderMetrics.register("testMBean")) {
+            try (Document doc = new Document(testDocument(), DocumentReaderConfig.getDefault().withMetrics(metrics))) {
+                readCells(doc);
+            }
+            assertEquals(metrics.getCells(),
+                    ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.getObjectName(), "Cells"));
+            assertThrows(OdsReaderException.class, () -> JmxReaderMetrics.register("testMBean"));
+        }
+        // the name can be used again after the metrics have been closed
+        try (JmxReaderMetrics metrics = JmxReaderMetrics.register("testMBean")) {
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(metrics.getObjectName()));
+        }
+    }
+
+    @Test
+    public void testNoop() {
+        assertSame(ReaderMetrics.NOOP, DocumentReaderConfig.getDefault().getMetrics());
+        assertThrows(IllegalArgumentException.class, () -> DocumentReaderConfig.getDefault().withMetrics(null));
+    }
+
+    @Test
+    public void testNoopScopes() throws Exception {
+        final ReaderMetrics noDocuments = new ReaderMetrics() {
+            @Override
+            public ReaderMetrics forDocument(final String name) {
+                return NOOP;
+            }
+        };
+        try (Document doc = new Document(testDocument(), DocumentReaderConfig.getDefault().withMetrics(noDocuments))) {
+            assertNull(doc.getMetrics());
+            assertNull(doc.nextTable().getMetrics());
+        }
+
+        final ReaderMetrics noTables = new ReaderMetrics() {
+            @Override
+            public ReaderMetrics forTable(final String name) {
+                return NOOP;
+            }
+        };
+        try (Document doc = new Document(testDocument(), DocumentReaderConfig.getDefault().withMetrics(noTables))) {
+            assertSame(noTables, doc.getMetrics());
+            assertNull(doc.nextTable().getMetrics());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class MappedZipFileTest extends AbstractBaseTest {
+
+    private Path resource(final String name) {
+        return Paths.get(Objects.requireNonNull(getClass().getResource(name)).getFile());
+    }
+
+    private static byte[] readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1000];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testDeflatedEntry() throws Exception {
+        try (MappedZipFile mapped = MappedZipFile.open(resource("/test01.ods"));
+             ZipFile zip = new ZipFile(resource("/test01.ods").toFile())) {
+            final ContentSource content = mapped.getEntry("content.xml");
+            assertNotNull(content);
+
+            final ZipEntry expected = zip.getEntry("content.xml");
+            assertEquals(expected.getSize(), content.getSize());
+            assertEquals(expected.getCrc(), content.getCrc());
+            assertArrayEquals(readAll(zip.getInputStream(expected)), readAll(content.open()));
+            assertArrayEquals(readAll(zip.getInputStream(expected)), readAll(content.open()), "read twice");
+
+            final byte[] bytes = readAll(zip.getInputStream(expected));
+            try (InputStream in = content.open()) {
+                assertEquals(bytes[0] & 0xFF, in.read());
+                assertEquals(1000, in.skip(1000));
+                assertEquals(bytes[1001] & 0xFF, in.read());
+                assertEquals(bytes.length - 1002, in.skip(Long.MAX_VALUE));
+                assertEquals(-1, in.read());
+                assertEquals(0, in.skip(10));
+            }
+        }
+    }
+
+    @Test
+    public void testStoredEntry() throws Exception {
+        final byte[] data = "stored content".getBytes(StandardCharsets.UTF_8);
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        final File file = File.createTempFile("test", ".zip");
+        file.deleteOnExit();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            final ZipEntry entry = new ZipEntry("content.xml");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCrc(crc.getValue());
+            out.putNextEntry(entry);
+            out.write(data);
+            out.closeEntry();
+        }
+
+        try (MappedZipFile mapped = MappedZipFile.open(file.toPath())) {
+            final ContentSource content = mapped.getEntry("content.xml");
+            assertEquals(crc.getValue(), content.getCrc());
+            assertArrayEquals(data, readAll(content.open()));
+
+            final InputStream in = content.open();
+            assertEquals(7, in.skip(7));
+            assertEquals('c', in.read());
+        }
+    }
+
+    @Test
+    public void testMissingEntry() throws Exception {
+        try (MappedZipFile mapped = MappedZipFile.open(resource("/empty.zip"))) {
+            assertNull(mapped.getEntry("content.xml"));
+        }
+    }
+
+    @Test
+    public void testNoZipFile() throws Exception {
+        final File file = File.createTempFile("test", ".ods");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[100]);
+        }
+
+        try (MappedZipFile mapped = MappedZipFile.open(file.toPath())) {
+            assertNull(mapped.getEntry("content.xml"));
+        }
+    }
+
+    @Test
+    public void testDocumentIsClosed() throws Exception {
+        final Document doc;
+        try (Document opened = new Document(resource("/test01.ods"))) {
+            doc = opened;
+            assertEquals("Tabelle1", doc.nextTable().getName());
+        }
+        assertThrows(IOException.class, doc::index);
+    }
+}
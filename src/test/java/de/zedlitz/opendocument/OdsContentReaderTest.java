@@ -0,0 +1,217 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class OdsContentReaderTest extends AbstractBaseTest {
+
+    private static final DocumentReaderConfig BUILT_IN = DocumentReaderConfig.getDefault()
+            .withBackend(DocumentReaderConfig.Backend.BUILT_IN);
+
+    private static final String CONTENT =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- comment -->" +
+                    "<office:document-content xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'" +
+                    " xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\">\r\n" +
+                    "<table:table table:name=\"T&amp;1&#x20;x\" table:style-name = 'a\tb'>" +
+                    "<table:table-row table:number-rows-repeated=\"2\">" +
+                    "<table:table-cell/><table:table-cell office:value-type=\"string\">" +
+                    "<text:p xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'>" +
+                    "a&lt;&#98;\u00e4\u20ac\ud83d\ude00<![CDATA[<x>]]]></text:p><?pi data?>" +
+                    "</table:table-cell></table:table-row></table:table></office:document-content>\n";
+
+    private static XMLStreamReader create(final String content) throws XMLStreamException {
+        return create(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static XMLStreamReader create(final byte[] content) throws XMLStreamException {
+        return OdsContentReader.create(new ByteArrayInputStream(content), XMLInputFactory.newInstance());
+    }
+
+    private static Path resource(final String name) {
+        return Paths.get(Objects.requireNonNull(OdsContentReaderTest.class.getResource(name)).getFile());
+    }
+
+    /**
+     * Record the events of a parser. Adjacent text events are merged, because StAX implementations may split
+     * text at any position.
+     */
+    private static List<String> events(final XMLStreamReader parser) throws XMLStreamException {
+        final List<String> result = new ArrayList<>();
+        final StringBuilder text = new StringBuilder();
+        while (parser.hasNext()) {
+            final int eventType = parser.next();
+            if (eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.CDATA
+                    || eventType == XMLStreamConstants.SPACE) {
+                text.append(parser.getText());
+                continue;
+            }
+            if (text.length() > 0) {
+                result.add("text " + text);
+                text.setLength(0);
+            }
+            if (eventType == XMLStreamConstants.START_ELEMENT) {
+                final TreeMap<String, String> attributes = new TreeMap<>();
+                for (int i = 0; i < parser.getAttributeCount(); i++) {
+                    attributes.put(parser.getAttributeName(i).toString(), parser.getAttributeValue(i));
+                }
+                result.add("start " + parser.getName() + " " + attributes);
+            } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                result.add("end " + parser.getName());
+            } else if (eventType == XMLStreamConstants.END_DOCUMENT) {
+                result.add("end document");
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        final XMLStreamReader parser = create(CONTENT);
+        assertTrue(parser instanceof OdsContentReader);
+        assertEquals(XMLStreamConstants.START_DOCUMENT, parser.getEventType());
+        assertEquals("1.0", parser.getVersion());
+        assertEquals("UTF-8", parser.getCharacterEncodingScheme());
+        assertEquals(events(createParser(CONTENT)), events(parser));
+    }
+
+    @Test
+    public void testKnownNames() throws Exception {
+        final XMLStreamReader parser = create(CONTENT);
+        advanceToStartTag(parser);
+        assertEquals(2, parser.getNamespaceCount());
+        assertEquals("office", parser.getPrefix());
+
+        assertEquals(XMLStreamConstants.START_ELEMENT, parser.nextTag());
+        assertSame(Table.ELEMENT_TABLE, parser.getName());
+        assertEquals("T&1 x", parser.getAttributeValue(Document.NS_TABLE, "name"));
+        assertEquals("a b", parser.getAttributeValue(null, "style-name"));
+        assertNull(parser.getAttributeValue(Document.NS_OFFICE, "name"));
+
+        parser.nextTag();
+        assertSame(Row.ELEMENT_ROW, parser.getName());
+        parser.nextTag();
+        assertSame(Cell.ELEMENT_CELL, parser.getName());
+        assertEquals(XMLStreamConstants.END_ELEMENT, parser.next());
+        assertSame(Cell.ELEMENT_CELL, parser.getName());
+    }
+
+    @Test
+    public void testNestedNamespaces() throws Exception {
+        final String content = "<a xmlns='urn:1' xmlns:p='urn:2'><p:b xmlns:p='urn:3' p:x='1'><p:c/></p:b>" +
+                "<p:b p:x='2'/></a>";
+        assertEquals(events(createParser(content)), events(create(content)));
+
+        final XMLStreamReader parser = create(content);
+        parser.nextTag();
+        assertEquals("urn:1", parser.getNamespaceURI());
+        parser.nextTag();
+        assertEquals("urn:3", parser.getNamespaceURI());
+        assertEquals("urn:3", parser.getAttributeNamespace(0));
+        assertEquals("urn:3", parser.getNamespaceContext().getNamespaceURI("p"));
+    }
+
+    @Test
+    public void testMalformed() {
+        assertThrows(XMLStreamException.class, () -> events(create("<a><b></a>")));
+        assertThrows(XMLStreamException.class, () -> events(create("<a>&unknown;</a>")));
+        assertThrows(XMLStreamException.class, () -> events(create("<a><b>")));
+        assertThrows(XMLStreamException.class, () -> events(create("<p:a/>")));
+        assertThrows(XMLStreamException.class, () -> events(create("<a x=1/>")));
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        final String declared = CONTENT.replace("UTF-8", "ISO-8859-1").replace("\u20ac\ud83d\ude00", "");
+        final XMLStreamReader latin1 = create(declared.getBytes(StandardCharsets.ISO_8859_1));
+        assertFalse(latin1 instanceof OdsContentReader);
+        assertEquals(events(createParser(declared)), events(latin1));
+
+        final String withDoctype = "<!DOCTYPE a><a/>";
+        assertFalse(create(withDoctype) instanceof OdsContentReader);
+
+        final byte[] utf16 = "<?xml version='1.0' encoding='UTF-16'?><a/>".getBytes(StandardCharsets.UTF_16);
+        assertFalse(create(utf16) instanceof OdsContentReader);
+        assertTrue(create("\ufeff<a/>") instanceof OdsContentReader);
+    }
+
+    @Test
+    public void testLargeContent() throws Exception {
+        final String content = DocumentIndexTest.createLargeContent();
+        assertTrue(content.length() > 128 * 1024);
+        assertEquals(events(createParser(content)), events(create(content)));
+    }
+
+    @Test
+    public void testRealDocuments() throws Exception {
+        for (String name : new String[]{"/test01.ods", "/formats.ods"}) {
+            try (ZipFile zip = new ZipFile(resource(name).toFile())) {
+                final List<String> expected;
+                try (InputStream in = zip.getInputStream(zip.getEntry("content.xml"))) {
+                    expected = events(XMLInputFactory.newInstance().createXMLStreamReader(in));
+                }
+                try (InputStream in = zip.getInputStream(zip.getEntry("content.xml"))) {
+                    final XMLStreamReader parser = OdsContentReader.create(in, XMLInputFactory.newInstance());
+                    assertTrue(parser instanceof OdsContentReader);
+                    assertEquals(expected, events(parser));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDocument() throws Exception {
+        for (String name : new String[]{"/test01.ods", "/formats.ods"}) {
+            assertEquals(contents(new Document(resource(name))), contents(new Document(resource(name), BUILT_IN)));
+        }
+    }
+
+    @Test
+    public void testIndexedDocument() throws Exception {
+        final Path path = createOdsFile(DocumentIndexTest.createLargeContent()).toPath();
+        try (Document doc = new Document(path, BUILT_IN)) {
+            doc.index();
+            final Table table = doc.getTable("Big & Tall").orElseThrow(AssertionError::new);
+            table.seekRow(1100);
+            final Row row = table.nextRow();
+            assertEquals(1100, row.getRowNum());
+            assertEquals("rep", row.nextCell().getContent());
+        }
+    }
+
+    private static List<String> contents(final Document doc) throws Exception {
+        final List<String> result = new ArrayList<>();
+        try (Document d = doc) {
+            Table table;
+            while ((table = d.nextTable()) != null) {
+                result.add("table " + table.getName());
+                Row row;
+                while ((row = table.nextRow()) != null) {
+                    Cell cell;
+                    while ((cell = row.nextCell()) != null) {
+                        result.add(cell.getValueType() + " " + cell.getValue() + " " + cell.getContent());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
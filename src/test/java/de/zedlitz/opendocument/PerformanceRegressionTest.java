@@ -0,0 +1,150 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Reads the generated workbooks and compares the allocated bytes per cell and the time per megabyte of the
+ * document with the baseline in <code>performance-baseline.properties</code>. A test fails if the allocation is
+ * larger than the baseline times its tolerance. The time depends on the machine and its load, so it is only
+ * reported unless the check is enabled with <code>-Dperformance.checkTime=true</code>, e.g. on a dedicated build
+ * machine.
+ * <p>
+ * The other tests change what the JIT compiler inlines and which allocations it removes, so Maven runs this test
+ * in an execution and a JVM of its own.
+ * <p>
+ * After an intended change the baseline is written again with
+ * <code>mvn test -Dtest=PerformanceRegressionTest -Dperformance.updateBaseline=true</code>.
+ *
+ * @author jzedlitz
+ */
+public class PerformanceRegressionTest {
+    private static final String BASELINE = "/performance-baseline.properties";
+    private static final String BASELINE_SOURCE = "src/test/resources/performance-baseline.properties";
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 3;
+
+    private static final Properties baseline = new Properties();
+    private static final TreeMap<String, String> measured = new TreeMap<>();
+    private static boolean update;
+    private static boolean checkTime;
+
+    @BeforeAll
+    public static void loadBaseline() throws IOException {
+        update = Boolean.getBoolean("performance.updateBaseline");
+        checkTime = Boolean.getBoolean("performance.checkTime");
+        try (InputStream in = PerformanceRegressionTest.class.getResourceAsStream(BASELINE)) {
+            if (in != null) {
+                baseline.load(in);
+            }
+        }
+    }
+
+    @AfterAll
+    public static void writeBaseline() throws IOException {
+        if (!update) {
+            return;
+        }
+        try (Writer out = Files.newBufferedWriter(Paths.get(BASELINE_SOURCE), StandardCharsets.ISO_8859_1)) {
+            out.write("# written by PerformanceRegressionTest with -Dperformance.updateBaseline=true\n");
+            out.write("tolerance.bytesPerCell=" + baseline.getProperty("tolerance.bytesPerCell", "1.25") + "\n");
+            out.write("tolerance.millisPerMegabyte=" + baseline.getProperty("tolerance.millisPerMegabyte", "4.0")
+                    + "\n");
+            for (String key : measured.keySet()) {
+                out.write(key + "=" + measured.get(key) + "\n");
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WorkbookGenerator.Shape.class)
+    public void testShape(final WorkbookGenerator.Shape shape) throws Exception {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported(),
+                "The JVM cannot measure the allocated memory of a thread");
+        final com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        final long thread = Thread.currentThread().getId();
+
+        final byte[] document = WorkbookGenerator.generate(shape, 1, 42);
+        final double megabytes = document.length / (1024.0 * 1024.0);
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            read(document);
+        }
+
+        // the best run is the one with the least disturbance, e.g. by the garbage collector or other processes
+        long cells = 0;
+        long bytes = Long.MAX_VALUE;
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final long bytesBefore = allocation.getThreadAllocatedBytes(thread);
+            final long start = System.nanoTime();
+            cells = read(document);
+            nanos = Math.min(nanos, System.nanoTime() - start);
+            bytes = Math.min(bytes, allocation.getThreadAllocatedBytes(thread) - bytesBefore);
+        }
+
+        check(shape, "bytesPerCell", (double) bytes / cells, true);
+        check(shape, "millisPerMegabyte", nanos / 1e6 / megabytes, checkTime);
+    }
+
+    private static long read(final byte[] document) throws Exception {
+        long cells = 0;
+        long length = 0;
+        try (Document doc = new Document(new ByteArrayInputStream(document))) {
+            for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+                for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                    for (Cell cell = row.nextCell(); cell != null; cell = row.nextCell()) {
+                        length += cell.getContent().length();
+                        cells++;
+                    }
+                }
+            }
+        }
+        assertTrue(length > 0);
+        return cells;
+    }
+
+    /**
+     * @param enforced whether the test fails if the value is above the limit, otherwise it is only reported
+     */
+    private static void check(final WorkbookGenerator.Shape shape, final String metric, final double value,
+                              final boolean enforced) {
+        final String key = shape + "." + metric;
+        synchronized (measured) {
+            measured.put(key, String.format(Locale.ROOT, "%.1f", value));
+        }
+        if (update) {
+            return;
+        }
+        final String expected = baseline.getProperty(key);
+        assertNotNull(expected, "No baseline for " + key + ", write it with -Dperformance.updateBaseline=true");
+        final double tolerance = Double.parseDouble(baseline.getProperty("tolerance." + metric));
+        final double limit = Double.parseDouble(expected) * tolerance;
+        if (!enforced) {
+            System.out.printf(Locale.ROOT, "%s is %.1f, the baseline is %s and the limit %.1f%s%n", key, value,
+                    expected, limit, value > limit ? " (exceeded)" : "");
+            return;
+        }
+        assertTrue(value <= limit, String.format("%s is %.1f, the baseline is %s and the limit %.1f",
+                key, value, expected, limit));
+    }
+}
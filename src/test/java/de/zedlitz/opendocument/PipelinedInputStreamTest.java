@@ -0,0 +1,87 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class PipelinedInputStreamTest {
+
+    @Test
+    public void testCopy() throws Exception {
+        final byte[] data = new byte[100_000];
+        new Random(42).nextBytes(data);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new PipelinedInputStream(new ByteArrayInputStream(data), 1000, 2)) {
+            assertEquals(data[0] & 0xFF, in.read());
+            out.write(data[0]);
+            final byte[] buffer = new byte[777];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            assertEquals(-1, in.read(), "end is repeated");
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final InputStream broken = new InputStream() {
+            private int count;
+
+            @Override
+            public int read() throws IOException {
+                if (count++ >= 1500) {
+                    throw new IOException("broken");
+                }
+                return 'x';
+            }
+        };
+
+        try (InputStream in = new PipelinedInputStream(broken, 1000, 4)) {
+            assertEquals(1000, in.read(new byte[2000]));
+            assertEquals(500, in.read(new byte[2000]), "bytes in front of the failure");
+            final IOException e = assertThrows(IOException.class, () -> in.read(new byte[2000]));
+            assertEquals("broken", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseStopsReading() throws Exception {
+        final CountDownLatch closed = new CountDownLatch(1);
+        final InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                return 'x';
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+
+        final InputStream in = new PipelinedInputStream(endless, 10, 1);
+        assertEquals('x', in.read());
+        in.close();
+        assertTrue(closed.await(1, TimeUnit.SECONDS));
+        assertThrows(IOException.class, in::read);
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PipelinedInputStream(new ByteArrayInputStream(new byte[0]), 100, 0));
+    }
+}
@@ -0,0 +1,94 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class RowBatchTest extends AbstractBaseTest {
+
+    private static final String CONTENT =
+            "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
+                    " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'" +
+                    " xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'" +
+                    " table:name=\"Tabelle1\">" +
+                    "<table:table-row>" +
+                    "<table:table-cell office:value-type=\"float\" office:value=\"1.5\"><text:p>1,5</text:p>" +
+                    "</table:table-cell>" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>abc</text:p></table:table-cell>" +
+                    "<table:table-cell office:value-type=\"date\" office:date-value=\"1970-01-11\">" +
+                    "<text:p>11.01.70</text:p></table:table-cell>" +
+                    "<table:table-cell office:value-type=\"boolean\" office:boolean-value=\"true\">" +
+                    "<text:p>WAHR</text:p></table:table-cell>" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>ignored</text:p></table:table-cell>" +
+                    "</table:table-row>" +
+                    "<table:table-row table:number-rows-repeated=\"5\">" +
+                    "<table:table-cell table:number-columns-repeated=\"2\" office:value-type=\"time\"" +
+                    " office:time-value=\"PT01H00M01S\"><text:p>01:00:01</text:p></table:table-cell>" +
+                    "</table:table-row>" +
+                    "<table:table-row><table:table-cell/><table:table-cell/>" +
+                    "<table:table-cell office:value-type=\"currency\" office:value=\"-2\"><text:p>-2 €</text:p>" +
+                    "</table:table-cell></table:table-row>" +
+                    "</table:table>";
+
+    @Test
+    public void testColumns() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        final RowBatch batch = new RowBatch(4, 4);
+
+        assertEquals(4, table.nextBatch(batch));
+        assertEquals(1, batch.getRowNumber(0));
+        assertEquals(RowBatch.TYPE_FLOAT, batch.getType(0, 0));
+        assertEquals(1.5, batch.getDouble(0, 0));
+        assertEquals("1,5", batch.getText(0, 0));
+        assertEquals(RowBatch.TYPE_STRING, batch.getType(0, 1));
+        assertTrue(Double.isNaN(batch.getDouble(0, 1)));
+        assertEquals("abc", batch.getText(0, 1));
+        assertEquals(RowBatch.TYPE_DATE, batch.getType(0, 2));
+        assertEquals(LocalDate.of(1970, 1, 11).toEpochDay(), batch.getDouble(0, 2));
+        assertEquals(1.0, batch.getDouble(0, 3));
+        assertEquals(0L, batch.getNulls(0)[0]);
+
+        // the first three repetitions of the repeated row
+        for (int i = 1; i < 4; i++) {
+            assertEquals(i + 1, batch.getRowNumber(i));
+            assertEquals(RowBatch.TYPE_TIME, batch.getType(i, 0));
+            assertEquals(3601.0, batch.getDouble(i, 0));
+            assertEquals("01:00:01", batch.getText(i, 0));
+            // only the first column of a run has a value
+            assertTrue(batch.isNull(i, 1));
+            assertEquals(RowBatch.TYPE_EMPTY, batch.getType(i, 1));
+        }
+        assertEquals(0b1110L, batch.getNulls(1)[0] & 0b1110L);
+
+        assertEquals(3, table.nextBatch(batch));
+        assertEquals(5, batch.getRowNumber(0));
+        assertEquals(6, batch.getRowNumber(1));
+        assertEquals(3601.0, batch.getDouble(1, 0));
+        assertEquals(7, batch.getRowNumber(2));
+        assertTrue(batch.isNull(2, 0));
+        assertFalse(batch.isNull(2, 2));
+        assertEquals(RowBatch.TYPE_CURRENCY, batch.getType(2, 2));
+        assertEquals(-2.0, batch.getValues(2)[2]);
+        assertTrue(batch.isNull(2, 3));
+
+        assertEquals(0, table.nextBatch(batch));
+        assertEquals(0, batch.getSize());
+    }
+
+    @Test
+    public void testTextBuffer() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        final RowBatch batch = new RowBatch(1, 2);
+        final char[] initial = batch.getTextBuffer();
+        table.nextBatch(batch);
+        assertSame(initial, batch.getTextBuffer());
+        assertEquals("abc", new String(batch.getTextBuffer(), batch.getTextOffsets(1)[0],
+                batch.getTextLengths(1)[0]));
+        assertThrows(IllegalArgumentException.class, () -> new RowBatch(0, 1));
+    }
+}
@@ -0,0 +1,150 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class RowEmitterTest extends AbstractBaseTest {
+
+    private static final String CONTENT =
+            "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
+                    " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'>" +
+                    "<table:table-row><table:table-cell><text:p>1</text:p></table:table-cell>" +
+                    "<table:table-cell><text:p>a</text:p></table:table-cell></table:table-row>" +
+                    "<table:table-row><table:table-cell><text:p>2</text:p></table:table-cell></table:table-row>" +
+                    "<table:table-row><table:table-cell><text:p>3</text:p></table:table-cell></table:table-row>" +
+                    "<table:table-row><table:table-cell><text:p>4</text:p></table:table-cell></table:table-row>" +
+                    "</table:table>";
+
+    private static class Recorder implements RowEmitter.Receiver {
+        final List<Row> rows = new ArrayList<>();
+        Throwable error;
+        boolean complete;
+
+        @Override
+        public void onNext(final Row row) {
+            rows.add(row);
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+    }
+
+    @Test
+    public void testDemand() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        final AtomicInteger closed = new AtomicInteger();
+        final Recorder recorder = new Recorder();
+        final RowEmitter emitter = new RowEmitter(RowEmitter.rows(table), closed::incrementAndGet, Runnable::run,
+                recorder);
+
+        emitter.request(2);
+        assertEquals(2, recorder.rows.size());
+        // the rows have been read completely and can be used later
+        assertEquals("a", recorder.rows.get(0).getAt(1).getContent());
+        assertEquals("2", recorder.rows.get(1).getAt(0).getContent());
+
+        emitter.request(10);
+        assertEquals(4, recorder.rows.size());
+        assertTrue(recorder.complete);
+        assertNull(recorder.error);
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void testNoReadAhead() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        final Recorder recorder = new Recorder();
+        new RowEmitter(RowEmitter.rows(table), null, Runnable::run, recorder).request(1);
+        assertEquals(1, recorder.rows.size());
+        assertEquals(2, table.nextRow().getRowNum());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        final AtomicInteger closed = new AtomicInteger();
+        final RowEmitter[] emitter = new RowEmitter[1];
+        final Recorder recorder = new Recorder() {
+            @Override
+            public void onNext(final Row row) {
+                super.onNext(row);
+                emitter[0].cancel();
+            }
+        };
+        emitter[0] = new RowEmitter(RowEmitter.rows(table), closed::incrementAndGet, Runnable::run, recorder);
+        emitter[0].request(Long.MAX_VALUE);
+        assertEquals(1, recorder.rows.size());
+        assertFalse(recorder.complete);
+        assertNull(recorder.error);
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void testInvalidRequest() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        final Recorder recorder = new Recorder();
+        new RowEmitter(RowEmitter.rows(table), null, Runnable::run, recorder).request(0);
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertTrue(recorder.rows.isEmpty());
+    }
+
+    @Test
+    public void testError() {
+        final Recorder recorder = new Recorder();
+        final AtomicInteger closed = new AtomicInteger();
+        new RowEmitter(() -> {
+            throw new OdsReaderException("broken");
+        }, closed::incrementAndGet, Runnable::run, recorder).request(1);
+        assertEquals("broken", recorder.error.getMessage());
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void testRejected() {
+        final Recorder recorder = new Recorder();
+        final Closeable resource = () -> {
+        };
+        new RowEmitter(() -> null, resource, command -> {
+            throw new RejectedExecutionException();
+        }, recorder).request(1);
+        assertTrue(recorder.error instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void testExecutor() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+            final Recorder recorder = new Recorder();
+            final RowEmitter emitter = new RowEmitter(RowEmitter.rows(table), null, executor, recorder);
+            for (int i = 0; i < 5; i++) {
+                emitter.request(1);
+            }
+            executor.submit(() -> {
+            }).get();
+            assertEquals(4, recorder.rows.size());
+            assertTrue(recorder.complete);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
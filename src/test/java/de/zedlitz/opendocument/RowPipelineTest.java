@@ -0,0 +1,137 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class RowPipelineTest extends AbstractBaseTest {
+
+    private static String content(final int rows) {
+        final StringBuilder result = new StringBuilder(
+                "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
+                        " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'" +
+                        " xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'>");
+        for (int i = 1; i <= rows; i++) {
+            result.append("<table:table-row><table:table-cell office:value-type=\"float\" office:value=\"")
+                    .append(i).append("\"><text:p>").append(i).append("</text:p></table:table-cell>")
+                    .append("</table:table-row>");
+        }
+        return result.append("</table:table>").toString();
+    }
+
+    private static void sleep(final int maxMicros) {
+        try {
+            TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextInt(maxMicros));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(content(500))));
+        final List<Integer> result = new ArrayList<>();
+        try (RowPipeline<Integer> pipeline = table.pipeline(row -> {
+            sleep(500);
+            return (int) row.getAt(0).getDouble();
+        }, 4, 16)) {
+            pipeline.forEachRemaining(result::add);
+            assertEquals(500, pipeline.getRowCount());
+            assertTrue(pipeline.getMaxQueueDepth() <= 16);
+            assertEquals(0, pipeline.getQueueDepth());
+        }
+        assertEquals(500, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(i + 1, result.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testSlowWorkers() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(content(50))));
+        try (RowPipeline<Row> pipeline = table.pipeline(row -> {
+            sleep(2000);
+            return row;
+        }, 1, 2)) {
+            int count = 0;
+            while (pipeline.hasNext()) {
+                assertEquals(++count, pipeline.next().getRowNum());
+            }
+            assertEquals(50, count);
+            // the parser has been held back by the worker
+            assertTrue(pipeline.getParserWaits() > 0);
+            assertEquals(2, pipeline.getMaxQueueDepth());
+            assertTrue(pipeline.getConsumerWaits() > 0);
+            assertFalse(pipeline.hasNext());
+        }
+    }
+
+    @Test
+    public void testMapperFails() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(content(10))));
+        final RowPipeline<Object> pipeline = table.pipeline(row -> {
+            if (row.getRowNum() == 3) {
+                throw new IllegalStateException("row 3");
+            }
+            return row;
+        }, 2, 4);
+        pipeline.next();
+        pipeline.next();
+        final IllegalStateException e = assertThrows(IllegalStateException.class, pipeline::next);
+        assertEquals("row 3", e.getMessage());
+        assertThrows(OdsReaderException.class, pipeline::next);
+    }
+
+    @Test
+    public void testParserFails() throws Exception {
+        final Table table = new Table(new StreamReaderDelegate(advanceToStartTag(createParser(content(10)))) {
+            private int events;
+
+            @Override
+            public int next() throws XMLStreamException {
+                if (++events > 20) {
+                    throw new OutOfMemoryError("parser");
+                }
+                return super.next();
+            }
+        });
+        final RowPipeline<Row> pipeline = table.pipeline(row -> row, 2, 4);
+        assertEquals(1, pipeline.next().getRowNum());
+        final OutOfMemoryError e = assertThrows(OutOfMemoryError.class, () -> {
+            while (pipeline.hasNext()) {
+                pipeline.next();
+            }
+        });
+        assertEquals("parser", e.getMessage());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(content(1000))));
+        final RowPipeline<Row> pipeline = table.pipeline(row -> row, 2, 4);
+        assertEquals(1, pipeline.next().getRowNum());
+        pipeline.close();
+        assertThrows(OdsReaderException.class, pipeline::hasNext);
+        final long rows = pipeline.getRowCount();
+        Thread.sleep(50);
+        assertEquals(rows, pipeline.getRowCount(), "the parser has stopped");
+        assertTrue(pipeline.getRowCount() < 1000);
+    }
+
+    @Test
+    public void testInvalidArguments() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(content(1))));
+        assertThrows(IllegalArgumentException.class, () -> table.pipeline(row -> row, 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> table.pipeline(row -> row, 1, 0));
+    }
+}
@@ -0,0 +1,137 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class RowSpliteratorTest extends AbstractBaseTest {
+
+    private Table openIndexedTable() throws Exception {
+        return openIndexedTable(DocumentReaderConfig.getDefault());
+    }
+
+    private Table openIndexedTable(final DocumentReaderConfig config) throws Exception {
+        final Document doc = new Document(createOdsFile(DocumentIndexTest.createLargeContent()).toPath(), config);
+        assertTrue(doc.keepInMemory());
+        doc.index(100);
+        return doc.getTable(0).orElseThrow(AssertionError::new);
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        final Table table = openIndexedTable();
+        final Spliterator<Row> spliterator = table.openStream().spliterator();
+
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+        final Spliterator<Row> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(1300, prefix.estimateSize(), "the first 12 of 24 checkpoints");
+
+        final Row first = nextRow(prefix);
+        assertEquals(1, first.getRowNum());
+        final Row second = nextRow(spliterator);
+        assertEquals(1301, second.getRowNum());
+        assertEquals("1301", second.nextCell().getContent());
+    }
+
+    private static Row nextRow(final Spliterator<Row> spliterator) {
+        final Row[] result = new Row[1];
+        assertTrue(spliterator.tryAdvance(row -> result[0] = row));
+        return result[0];
+    }
+
+    @Test
+    public void testParallelStream() throws Exception {
+        final Table table = openIndexedTable();
+
+        final List<Integer> rowNumbers = table.openStream().parallel()
+                .map(Row::getRowNum)
+                .collect(Collectors.toList());
+        final List<Integer> expected = IntStream.rangeClosed(1, 2500)
+                .filter(i -> i <= 1001 || i > 1200)
+                .boxed()
+                .collect(Collectors.toList());
+        assertEquals(expected, rowNumbers);
+    }
+
+    @Test
+    public void testParallelStreamExpandsRepeatedRows() throws Exception {
+        final Table table = openIndexedTable();
+        table.setExpandRepeatedRows(true);
+
+        final List<String> contents = table.openStream().parallel()
+                .map(row -> row.getRowNum() + ":" + row.nextCell().getContent())
+                .collect(Collectors.toList());
+        assertEquals(2500, contents.size());
+        for (int i = 0; i < contents.size(); i++) {
+            final int rowNumber = i + 1;
+            final String content = rowNumber > 1000 && rowNumber <= 1200 ? "rep" : Integer.toString(rowNumber);
+            assertEquals(rowNumber + ":" + content, contents.get(i));
+        }
+    }
+
+    @Test
+    public void testStartedTable() throws Exception {
+        final Table table = openIndexedTable();
+        table.nextRow();
+
+        final List<Integer> rowNumbers = table.openStream().parallel()
+                .map(Row::getRowNum)
+                .collect(Collectors.toList());
+        assertEquals(2, rowNumbers.get(0));
+        assertEquals(2300, rowNumbers.size(), "2301 row elements");
+    }
+
+    @Test
+    public void testNotInMemory() throws Exception {
+        final Document doc = new Document(createOdsFile(DocumentIndexTest.createLargeContent()));
+        doc.index(100);
+        final Table table = doc.getTable(0).orElseThrow(AssertionError::new);
+
+        assertFalse(table.openStream().spliterator() instanceof RowSpliterator,
+                "the parts would inflate the content again");
+    }
+
+    @Test
+    public void testSharedMetrics() throws Exception {
+        final AtomicInteger tables = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+        final LongAdder rows = new LongAdder();
+        final List<String> names = new ArrayList<>();
+        final ReaderMetrics metrics = new ReaderMetrics() {
+            @Override
+            public ReaderMetrics forTable(final String name) {
+                tables.incrementAndGet();
+                names.add(name);
+                return new ReaderMetrics() {
+                    @Override
+                    public void rowRead() {
+                        rows.increment();
+                    }
+
+                    @Override
+                    public void tableFinished() {
+                        finished.incrementAndGet();
+                    }
+                };
+            }
+        };
+        final Table table = openIndexedTable(DocumentReaderConfig.getDefault().withMetrics(metrics));
+
+        assertEquals(2301, table.openStream().parallel().count());
+        assertEquals(1, tables.get(), "one scope for all parts: " + names);
+        assertEquals(1, finished.get());
+        assertTrue(rows.sum() >= 2301);
+    }
+}
@@ -6,8 +6,11 @@ import org.junit.jupiter.api.Test;
 import javax.xml.stream.XMLStreamException;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -79,6 +82,21 @@ public class RowTest extends AbstractBaseTest {
                     "<table:table-cell office:value-type='string'><text:p>C1</text:p>" +
                     "</table:table-cell></table:table-row>";
 
+    /**
+     * Two cells with content followed by the empty filler LibreOffice writes up to the last column.
+     */
+    private static final String CONTENT_TRAILING_EMPTY_CELLS =
+            "<table:table-row table:style-name=\"ro1\"" +
+                    " xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
+                    " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'" +
+                    " xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'>" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>a</text:p></table:table-cell>" +
+                    "<table:table-cell table:number-columns-repeated=\"3\"/>" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>e</text:p></table:table-cell>" +
+                    "<table:table-cell/>" +
+                    "<table:table-cell table:number-columns-repeated=\"16378\"/>" +
+                    "</table:table-row>";
+
     private static final String BROKEN_XML_CONTENT =
             "<table:table-row table:style-name=\"ro1\"" +
                     " xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'>";
@@ -178,6 +196,75 @@ public class RowTest extends AbstractBaseTest {
         assertTrue(errContent.toString().contains("XMLStreamException"));
     }
 
+    @Test
+    public void cellRuns() throws Exception {
+        final Row row = new Row(advanceToStartTag(createParser(CONTENT_MIXED)), 0);
+
+        final CellRun run1 = row.nextCellRun();
+        assertEquals(0, run1.getStartColumn());
+        assertEquals(2, run1.getLength());
+        assertTrue(run1.isEmpty());
+
+        final CellRun run2 = row.nextCellRun();
+        assertEquals(2, run2.getStartColumn());
+        assertEquals(1, run2.getLength());
+        assertFalse(run2.isEmpty());
+        assertEquals("s", run2.getCell().getContent());
+
+        assertEquals(3, row.nextCellRun().getStartColumn());
+        assertEquals(4, row.nextCellRun().getStartColumn());
+        assertNull(row.nextCellRun());
+    }
+
+    @Test
+    public void skipTrailingEmptyCells() throws Exception {
+        final Row row = new Row(advanceToStartTag(createParser(CONTENT_TRAILING_EMPTY_CELLS)), 0);
+        row.setSkipTrailingEmptyCells(true);
+
+        assertEquals("a", row.nextCellRun().getCell().getContent());
+        assertEquals(3, row.nextCellRun().getLength());
+        assertEquals("e", row.nextCellRun().getCell().getContent());
+        assertNull(row.nextCellRun());
+        assertNull(row.nextCellRun(), "second call ok");
+    }
+
+    @Test
+    public void iteratorSkipTrailingEmptyCells() throws Exception {
+        final Row row = new Row(advanceToStartTag(createParser(CONTENT_TRAILING_EMPTY_CELLS)), 0);
+        row.setSkipTrailingEmptyCells(true);
+
+        List<String> content = row.openStream().map(Cell::getContent).collect(Collectors.toList());
+        assertEquals(Arrays.asList("a", "", "", "", "e"), content);
+    }
+
+    @Test
+    public void iteratorAllCells() throws Exception {
+        final Row row = new Row(advanceToStartTag(createParser(CONTENT_TRAILING_EMPTY_CELLS)), 0);
+
+        assertEquals(16384, row.openStream().count());
+    }
+
+    @Test
+    public void getAtRepeatedColumns() throws Exception {
+        final Row row = new Row(advanceToStartTag(createParser(CONTENT_TRAILING_EMPTY_CELLS)), 0);
+
+        assertEquals("e", row.getAt(4).getContent());
+        assertEquals(2, row.getAt(2).getColumnIndex());
+        assertEquals("", row.getAt(2).getContent());
+        assertEquals("a", row.getAt(0).getContent());
+        assertEquals(16383, row.getAt(16383).getColumnIndex());
+        assertThrows(IndexOutOfBoundsException.class, () -> row.getAt(16384));
+    }
+
+    @Test
+    public void getAtSkipTrailingEmptyCells() throws Exception {
+        final Row row = new Row(advanceToStartTag(createParser(CONTENT_TRAILING_EMPTY_CELLS)), 0);
+        row.setSkipTrailingEmptyCells(true);
+
+        assertEquals("e", row.getAt(4).getContent());
+        assertThrows(IndexOutOfBoundsException.class, () -> row.getAt(5));
+    }
+
     @Test
     void iterator() throws XMLStreamException {
         final Row row = new Row(advanceToStartTag(createParser(CONTENT_EMPTY_ROW)), 0);
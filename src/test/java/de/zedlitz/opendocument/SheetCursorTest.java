@@ -0,0 +1,97 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class SheetCursorTest extends AbstractBaseTest {
+
+    private static final String CONTENT_REPEATED = "<office:document-content"
+            + " xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'"
+            + " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'"
+            + " xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'>"
+            + "<office:body><office:spreadsheet>"
+            + "<table:table table:name=\"Tabelle1\">"
+            + "<table:table-row table:number-rows-repeated=\"2\"><table:table-cell table:number-columns-repeated=\"3\"/>"
+            + "<table:table-cell office:value-type=\"float\" office:value=\"1.5\"><text:p>1,5</text:p></table:table-cell>"
+            + "</table:table-row>"
+            + "<table:table-row><table:table-cell office:value-type=\"string\">"
+            + "<office:annotation><text:p>note</text:p></office:annotation><text:p>a</text:p></table:table-cell>"
+            + "</table:table-row>"
+            + "</table:table><table:table table:name=\"Tabelle2\"/>"
+            + "</office:spreadsheet></office:body></office:document-content>";
+
+    @Test
+    public void repeatedRowsAndCells() throws Exception {
+        final SheetCursor cursor = new Document(createParser(CONTENT_REPEATED)).cursor();
+
+        assertTrue(cursor.nextTable());
+        assertEquals("Tabelle1", cursor.getTableName());
+
+        assertTrue(cursor.nextRow());
+        assertEquals(1, cursor.getRowNum());
+        assertEquals(2, cursor.getNumberRowsRepeated());
+
+        assertTrue(cursor.nextCell());
+        assertEquals(0, cursor.getColumnIndex());
+        assertEquals(3, cursor.getNumberColumnsRepeated());
+        assertTrue(cursor.isEmpty());
+        assertEquals("undefined", cursor.getValueType().toString());
+
+        assertTrue(cursor.nextCell());
+        assertEquals(3, cursor.getColumnIndex());
+        assertEquals("float", cursor.getValueType().toString());
+        assertEquals("1.5", cursor.getValue().toString());
+        assertEquals("1,5", cursor.getContent().toString());
+        assertFalse(cursor.nextCell());
+        assertFalse(cursor.nextCell(), "second call ok");
+
+        assertTrue(cursor.nextRow());
+        assertEquals(3, cursor.getRowNum());
+        assertTrue(cursor.nextCell());
+        assertEquals("a", cursor.getContent().toString(), "note is ignored");
+        assertNull(cursor.getValue());
+
+        assertFalse(cursor.nextRow());
+        assertTrue(cursor.nextTable());
+        assertEquals("Tabelle2", cursor.getTableName());
+        assertFalse(cursor.nextRow());
+        assertFalse(cursor.nextTable());
+    }
+
+    /**
+     * Rows and cells that are not visited are skipped.
+     */
+    @Test
+    public void skipRowsAndCells() throws Exception {
+        final SheetCursor cursor = new Document(getClass().getResourceAsStream("/test01.ods")).cursor();
+
+        assertTrue(cursor.nextTable());
+        assertTrue(cursor.nextRow());
+        assertTrue(cursor.nextCell());
+        assertEquals("A1", cursor.getContent().toString());
+
+        assertTrue(cursor.nextRow());
+        assertTrue(cursor.nextRow());
+        assertEquals(3, cursor.getRowNum());
+        assertTrue(cursor.nextCell());
+        assertEquals("3", cursor.getValue().toString());
+
+        assertTrue(cursor.nextTable());
+        assertEquals("Tabelle2", cursor.getTableName());
+        assertTrue(cursor.nextTable());
+        assertEquals("Tabelle3", cursor.getTableName());
+        assertFalse(cursor.nextTable());
+    }
+
+    @Test
+    public void noTable() throws Exception {
+        final SheetCursor cursor = new Document(createParser(CONTENT_REPEATED)).cursor();
+
+        assertFalse(cursor.nextRow());
+        assertFalse(cursor.nextCell());
+    }
+}
@@ -0,0 +1,170 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class SheetStoreTest extends AbstractBaseTest {
+
+    private static final String CONTENT =
+            "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
+                    " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'" +
+                    " xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'" +
+                    " table:name=\"Tabelle1\">" +
+                    "<table:table-row>" +
+                    "<table:table-cell office:value-type=\"float\" office:value=\"1.5\"><text:p>1,5</text:p>" +
+                    "</table:table-cell>" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>abc</text:p></table:table-cell>" +
+                    "<table:table-cell office:value-type=\"boolean\" office:boolean-value=\"true\">" +
+                    "<text:p>WAHR</text:p></table:table-cell>" +
+                    "</table:table-row>" +
+                    "<table:table-row table:number-rows-repeated=\"3\">" +
+                    "<table:table-cell table:number-columns-repeated=\"2\" office:value-type=\"date\"" +
+                    " office:date-value=\"1970-01-03\"><text:p>03.01.70</text:p></table:table-cell>" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>\u00e4\u00f6\u00fc</text:p>" +
+                    "</table:table-cell>" +
+                    "</table:table-row>" +
+                    "<table:table-row><table:table-cell table:number-columns-repeated=\"5\"/>" +
+                    "<table:table-cell office:value-type=\"float\" office:value=\"7\">" +
+                    "<text:p>7</text:p></table:table-cell></table:table-row>" +
+                    "<table:table-row table:number-rows-repeated=\"1048570\">" +
+                    "<table:table-cell table:number-columns-repeated=\"1024\"/></table:table-row>" +
+                    "</table:table>";
+
+    @TempDir
+    Path directory;
+
+    private void assertContent(final SheetStore store) {
+        assertEquals("Tabelle1", store.getName());
+        assertEquals(1, store.getFirstRowNumber());
+        assertEquals(1048575, store.getLastRowNumber());
+        assertEquals(6, store.getColumnCount());
+
+        assertEquals(RowBatch.TYPE_FLOAT, store.getType(1, 0));
+        assertEquals(1.5, store.getDouble(1, 0));
+        assertEquals(1, store.getLong(1, 0));
+        assertEquals("1,5", store.getText(1, 0));
+        assertEquals("abc", store.getText(1, 1));
+        assertTrue(Double.isNaN(store.getDouble(1, 1)));
+        assertThrows(OdsReaderException.class, () -> store.getLong(1, 1));
+        assertTrue(store.getBoolean(1, 2));
+        assertThrows(OdsReaderException.class, () -> store.getBoolean(1, 1));
+
+        for (int row = 2; row <= 4; row++) {
+            assertEquals(RowBatch.TYPE_DATE, store.getType(row, 0));
+            assertEquals(2, store.getLong(row, 0));
+            assertEquals("03.01.70", store.getText(row, 0));
+            // only the first column of a run has a value
+            assertTrue(store.isEmpty(row, 1));
+            assertEquals("\u00e4\u00f6\u00fc", store.getText(row, 2));
+        }
+        assertTrue(store.isEmpty(5, 0));
+        assertEquals(7.0, store.getDouble(5, 5));
+        assertTrue(store.isEmpty(6, 0));
+        assertTrue(store.isEmpty(1048575, 2));
+        assertTrue(store.isEmpty(2000000, 0));
+        assertTrue(store.isEmpty(1, 500));
+        assertEquals("", store.getText(6, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.getType(0, 0));
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        try (SheetStore store = table.store(1 << 20, directory)) {
+            assertNull(table.nextRow());
+            assertContent(store);
+            assertEquals(0, store.getSpilledBytes());
+        }
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void testSpilled() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        // small segments, so that rows and index entries are spread over several files
+        final SheetStore store = SheetStore.read(table, 0, directory, 64);
+        assertContent(store);
+        assertTrue(store.getSpilledBytes() > 0);
+        assertTrue(countFiles() > 2);
+
+        store.close();
+        assertEquals(0, countFiles());
+        assertThrows(OdsReaderException.class, () -> store.getType(1, 0));
+    }
+
+    @Test
+    public void testLargeRecord() throws Exception {
+        final StringBuilder content = new StringBuilder(
+                "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
+                        " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'><table:table-row>");
+        IntStream.range(0, 100).forEach(i -> content.append("<table:table-cell><text:p>cell ").append(i)
+                .append("</text:p></table:table-cell>"));
+        content.append("</table:table-row></table:table>");
+
+        final Table table = new Table(advanceToStartTag(createParser(content.toString())));
+        try (SheetStore store = SheetStore.read(table, 0, directory, 64)) {
+            assertEquals(100, store.getColumnCount());
+            assertEquals("cell 0", store.getText(1, 0));
+            assertEquals("cell 99", store.getText(1, 99));
+        }
+    }
+
+    @Test
+    public void testFiltered() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        table.where(0, cell -> cell.getValueType().equals("float"));
+        try (SheetStore store = table.store(0, directory)) {
+            assertEquals(1.5, store.getDouble(1, 0));
+            // the rows in between have been left out
+            assertTrue(store.isEmpty(2, 0));
+            assertTrue(store.isEmpty(4, 2));
+            assertEquals(1, store.getLastRowNumber());
+        }
+    }
+
+    @Test
+    public void testClosedWithDocument() throws Exception {
+        final SheetStore store;
+        try (Document doc = new Document(Paths.get(Objects.requireNonNull(
+                getClass().getResource("/test01.ods")).getFile()))) {
+            store = doc.nextTable().store(0, directory);
+            assertEquals("A1", store.getText(1, 0));
+            final long count = IntStream.range(0, 1000).parallel()
+                    .filter(i -> "A1".equals(store.getText(1, 0)))
+                    .count();
+            assertEquals(1000, count);
+            assertTrue(countFiles() > 0);
+        }
+        assertEquals(0, countFiles());
+        assertThrows(OdsReaderException.class, () -> store.getText(1, 0));
+    }
+
+    @Test
+    public void testEmptyTable() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(
+                "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'/>")));
+        try (SheetStore store = table.store(0, directory)) {
+            assertEquals(0, store.getColumnCount());
+            assertTrue(store.isEmpty(1, 0));
+        }
+        assertThrows(IllegalArgumentException.class, () -> table.store(-1));
+    }
+
+    private long countFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
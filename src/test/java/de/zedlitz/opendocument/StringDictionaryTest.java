@@ -0,0 +1,159 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class StringDictionaryTest extends AbstractBaseTest {
+
+    @Test
+    public void testIntern() {
+        final StringDictionary dictionary = new StringDictionary(100);
+        final StringDictionary.Columns columns = dictionary.forTable();
+        final String first = columns.intern(0, new StringBuilder("Germany"));
+        final String second = columns.intern(0, new StringBuilder("Germany"));
+        assertEquals("Germany", first);
+        assertSame(first, second);
+        assertSame(first, dictionary.intern(new String("Germany")));
+        assertNotSame(first, columns.intern(0, new StringBuilder("Denmark")));
+
+        assertEquals(2, dictionary.getSize());
+        assertEquals(4, dictionary.getLookups());
+        assertEquals(2, dictionary.getHits());
+        assertEquals(0.5, dictionary.getHitRate());
+
+        assertEquals("", columns.intern(0, new StringBuilder()));
+        assertNull(dictionary.intern(null));
+        assertEquals(4, dictionary.getLookups());
+    }
+
+    @Test
+    public void testGrow() {
+        final StringDictionary dictionary = new StringDictionary(1000);
+        for (int i = 0; i < 1000; i++) {
+            dictionary.intern("text " + i);
+        }
+        assertEquals(1000, dictionary.getSize());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("text " + i, dictionary.intern("text " + i));
+        }
+        assertEquals(1000, dictionary.getHits());
+    }
+
+    @Test
+    public void testMaxSize() {
+        final StringDictionary dictionary = new StringDictionary(2);
+        final StringDictionary.Columns columns = dictionary.forTable();
+        columns.intern(0, new StringBuilder("a"));
+        columns.intern(0, new StringBuilder("b"));
+        final String c = columns.intern(0, new StringBuilder("c"));
+        assertEquals("c", c);
+        assertNotSame(c, columns.intern(0, new StringBuilder("c")));
+        assertEquals(2, dictionary.getSize());
+        assertEquals(2, dictionary.getMaxSize());
+    }
+
+    @Test
+    public void testHighCardinalityColumn() {
+        final StringDictionary dictionary = new StringDictionary(100000);
+        final StringDictionary.Columns columns = dictionary.forTable();
+        for (int i = 0; i < StringDictionary.SAMPLE_SIZE * 2; i++) {
+            columns.intern(0, new StringBuilder("id " + i));
+            columns.intern(1, new StringBuilder("status " + i % 3));
+        }
+        assertEquals(1, dictionary.getDisabledColumns());
+        // the texts of the first column are not stored once it has been disabled
+        assertEquals(StringDictionary.SAMPLE_SIZE + 3, dictionary.getSize());
+        assertSame(columns.intern(1, new StringBuilder("status 1")),
+                columns.intern(1, new StringBuilder("status 1")));
+
+        // the first column of another table may repeat its texts
+        final StringDictionary.Columns other = dictionary.forTable();
+        final String germany = other.intern(0, new StringBuilder("Germany"));
+        assertSame(germany, other.intern(0, new StringBuilder("Germany")));
+    }
+
+    @Test
+    public void testConcurrentTables() throws Exception {
+        final StringDictionary dictionary = new StringDictionary(100000);
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<String[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    final StringDictionary.Columns columns = dictionary.forTable();
+                    final String[] texts = new String[500];
+                    for (int i = 0; i < 10000; i++) {
+                        texts[i % 500] = columns.intern(0, new StringBuilder("text " + i % 500));
+                    }
+                    return texts;
+                }));
+            }
+            final String[] first = results.get(0).get();
+            for (Future<String[]> result : results) {
+                final String[] texts = result.get();
+                for (int i = 0; i < texts.length; i++) {
+                    assertEquals("text " + i, texts[i]);
+                    assertSame(first[i], texts[i]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(500, dictionary.getSize());
+        assertEquals(threads * 10000L, dictionary.getLookups());
+        assertEquals(0, dictionary.getDisabledColumns());
+    }
+
+    @Test
+    public void testDocument() throws Exception {
+        final DocumentReaderConfig config = DocumentReaderConfig.getDefault().withStringDictionary(1000);
+        try (Document doc = new Document(Paths.get(Objects.requireNonNull(
+                getClass().getResource("/formats.ods")).getFile()), config)) {
+            final StringDictionary dictionary = doc.getStringDictionary();
+            assertNotNull(dictionary);
+
+            final Map<String, String> seen = new HashMap<>();
+            final int[] shared = new int[1];
+            for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+                table.eachRow(row -> {
+                    for (Cell cell : row) {
+                        final String previous = seen.putIfAbsent(cell.getValueType(), cell.getValueType());
+                        if (previous != null) {
+                            assertSame(previous, cell.getValueType());
+                            shared[0]++;
+                        }
+                    }
+                });
+            }
+            assertTrue(shared[0] > 0);
+            assertTrue(dictionary.getLookups() > 0);
+            assertTrue(dictionary.getHits() > 0);
+        }
+    }
+
+    @Test
+    public void testWithoutDictionary() throws Exception {
+        try (Document doc = new Document(Paths.get(Objects.requireNonNull(
+                getClass().getResource("/test01.ods")).getFile()))) {
+            assertNull(doc.getStringDictionary());
+            assertEquals("A1", doc.nextTable().nextRow().nextCell().getContent());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> DocumentReaderConfig.getDefault().withStringDictionary(-1));
+    }
+}
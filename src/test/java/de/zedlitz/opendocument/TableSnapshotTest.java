@@ -0,0 +1,113 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class TableSnapshotTest extends AbstractBaseTest {
+
+    private static final String CONTENT =
+            "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
+                    " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'" +
+                    " xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'" +
+                    " table:name=\"Tabelle1\">" +
+                    "<table:table-row>" +
+                    "<table:table-cell office:value-type=\"float\" office:value=\"1.5\"><text:p>1,5</text:p>" +
+                    "</table:table-cell>" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>abc</text:p></table:table-cell>" +
+                    "<table:table-cell office:value-type=\"boolean\" office:boolean-value=\"false\">" +
+                    "<text:p>FALSCH</text:p></table:table-cell>" +
+                    "</table:table-row>" +
+                    "<table:table-row table:number-rows-repeated=\"3\">" +
+                    "<table:table-cell table:number-columns-repeated=\"2\" office:value-type=\"date\"" +
+                    " office:date-value=\"1970-01-03\"><text:p>03.01.70</text:p></table:table-cell>" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>abc</text:p></table:table-cell>" +
+                    "</table:table-row>" +
+                    "<table:table-row><table:table-cell office:value-type=\"float\" office:value=\"7\">" +
+                    "<text:p>7</text:p></table:table-cell></table:table-row>" +
+                    "<table:table-row table:number-rows-repeated=\"1048570\">" +
+                    "<table:table-cell table:number-columns-repeated=\"1024\"/></table:table-row>" +
+                    "</table:table>";
+
+    @Test
+    public void testLoad() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        final TableSnapshot snapshot = table.load();
+        assertNull(table.nextRow());
+
+        assertEquals("Tabelle1", snapshot.getName());
+        assertEquals(1, snapshot.getFirstRowNumber());
+        assertEquals(1048575, snapshot.getLastRowNumber());
+        assertEquals(3, snapshot.getColumnCount());
+
+        assertEquals(RowBatch.TYPE_FLOAT, snapshot.getType(1, 0));
+        assertEquals(1.5, snapshot.getDouble(1, 0));
+        assertEquals(1, snapshot.getLong(1, 0));
+        assertEquals("1,5", snapshot.getText(1, 0));
+        assertEquals("abc", snapshot.getText(1, 1));
+        assertTrue(Double.isNaN(snapshot.getDouble(1, 1)));
+        assertThrows(OdsReaderException.class, () -> snapshot.getLong(1, 1));
+        assertFalse(snapshot.getBoolean(1, 2));
+
+        for (int row = 2; row <= 4; row++) {
+            assertEquals(RowBatch.TYPE_DATE, snapshot.getType(row, 0));
+            assertEquals(2, snapshot.getLong(row, 0));
+            assertEquals("03.01.70", snapshot.getText(row, 0));
+            // only the first column of a run has a value
+            assertTrue(snapshot.isEmpty(row, 1));
+            assertEquals("abc", snapshot.getText(row, 2));
+        }
+        assertEquals(7.0, snapshot.getDouble(5, 0));
+        assertTrue(snapshot.isEmpty(6, 0));
+        assertTrue(snapshot.isEmpty(1048575, 2));
+        assertTrue(snapshot.isEmpty(2000000, 0));
+        assertTrue(snapshot.isEmpty(1, 500));
+        assertEquals("", snapshot.getText(6, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.getType(0, 0));
+
+        // "abc" is stored once
+        assertEquals(5, snapshot.getDictionarySize());
+    }
+
+    @Test
+    public void testLoadFiltered() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT)));
+        table.where(0, cell -> cell.getValueType().equals("float"));
+        final TableSnapshot snapshot = table.load();
+        assertEquals(1.5, snapshot.getDouble(1, 0));
+        // the rows in between have been left out
+        assertTrue(snapshot.isEmpty(2, 0));
+        assertTrue(snapshot.isEmpty(4, 2));
+        assertEquals(7.0, snapshot.getDouble(5, 0));
+        assertEquals(5, snapshot.getLastRowNumber());
+    }
+
+    @Test
+    public void testSharedByThreads() throws Exception {
+        try (Document doc = new Document(Paths.get(Objects.requireNonNull(
+                getClass().getResource("/test01.ods")).getFile()))) {
+            final TableSnapshot snapshot = doc.nextTable().load();
+            assertEquals("A1", snapshot.getText(1, 0));
+            final long count = IntStream.range(0, 1000).parallel()
+                    .filter(i -> "A1".equals(snapshot.getText(1, 0)))
+                    .count();
+            assertEquals(1000, count);
+        }
+    }
+
+    @Test
+    public void testEmptyTable() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(
+                "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'/>")));
+        final TableSnapshot snapshot = table.load();
+        assertEquals(0, snapshot.getColumnCount());
+        assertTrue(snapshot.isEmpty(1, 0));
+    }
+}
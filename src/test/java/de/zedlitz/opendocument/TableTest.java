@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 import javax.xml.stream.XMLStreamException;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -26,6 +28,46 @@ public class TableTest extends AbstractBaseTest {
                     " table:name=\"Tabelle1\" table:style-name=\"ta1\" table:print=\"false\">" +
                     "<table:table-row/><table:table-row/>" + "</table:table>";
 
+    /**
+     * A header row, a row repeated three times and the empty filler LibreOffice writes up to the last row.
+     */
+    private static final String CONTENT_REPEATED_ROWS =
+            "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
+                    " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'" +
+                    " xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'" +
+                    " table:name=\"Tabelle1\">" +
+                    "<table:table-row><table:table-cell office:value-type=\"string\"><text:p>h</text:p>" +
+                    "</table:table-cell></table:table-row>" +
+                    "<table:table-row table:number-rows-repeated=\"3\"><table:table-cell/>" +
+                    "<table:table-cell office:value-type=\"float\" office:value=\"1\"><text:p>1</text:p>" +
+                    "</table:table-cell></table:table-row>" +
+                    "<table:table-row table:number-rows-repeated=\"2\"><table:table-cell/></table:table-row>" +
+                    "<table:table-row><table:table-cell office:value-type=\"string\"><text:p>f</text:p>" +
+                    "</table:table-cell></table:table-row>" +
+                    "<table:table-row table:number-rows-repeated=\"1048570\">" +
+                    "<table:table-cell table:number-columns-repeated=\"1024\"/></table:table-row>" +
+                    "</table:table>";
+
+    /**
+     * Runs of repeated cells that straddle the projected columns.
+     */
+    private static final String CONTENT_PROJECTION =
+            "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
+                    " xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'" +
+                    " xmlns:office='urn:oasis:names:tc:opendocument:xmlns:office:1.0'" +
+                    " table:name=\"Tabelle1\">" +
+                    "<table:table-row table:number-rows-repeated=\"2\">" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>a</text:p></table:table-cell>" +
+                    "<table:table-cell table:number-columns-repeated=\"2\" office:value-type=\"string\">" +
+                    "<text:p>r</text:p></table:table-cell>" +
+                    "<table:table-cell office:value-type=\"float\" office:value=\"4\"><text:p>4</text:p>" +
+                    "<office:annotation><text:p>note</text:p></office:annotation></table:table-cell>" +
+                    "<table:table-cell table:number-columns-repeated=\"4\"/></table:table-row>" +
+                    "<table:table-row><table:table-cell table:number-columns-repeated=\"3\"/>" +
+                    "<table:table-cell office:value-type=\"string\"><text:p>x</text:p></table:table-cell>" +
+                    "</table:table-row>" +
+                    "</table:table>";
+
     private static final String BROKEN_XML_CONTENT =
             "<table:table xmlns:table='urn:oasis:names:tc:opendocument:xmlns:table:1.0'" +
                     " table:name=\"Tabelle1\" table:style-name=\"ta1\" table:print=\"false\">";
@@ -81,6 +123,69 @@ public class TableTest extends AbstractBaseTest {
         assertTrue(errContent.toString().contains("XMLStreamException"));
     }
 
+    @Test
+    void repeatedRows() throws XMLStreamException {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_REPEATED_ROWS)));
+
+        assertEquals(1, table.nextRow().getRowNum());
+
+        final Row repeated = table.nextRow();
+        assertEquals(2, repeated.getRowNum());
+        assertEquals(3, repeated.getNumberRowsRepeated());
+        assertEquals("B2", repeated.getAt(1).getAddress());
+
+        assertEquals(5, table.nextRow().getRowNum());
+
+        final Row footer = table.nextRow();
+        assertEquals(7, footer.getRowNum());
+        assertEquals("A7", footer.nextCell().getAddress());
+
+        final Row filler = table.nextRow();
+        assertEquals(8, filler.getRowNum());
+        assertEquals(1048570, filler.getNumberRowsRepeated());
+        assertNull(table.nextRow());
+    }
+
+    @Test
+    void getRepetition() throws XMLStreamException {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_REPEATED_ROWS)));
+        table.nextRow();
+        final Row repeated = table.nextRow();
+
+        final Row third = repeated.getRepetition(2);
+        assertEquals(4, third.getRowNum());
+        assertEquals(1, third.getNumberRowsRepeated());
+        assertEquals("A4", third.nextCell().getAddress());
+        final Cell cell = third.nextCell();
+        assertEquals("B4", cell.getAddress());
+        assertEquals("1", cell.getValue());
+        assertNull(third.nextCell());
+
+        assertEquals("B2", repeated.getRepetition(0).getAt(1).getAddress());
+        assertThrows(IndexOutOfBoundsException.class, () -> repeated.getRepetition(3));
+    }
+
+    @Test
+    void expandRepeatedRows() throws XMLStreamException {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_REPEATED_ROWS)));
+        table.setExpandRepeatedRows(true);
+        table.setSkipTrailingEmptyRows(true);
+
+        List<String> addresses = table.openStream()
+                .map(row -> row.getAt(0).getAddress())
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("A1", "A2", "A3", "A4", "A5", "A6", "A7"), addresses);
+    }
+
+    @Test
+    void skipTrailingEmptyRows() throws XMLStreamException {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_REPEATED_ROWS)));
+        table.setSkipTrailingEmptyRows(true);
+
+        List<Integer> rowNumbers = table.openStream().map(Row::getRowNum).collect(Collectors.toList());
+        assertEquals(Arrays.asList(1, 2, 5, 7), rowNumbers);
+    }
+
     @Test
     void iterator() throws XMLStreamException {
         final Table table = new Table(advanceToStartTag(createParser(CONTENT_EMPTY_TABLE)));
@@ -97,4 +202,212 @@ public class TableTest extends AbstractBaseTest {
         List<Row> rows = stream.collect(Collectors.toList());
         assertEquals(2, rows.size());
     }
+
+    @Test
+    public void testProjection() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        assertSame(table, table.project(10, 3, 0, 2, 3));
+
+        Row row = table.nextRow();
+        assertEquals(2, row.getNumberRowsRepeated());
+        Cell cell = row.nextCell();
+        assertEquals("a", cell.getContent());
+        assertEquals("A1", cell.getAddress());
+        cell = row.nextCell();
+        // inside the run that starts at B
+        assertEquals(2, cell.getColumnIndex());
+        assertEquals("", cell.getContent());
+        cell = row.nextCell();
+        assertEquals("4", cell.getContent());
+        assertEquals(4, cell.getLong());
+        assertEquals(3, cell.getColumnIndex());
+        // the row ends in front of column 10
+        assertNull(row.nextCell());
+        assertEquals("a", row.getRepetition(1).nextCell().getContent());
+
+        row = table.nextRow();
+        assertEquals(3, row.getRowNum());
+        assertEquals("", row.nextCell().getContent());
+        assertEquals("", row.nextCell().getContent());
+        assertEquals("x", row.nextCell().getContent());
+        assertNull(table.nextRow());
+    }
+
+    @Test
+    public void testProjectionByName() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        table.project("D", "b");
+        final Row row = table.nextRow();
+        assertEquals("r", row.getAt(1).getContent());
+        assertEquals("4", row.getAt(3).getContent());
+        assertThrows(IndexOutOfBoundsException.class, () -> row.getAt(0));
+
+        assertThrows(IllegalArgumentException.class, () -> table.project("A1"));
+        assertThrows(IllegalArgumentException.class, () -> table.project(-1));
+        assertEquals(0, Cell.getColumnIndex("A"));
+        assertEquals(26, Cell.getColumnIndex("AA"));
+        assertEquals(16383, Cell.getColumnIndex("XFD"));
+    }
+
+    @Test
+    public void testProjectionIterator() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        // C is inside the run that starts at B, F inside the empty run from E to H
+        table.project("A", "C", "D", "F");
+
+        final List<String> cells = new ArrayList<>();
+        for (Cell cell : table.nextRow()) {
+            cells.add(cell.getAddress() + "=" + cell.getContent());
+        }
+        assertEquals(Arrays.asList("A1=a", "C1=", "D1=4", "F1="), cells);
+
+        assertEquals(Arrays.asList("A3=", "C3=", "D3=x"), table.nextRow().openStream()
+                .map(cell -> cell.getAddress() + "=" + cell.getContent())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testProjectionOfRepeatedRows() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        table.project("D");
+        table.setExpandRepeatedRows(true);
+        final List<String> contents = new ArrayList<>();
+        table.eachRow(r -> contents.add(r.nextCell().getContent()));
+        assertEquals(Arrays.asList("4", "4", "x"), contents);
+    }
+
+    @Test
+    public void testWhere() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_REPEATED_ROWS)));
+        final List<Integer> tested = new ArrayList<>();
+        table.where("B", cell -> {
+            tested.add(cell.getRow().getRowNum());
+            return "1".equals(cell.getValue());
+        });
+
+        final Row row = table.nextRow();
+        assertEquals(2, row.getRowNum());
+        assertEquals(3, row.getNumberRowsRepeated());
+        assertEquals("", row.nextCell().getContent());
+        assertEquals("1", row.nextCell().getContent());
+        assertNull(row.nextCell());
+        assertNull(table.nextRow());
+        // once per row element
+        assertEquals(Arrays.asList(1, 2, 5, 7, 8), tested);
+    }
+
+    @Test
+    public void testWhereWithProjection() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        table.project("A").where("D", cell -> cell.getValueType().equals("float"))
+                .where(0, cell -> cell.getContent().equals("a"));
+        table.setExpandRepeatedRows(true);
+
+        Row row = table.nextRow();
+        assertEquals(1, row.getRowNum());
+        assertEquals("a", row.nextCell().getContent());
+        assertNull(row.nextCell());
+        row = table.nextRow();
+        assertEquals(2, row.getRowNum());
+        assertEquals("A2", row.nextCell().getAddress());
+        assertNull(table.nextRow());
+    }
+
+    @Test
+    public void testWhereInRepeatedColumn() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        final List<String> tested = new ArrayList<>();
+        table.where("C", cell -> {
+            tested.add(cell.getAddress());
+            return cell.getContent().isEmpty();
+        });
+        table.setExpandRepeatedRows(true);
+
+        // C1 is covered by the repetition of B1 and is tested as an empty cell, like nextCell returns it
+        assertEquals(1, table.nextRow().getRowNum());
+        assertEquals(2, table.nextRow().getRowNum());
+        assertEquals(3, table.nextRow().getRowNum());
+        assertNull(table.nextRow());
+        assertEquals(Arrays.asList("C1", "C3"), tested, "the repeated row is tested once");
+    }
+
+    @Test
+    public void testWhereAndProjectRepeatedColumn() throws Exception {
+        Table table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        table.where("C", cell -> "r".equals(cell.getContent())).project("C");
+        assertNull(table.nextRow(), "the repeated value is only in the first column of the run");
+
+        table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        table.where("C", cell -> cell.getContent().isEmpty()).project("C");
+        Row row = table.nextRow();
+        assertEquals(1, row.getRowNum());
+        Cell cell = row.nextCell();
+        assertEquals("C1", cell.getAddress());
+        assertEquals("", cell.getContent(), "the cell that has been tested is returned");
+        assertNull(row.nextCell());
+        assertEquals(3, table.nextRow().getRowNum());
+        assertNull(table.nextRow());
+
+        table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        table.where("B", c -> "r".equals(c.getContent())).project("B");
+        row = table.nextRow();
+        assertEquals(1, row.getRowNum());
+        cell = row.nextCell();
+        assertEquals("B1", cell.getAddress());
+        assertEquals("r", cell.getContent());
+        assertNull(row.nextCell());
+        assertNull(table.nextRow());
+    }
+
+    @Test
+    public void testWhereOutsideProjection() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        table.project("A").where("D", cell -> cell.getValueType().equals("float"));
+
+        final Row row = table.nextRow();
+        final CellRun run = row.nextCellRun();
+        assertEquals(0, run.getStartColumn());
+        assertEquals("a", run.getCell().getContent());
+        assertNull(row.nextCellRun(), "the run of D has only been read for the filter");
+        assertNull(table.nextRow());
+    }
+
+    @Test
+    public void testWhereWithoutMatch() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_PROJECTION)));
+        table.where(20, cell -> !cell.getContent().isEmpty());
+        assertNull(table.nextRow());
+        assertThrows(IllegalArgumentException.class, () -> table.where(-1, cell -> true));
+    }
+
+    @Test
+    public void testSkipRowsOfTable() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_REPEATED_ROWS)));
+        table.skipRows(2);
+        // into the repeated row
+        Row row = table.nextRow();
+        assertEquals(3, row.getRowNum());
+        assertEquals(2, row.getNumberRowsRepeated());
+
+        table.skipRows(2);
+        assertEquals(7, table.nextRow().getRowNum());
+        table.skipRows(0);
+        assertEquals(8, table.nextRow().getRowNum());
+        table.skipRows(Long.MAX_VALUE);
+        assertNull(table.nextRow());
+        assertThrows(IllegalArgumentException.class, () -> table.skipRows(-1));
+    }
+
+    @Test
+    public void testSkipRowsOfExpandedRows() throws Exception {
+        final Table table = new Table(advanceToStartTag(createParser(CONTENT_REPEATED_ROWS)));
+        table.setExpandRepeatedRows(true);
+        table.nextRow();
+        assertEquals(2, table.nextRow().getRowNum());
+        table.skipRows(1);
+        final Row row = table.nextRow();
+        assertEquals(4, row.getRowNum());
+        assertEquals(1, row.getNumberRowsRepeated());
+        assertEquals("1", row.getAt(1).getContent());
+    }
 }
@@ -0,0 +1,92 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueParserTest {
+
+    @Test
+    void parseDouble() {
+        String[] values = {"0", "-0", "50000", "0.1295", "120.5", "54.143662", "-3.25", "+7", ".5", "5.",
+                "1E3", "1.5e-7", "123456789012345", "1234567890123456789", "0.1234567890123456789",
+                "1e300", "4.9e-324", "0.0563", "78.34", "1E+22", "1E23", "NaN", "-Infinity"};
+        for (String value : values) {
+            assertEquals(Double.parseDouble(value), ValueParser.parseDouble(value), value);
+        }
+    }
+
+    @Test
+    void parseDoubleInvalid() {
+        assertThrows(NumberFormatException.class, () -> ValueParser.parseDouble(""));
+        assertThrows(NumberFormatException.class, () -> ValueParser.parseDouble("-"));
+        assertThrows(NumberFormatException.class, () -> ValueParser.parseDouble("1,5"));
+        assertThrows(NumberFormatException.class, () -> ValueParser.parseDouble("1e"));
+    }
+
+    @Test
+    void parseLong() {
+        assertEquals(50000L, ValueParser.parseLong("50000"));
+        assertEquals(-42L, ValueParser.parseLong("-42"));
+        assertEquals(7L, ValueParser.parseLong("7.000"));
+        assertEquals(Long.MAX_VALUE, ValueParser.parseLong(String.valueOf(Long.MAX_VALUE)));
+        assertEquals(Long.MIN_VALUE, ValueParser.parseLong(String.valueOf(Long.MIN_VALUE)));
+    }
+
+    @Test
+    void parseLongInvalid() {
+        assertThrows(NumberFormatException.class, () -> ValueParser.parseLong(""));
+        assertThrows(NumberFormatException.class, () -> ValueParser.parseLong("120.5"));
+        assertThrows(NumberFormatException.class, () -> ValueParser.parseLong("9223372036854775808"));
+        assertThrows(NumberFormatException.class, () -> ValueParser.parseLong("1E3"));
+    }
+
+    @Test
+    void parseEpochDay() {
+        String[] values = {"1970-01-01", "1999-12-31", "2000-02-29", "1900-03-01", "1899-12-30", "2024-07-01",
+                "0001-01-01", "-0001-12-31", "9999-12-31"};
+        for (String value : values) {
+            assertEquals(LocalDate.parse(value).toEpochDay(), ValueParser.parseEpochDay(value), value);
+        }
+        assertEquals(LocalDate.of(1999, 12, 31).toEpochDay(), ValueParser.parseEpochDay("1999-12-31T07:35:02"));
+    }
+
+    @Test
+    void parseEpochDayInvalid() {
+        assertThrows(DateTimeException.class, () -> ValueParser.parseEpochDay("1999-02-29"));
+        assertThrows(DateTimeException.class, () -> ValueParser.parseEpochDay("1999-13-01"));
+        assertThrows(DateTimeException.class, () -> ValueParser.parseEpochDay("99-12-31"));
+        assertThrows(DateTimeException.class, () -> ValueParser.parseEpochDay("1999-12-3"));
+        assertThrows(DateTimeException.class, () -> ValueParser.parseEpochDay("1999-12-31X"));
+    }
+
+    @Test
+    void parseSecondOfDay() {
+        String[] values = {"PT13H37M46S", "PT08H35M00S", "PT0S", "PT23H59M59.999S", "PT90M", "P0DT1H"};
+        for (String value : values) {
+            assertEquals(Duration.parse(value).getSeconds(), ValueParser.parseSecondOfDay(value), value);
+        }
+    }
+
+    @Test
+    void parseSecondOfDayInvalid() {
+        assertThrows(DateTimeException.class, () -> ValueParser.parseSecondOfDay("PT24H"));
+        assertThrows(DateTimeException.class, () -> ValueParser.parseSecondOfDay("P1D"));
+        assertThrows(DateTimeException.class, () -> ValueParser.parseSecondOfDay("13:37:46"));
+        assertThrows(DateTimeException.class, () -> ValueParser.parseSecondOfDay("PT"));
+        assertThrows(DateTimeException.class, () -> ValueParser.parseSecondOfDay("PT13X"));
+    }
+
+    @Test
+    void parseBoolean() {
+        assertTrue(ValueParser.parseBoolean("true"));
+        assertTrue(ValueParser.parseBoolean("TRUE"));
+        assertFalse(ValueParser.parseBoolean("false"));
+        assertFalse(ValueParser.parseBoolean("yes"));
+        assertFalse(ValueParser.parseBoolean(null));
+    }
+}
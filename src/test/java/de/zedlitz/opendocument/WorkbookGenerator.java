@@ -0,0 +1,344 @@
+package de.zedlitz.opendocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates ODS documents that look like the workbooks found in production. The documents depend only on the
+ * shape, the scale and the seed, so benchmarks can be repeated with the same input.
+ *
+ * @author jzedlitz
+ */
+public final class WorkbookGenerator {
+
+    /**
+     * The shape of a generated workbook. At scale 1 each shape has roughly 100,000 cells.
+     */
+    public enum Shape {
+        /**
+         * One sheet with 1000 columns of which only a few are filled in each row.
+         */
+        WIDE_SPARSE,
+        /**
+         * One sheet with 8 columns of numbers, percentages, currencies, dates and times.
+         */
+        TALL_NUMERIC,
+        /**
+         * One sheet with 6 columns of text, some of it repeating like a category.
+         */
+        TEXT_HEAVY,
+        /**
+         * One sheet in which most cells and rows are repeated.
+         */
+        REPEATED,
+        /**
+         * 500 sheets with 20 rows and 10 columns each.
+         */
+        MANY_SHEETS
+    }
+
+    private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta",
+            "iota", "kappa", "lambda", "mu", "nu", "xi", "omicron", "pi", "rho", "sigma", "tau", "upsilon"};
+    private static final String[] CATEGORIES = {"Germany", "Denmark", "France", "Netherlands", "Austria"};
+    private static final String[] CURRENCIES = {"EUR", "USD", "DKK"};
+    private static final long EPOCH_DAY = 18000;
+
+    private final Random random;
+    private final Writer out;
+    private long cellCount;
+
+    private WorkbookGenerator(final Writer out, final long seed) {
+        this.out = out;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generate a document.
+     *
+     * @param scale multiplies the number of rows or sheets
+     */
+    public static byte[] generate(final Shape shape, final int scale, final long seed) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        write(shape, scale, seed, result);
+        return result.toByteArray();
+    }
+
+    /**
+     * Write a document.
+     *
+     * @return the number of cells that are not empty
+     */
+    public static long write(final Shape shape, final int scale, final long seed, final OutputStream target)
+            throws IOException {
+        final ZipOutputStream zip = new ZipOutputStream(target);
+        final byte[] mimetype = "application/vnd.oasis.opendocument.spreadsheet".getBytes(StandardCharsets.US_ASCII);
+        final ZipEntry mimetypeEntry = entry("mimetype");
+        mimetypeEntry.setMethod(ZipEntry.STORED);
+        mimetypeEntry.setSize(mimetype.length);
+        final CRC32 crc = new CRC32();
+        crc.update(mimetype);
+        mimetypeEntry.setCrc(crc.getValue());
+        zip.putNextEntry(mimetypeEntry);
+        zip.write(mimetype);
+        zip.closeEntry();
+
+        zip.putNextEntry(entry("content.xml"));
+        final Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        final WorkbookGenerator generator = new WorkbookGenerator(writer, seed);
+        generator.writeContent(shape, scale);
+        writer.flush();
+        zip.closeEntry();
+        zip.finish();
+        return generator.cellCount;
+    }
+
+    /**
+     * @return an entry with a fixed time, so that the bytes of the document are the same for each run
+     */
+    private static ZipEntry entry(final String name) {
+        final ZipEntry result = new ZipEntry(name);
+        result.setTime(0);
+        return result;
+    }
+
+    private void writeContent(final Shape shape, final int scale) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<office:document-content" +
+                " xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\"" +
+                " xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\"" +
+                " xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\"" +
+                " office:version=\"1.2\"><office:body><office:spreadsheet>");
+        switch (shape) {
+            case WIDE_SPARSE:
+                startTable("Wide");
+                for (int row = 0; row < 1000 * scale; row++) {
+                    writeWideSparseRow();
+                }
+                endTable(1000);
+                break;
+            case TALL_NUMERIC:
+                startTable("Numbers");
+                for (int row = 0; row < 12500 * scale; row++) {
+                    writeNumericRow(row);
+                }
+                endTable(8);
+                break;
+            case TEXT_HEAVY:
+                startTable("Texts");
+                for (int row = 0; row < 16667 * scale; row++) {
+                    writeTextRow(row);
+                }
+                endTable(6);
+                break;
+            case REPEATED:
+                startTable("Repeated");
+                for (int row = 0; row < 10000 * scale; row++) {
+                    writeRepeatedRow();
+                }
+                endTable(1024);
+                break;
+            case MANY_SHEETS:
+                for (int sheet = 0; sheet < 500 * scale; sheet++) {
+                    startTable("Sheet" + (sheet + 1));
+                    for (int row = 0; row < 20; row++) {
+                        writeSmallRow(row);
+                    }
+                    endTable(10);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        out.write("</office:spreadsheet></office:body></office:document-content>");
+    }
+
+    private void startTable(final String name) throws IOException {
+        out.write("<table:table table:name=\"");
+        out.write(name);
+        out.write("\"><table:table-column table:number-columns-repeated=\"16\"/>");
+    }
+
+    /**
+     * End a table with the empty rows an office application fills a sheet with.
+     */
+    private void endTable(final int columns) throws IOException {
+        out.write("<table:table-row table:number-rows-repeated=\"1048000\"><table:table-cell" +
+                " table:number-columns-repeated=\"");
+        out.write(Integer.toString(columns));
+        out.write("\"/></table:table-row></table:table>");
+    }
+
+    private void writeWideSparseRow() throws IOException {
+        out.write("<table:table-row>");
+        int column = 0;
+        for (int i = 0; i < 100; i++) {
+            final int gap = random.nextInt(18);
+            column += gap + 1;
+            if (column > 1000) {
+                break;
+            }
+            if (gap > 0) {
+                emptyCells(gap);
+            }
+            floatCell(random.nextInt(100000) / 100.0);
+        }
+        out.write("</table:table-row>");
+    }
+
+    private void writeNumericRow(final int row) throws IOException {
+        out.write("<table:table-row>");
+        floatCell(row + 1);
+        floatCell(random.nextInt(1000000) / 1000.0);
+        floatCell(random.nextGaussian() * 1000);
+        percentageCell(random.nextInt(10000) / 10000.0);
+        currencyCell(random.nextInt(10000000) / 100.0, CURRENCIES[random.nextInt(CURRENCIES.length)]);
+        dateCell(EPOCH_DAY + random.nextInt(3650));
+        timeCell(random.nextInt(86400));
+        booleanCell(random.nextBoolean());
+        out.write("</table:table-row>");
+    }
+
+    private void writeTextRow(final int row) throws IOException {
+        out.write("<table:table-row>");
+        stringCell("ID-" + (row + 1));
+        stringCell(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        stringCell(CATEGORIES[random.nextInt(CATEGORIES.length)] + " / " + WORDS[random.nextInt(WORDS.length)]);
+        stringCell(sentence(3 + random.nextInt(5)));
+        stringCell(sentence(10 + random.nextInt(20)));
+        stringCell(random.nextInt(4) == 0 ? "Gr\u00fc\u00dfe & <Kommentar>" : WORDS[random.nextInt(WORDS.length)]);
+        out.write("</table:table-row>");
+    }
+
+    private void writeRepeatedRow() throws IOException {
+        final int rows = 1 + random.nextInt(3) * random.nextInt(20);
+        if (rows > 1) {
+            out.write("<table:table-row table:number-rows-repeated=\"");
+            out.write(Integer.toString(rows));
+            out.write("\">");
+        } else {
+            out.write("<table:table-row>");
+        }
+        int column = 0;
+        while (column < 1024 - 64) {
+            final int repeated = 1 + random.nextInt(64);
+            column += repeated;
+            if (random.nextInt(3) == 0) {
+                emptyCells(repeated);
+                continue;
+            }
+            out.write("<table:table-cell");
+            if (repeated > 1) {
+                out.write(" table:number-columns-repeated=\"");
+                out.write(Integer.toString(repeated));
+                out.write("\"");
+            }
+            final int value = random.nextInt(5);
+            out.write(" office:value-type=\"float\" office:value=\"");
+            out.write(Integer.toString(value));
+            out.write("\"><text:p>");
+            out.write(Integer.toString(value));
+            out.write("</text:p></table:table-cell>");
+            cellCount++;
+        }
+        out.write("</table:table-row>");
+    }
+
+    private void writeSmallRow(final int row) throws IOException {
+        out.write("<table:table-row>");
+        stringCell(WORDS[row]);
+        for (int column = 1; column < 10; column++) {
+            floatCell(random.nextInt(1000));
+        }
+        out.write("</table:table-row>");
+    }
+
+    private String sentence(final int words) {
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                result.append(' ');
+            }
+            result.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return result.toString();
+    }
+
+    private void emptyCells(final int count) throws IOException {
+        if (count == 1) {
+            out.write("<table:table-cell/>");
+        } else {
+            out.write("<table:table-cell table:number-columns-repeated=\"");
+            out.write(Integer.toString(count));
+            out.write("\"/>");
+        }
+    }
+
+    private void floatCell(final double value) throws IOException {
+        valueCell("float", "office:value", number(value), number(value));
+    }
+
+    private void percentageCell(final double value) throws IOException {
+        valueCell("percentage", "office:value", number(value), number(value * 100) + "%");
+    }
+
+    private void currencyCell(final double value, final String currency) throws IOException {
+        out.write("<table:table-cell office:value-type=\"currency\" office:currency=\"");
+        out.write(currency);
+        out.write("\" office:value=\"");
+        out.write(number(value));
+        out.write("\"><text:p>");
+        out.write(number(value) + " " + currency);
+        out.write("</text:p></table:table-cell>");
+        cellCount++;
+    }
+
+    private void dateCell(final long epochDay) throws IOException {
+        final String date = LocalDate.ofEpochDay(epochDay).toString();
+        valueCell("date", "office:date-value", date, date);
+    }
+
+    private void timeCell(final int secondOfDay) throws IOException {
+        final String time = String.format("PT%02dH%02dM%02dS", secondOfDay / 3600, secondOfDay / 60 % 60,
+                secondOfDay % 60);
+        valueCell("time", "office:time-value", time,
+                String.format("%02d:%02d:%02d", secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60));
+    }
+
+    private void booleanCell(final boolean value) throws IOException {
+        valueCell("boolean", "office:boolean-value", Boolean.toString(value), value ? "TRUE" : "FALSE");
+    }
+
+    private void stringCell(final String text) throws IOException {
+        out.write("<table:table-cell office:value-type=\"string\"><text:p>");
+        out.write(text.replace("&", "&amp;").replace("<", "&lt;"));
+        out.write("</text:p></table:table-cell>");
+        cellCount++;
+    }
+
+    private void valueCell(final String type, final String attribute, final String value, final String text)
+            throws IOException {
+        out.write("<table:table-cell office:value-type=\"");
+        out.write(type);
+        out.write("\" ");
+        out.write(attribute);
+        out.write("=\"");
+        out.write(value);
+        out.write("\"><text:p>");
+        out.write(text);
+        out.write("</text:p></table:table-cell>");
+        cellCount++;
+    }
+
+    private static String number(final double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value) : Double.toString(value);
+    }
+}
@@ -0,0 +1,68 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class WorkbookGeneratorTest {
+
+    @ParameterizedTest
+    @EnumSource(WorkbookGenerator.Shape.class)
+    public void testReadable(final WorkbookGenerator.Shape shape) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final long cells = WorkbookGenerator.write(shape, 1, 42, out);
+        assertTrue(cells > 50000, shape + ": " + cells);
+
+        long read = 0;
+        try (Document doc = new Document(new ByteArrayInputStream(out.toByteArray()))) {
+            for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+                for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                    for (CellRun run = row.nextCellRun(); run != null; run = row.nextCellRun()) {
+                        if (!run.getCell().isBlank()) {
+                            assertNotNull(convert(run.getCell()));
+                            read++;
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(cells, read);
+    }
+
+    /**
+     * Convert the value of a cell like an application would.
+     */
+    private static Object convert(final Cell cell) {
+        switch (cell.getValueType()) {
+            case "float":
+            case "percentage":
+            case "currency":
+                return cell.getDouble();
+            case "date":
+                return cell.asDate();
+            case "time":
+                return cell.asTime();
+            case "boolean":
+                return cell.asBoolean();
+            default:
+                return cell.getContent();
+        }
+    }
+
+    @Test
+    public void testDeterministic() throws Exception {
+        assertArrayEquals(WorkbookGenerator.generate(WorkbookGenerator.Shape.TEXT_HEAVY, 1, 7),
+                WorkbookGenerator.generate(WorkbookGenerator.Shape.TEXT_HEAVY, 1, 7));
+        assertFalse(Arrays.equals(WorkbookGenerator.generate(WorkbookGenerator.Shape.TEXT_HEAVY, 1, 7),
+                WorkbookGenerator.generate(WorkbookGenerator.Shape.TEXT_HEAVY, 1, 8)));
+    }
+}
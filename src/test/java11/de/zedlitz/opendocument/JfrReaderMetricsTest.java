@@ -0,0 +1,120 @@
+package de.zedlitz.opendocument;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class JfrReaderMetricsTest {
+    private static final DocumentReaderConfig CONFIG =
+            DocumentReaderConfig.getDefault().withMetrics(new JfrReaderMetrics());
+
+    @TempDir
+    Path tempDir;
+
+    private static long readCells(final Document doc) {
+        long cells = 0;
+        for (Table table = doc.nextTable(); table != null; table = doc.nextTable()) {
+            for (Row row = table.nextRow(); row != null; row = table.nextRow()) {
+                for (Cell cell = row.nextCell(); cell != null; cell = row.nextCell()) {
+                    cells++;
+                }
+            }
+        }
+        return cells;
+    }
+
+    private static List<RecordedEvent> events(final List<RecordedEvent> events, final String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals("de.zedlitz.opendocument." + name))
+                .collect(Collectors.toList());
+    }
+
+    private List<RecordedEvent> record(final Recording recording, final ThrowingRunnable action)
+            throws Exception {
+        recording.enable("de.zedlitz.opendocument.Document").withThreshold(Duration.ZERO);
+        recording.enable("de.zedlitz.opendocument.Table").withThreshold(Duration.ZERO);
+        recording.enable("de.zedlitz.opendocument.RowBatch").withThreshold(Duration.ZERO);
+        recording.start();
+        action.run();
+        recording.stop();
+        final Path file = tempDir.resolve("recording.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        final byte[] document = WorkbookGenerator.generate(WorkbookGenerator.Shape.TALL_NUMERIC, 1, 42);
+        final long[] cells = new long[1];
+        final List<RecordedEvent> recorded;
+        try (Recording recording = new Recording()) {
+            recorded = record(recording, () -> {
+                try (Document doc = new Document(new ByteArrayInputStream(document), CONFIG)) {
+                    cells[0] = readCells(doc);
+                }
+            });
+        }
+
+        final List<RecordedEvent> documents = events(recorded, "Document");
+        assertEquals(1, documents.size());
+        assertNull(documents.get(0).getString("document"));
+        assertEquals(1, documents.get(0).getInt("tables"));
+        assertEquals(cells[0], documents.get(0).getLong("cells"));
+        assertTrue(documents.get(0).getLong("bytesInflated") > 0);
+
+        final List<RecordedEvent> tables = events(recorded, "Table");
+        assertEquals(1, tables.size());
+        assertEquals("Numbers", tables.get(0).getString("sheet"));
+        assertEquals(cells[0], tables.get(0).getLong("cells"));
+        final long rows = tables.get(0).getLong("rows");
+        assertEquals(documents.get(0).getLong("rows"), rows);
+
+        final List<RecordedEvent> batches = events(recorded, "RowBatch");
+        assertEquals((rows + JfrReaderMetrics.BATCH_SIZE - 1) / JfrReaderMetrics.BATCH_SIZE, batches.size());
+        assertEquals(1, batches.get(0).getLong("firstRow"));
+        assertEquals(JfrReaderMetrics.BATCH_SIZE, batches.get(0).getInt("rows"));
+        assertEquals(rows, batches.stream().mapToLong(e -> e.getInt("rows")).sum());
+        assertEquals(cells[0], batches.stream().mapToLong(e -> e.getLong("cells")).sum());
+    }
+
+    @Test
+    public void testUnfinishedTable() throws Exception {
+        final Path path = Paths.get(Objects.requireNonNull(getClass().getResource("/test01.ods")).toURI());
+        final List<RecordedEvent> recorded;
+        try (Recording recording = new Recording()) {
+            recorded = record(recording, () -> {
+                try (Document doc = new Document(path, CONFIG)) {
+                    doc.nextTable().nextRow();
+                }
+            });
+        }
+
+        assertEquals("test01.ods", events(recorded, "Document").get(0).getString("document"));
+        final List<RecordedEvent> tables = events(recorded, "Table");
+        assertEquals(1, tables.size());
+        assertEquals(1, tables.get(0).getLong("rows"));
+    }
+
+    @Test
+    public void testNotRecording() {
+        assertSame(ReaderMetrics.NOOP, new JfrReaderMetrics().forDocument("test"));
+    }
+}
@@ -0,0 +1,117 @@
+package de.zedlitz.opendocument;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author jzedlitz
+ */
+public class RowPublishersTest extends AbstractBaseTest {
+
+    /**
+     * Requests one row after the other.
+     */
+    private static class OneByOne implements Flow.Subscriber<Row> {
+        final List<Row> rows = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final Row row) {
+            rows.add(row);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error.set(throwable);
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    private Document openDocument() throws Exception {
+        return new Document(Paths.get(Objects.requireNonNull(getClass().getResource("/test01.ods")).getFile()));
+    }
+
+    @Test
+    public void testDocument() throws Exception {
+        final Document doc = openDocument();
+        final OneByOne subscriber = new OneByOne();
+        RowPublishers.of(doc).subscribe(subscriber);
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.error.get());
+        assertFalse(subscriber.rows.isEmpty());
+        assertEquals("A1", subscriber.rows.get(0).getAt(0).getContent());
+    }
+
+    @Test
+    public void testTable() throws Exception {
+        try (Document doc = openDocument()) {
+            final Table table = doc.nextTable();
+            final OneByOne subscriber = new OneByOne();
+            RowPublishers.of(table, Runnable::run).subscribe(subscriber);
+            assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+            assertNull(subscriber.error.get());
+            assertFalse(subscriber.rows.isEmpty());
+            // the document stays open for its other tables
+            assertNotNull(doc.nextTable());
+        }
+    }
+
+    @Test
+    public void testCancelTable() throws Exception {
+        try (Document doc = openDocument()) {
+            final Table table = doc.nextTable();
+            final AtomicBoolean closed = new AtomicBoolean();
+            doc.register(() -> closed.set(true));
+            final OneByOne subscriber = new OneByOne() {
+                @Override
+                public void onNext(final Row row) {
+                    rows.add(row);
+                    if (rows.size() == 1) {
+                        subscription.cancel();
+                        done.countDown();
+                    }
+                }
+            };
+            RowPublishers.of(table, Runnable::run).subscribe(subscriber);
+            assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+            assertEquals(1, subscriber.rows.size());
+            assertTrue(closed.get(), "the rest of the table cannot be read");
+        }
+    }
+
+    @Test
+    public void testSingleSubscriber() throws Exception {
+        try (Document doc = openDocument()) {
+            final Flow.Publisher<Row> publisher = RowPublishers.of(doc.nextTable(), Runnable::run);
+            publisher.subscribe(new OneByOne());
+            final OneByOne second = new OneByOne();
+            publisher.subscribe(second);
+            assertTrue(second.error.get() instanceof IllegalStateException);
+        }
+    }
+}